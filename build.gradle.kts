@@ -17,6 +17,7 @@ buildscript {
 plugins {
     java
     kotlin("jvm") version "1.2.71"
+    id("me.champeau.gradle.jmh") version "0.4.7"
 }
 
 apply {
@@ -33,6 +34,24 @@ val test by tasks.getting(Test::class) {
     }
 }
 
+val runSuite by tasks.creating(JavaExec::class) {
+    group = "verification"
+    description = "Runs every solver over input/ and checks the answers against the expected outputs"
+    classpath = sourceSets["main"].runtimeClasspath
+    main = "com.metchevn.codejam.SuiteRunner"
+    args(file("input"))
+}
+
+jmh {
+    jmhVersion = "1.21"
+    fork = 1
+    warmupIterations = 3
+    iterations = 5
+    resultFormat = "JSON"
+    resultsFile = file("$buildDir/reports/jmh/results.json")
+    jvmArgsAppend = listOf("-Dcodejam.input=${file("input")}", "-Dcodejam.cache.bypass=true")
+}
+
 repositories {
     maven { url = URI("http://dl.bintray.com/jetbrains/spek") }
     jcenter()
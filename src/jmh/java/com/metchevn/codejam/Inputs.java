@@ -0,0 +1,23 @@
+package com.metchevn.codejam;
+
+import java.io.File;
+
+/**
+ * Locates the fixtures under {@code input/}. The directory is passed in by the build through the
+ * {@code codejam.input} system property, falling back to {@code input} in the working directory.
+ */
+final class Inputs {
+  private static final File ROOT = new File(System.getProperty("codejam.input", "input"));
+
+  private Inputs() {
+  }
+
+  /** @param name a fixture such as {@code erdos_szekeres/C-large-practice}, without the {@code .in} */
+  static File file(String name) {
+    File file = new File(ROOT, name + ".in");
+    if (!file.isFile()) {
+      throw new IllegalArgumentException("No input " + file.getAbsolutePath());
+    }
+    return file;
+  }
+}
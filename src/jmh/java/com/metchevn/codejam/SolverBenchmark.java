@@ -0,0 +1,74 @@
+package com.metchevn.codejam;
+
+import com.google.common.io.ByteStreams;
+import com.metchevn.codejam.cheaters.Cheaters;
+import com.metchevn.codejam.erdos_szekeres.Erdos_Szekeres;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs a solver end to end over one of the bundled inputs, from the mapped input file to a discarded
+ * output, sequentially and through the parallel pipeline.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class SolverBenchmark {
+  @Param({
+      "erdos_szekeres/sample", "erdos_szekeres/C-small-practice", "erdos_szekeres/C-large-practice",
+      "cheaters/sample", "cheaters/A-small-practice"})
+  public String input;
+
+  @Param({"1", "4"})
+  public int parallelism;
+
+  private File m_file;
+  private PrintStream m_stdout;
+
+  @Setup
+  public void setup() {
+    m_file = Inputs.file(input);
+    // Cheaters logs every case to stdout, which would otherwise dominate the measurement
+    m_stdout = System.out;
+    System.setOut(new PrintStream(ByteStreams.nullOutputStream()));
+  }
+
+  @TearDown
+  public void tearDown() {
+    System.setOut(m_stdout);
+  }
+
+  private Solver solver(InputStream in, OutputStream out) {
+    String problem = input.substring(0, input.indexOf('/'));
+    switch (problem) {
+      case "erdos_szekeres":
+        return new Erdos_Szekeres(in, out);
+      case "cheaters":
+        return new Cheaters(in, out);
+      default:
+        throw new IllegalArgumentException("No solver for " + input);
+    }
+  }
+
+  @Benchmark
+  public RunReport solve() throws Exception {
+    try (Solver solver = solver(new FileInputStream(m_file), ByteStreams.nullOutputStream())) {
+      solver.solve(parallelism);
+      return solver.getReport();
+    }
+  }
+}
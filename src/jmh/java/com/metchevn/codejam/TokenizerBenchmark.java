@@ -0,0 +1,75 @@
+package com.metchevn.codejam;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.StreamTokenizer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reads every number of an input file, comparing {@link ByteTokenizer} over a mapped file and over
+ * an in-memory stream with the {@link StreamTokenizer} that {@link Solver} used before.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class TokenizerBenchmark {
+  @Param({"erdos_szekeres/C-large-practice", "erdos_szekeres/C-small-practice", "cheaters/A-small-practice"})
+  public String input;
+
+  private byte[] m_bytes;
+  private int m_tokens;
+
+  @Setup
+  public void setup() throws IOException {
+    m_bytes = Files.readAllBytes(Inputs.file(input).toPath());
+    m_tokens = new String(m_bytes, StandardCharsets.US_ASCII).trim().split("\\s+").length;
+  }
+
+  @Benchmark
+  public long mappedFile() throws IOException {
+    try (ByteTokenizer tokenizer = new ByteTokenizer(new FileInputStream(Inputs.file(input)))) {
+      return sum(tokenizer);
+    }
+  }
+
+  @Benchmark
+  public long stream() throws IOException {
+    try (ByteTokenizer tokenizer = new ByteTokenizer(new ByteArrayInputStream(m_bytes))) {
+      return sum(tokenizer);
+    }
+  }
+
+  @Benchmark
+  public long streamTokenizer() throws IOException {
+    StreamTokenizer st = new StreamTokenizer(new BufferedReader(new InputStreamReader(new ByteArrayInputStream(m_bytes))));
+    st.eolIsSignificant(false);
+    st.parseNumbers();
+    long sum = 0;
+    while (st.nextToken() == StreamTokenizer.TT_NUMBER) {
+      sum += (long) st.nval;
+    }
+    return sum;
+  }
+
+  private long sum(ByteTokenizer tokenizer) throws IOException {
+    long sum = 0;
+    for (int i = 0; i < m_tokens; i++) {
+      sum += tokenizer.parseLong();
+    }
+    return sum;
+  }
+}
@@ -0,0 +1,105 @@
+package com.metchevn.util.tree.bplus;
+
+import com.google.common.collect.Ordering;
+import com.metchevn.util.tree.redblack.DefaultRedBlackTree;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.NavigableSet;
+import java.util.Random;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Point lookups and range scans on a {@link BPlusTree} against a {@link DefaultRedBlackTree} and a
+ * {@link TreeSet} of the same elements, from sizes that fit in the caches to ones that do not fit in
+ * anything but main memory. Once the tree is larger than the last-level cache the lookup latency is
+ * dominated by cache misses, about one per level for the binary trees and a few per level, but far
+ * fewer levels, for the B+-tree; the scan reads {@value #SCAN_LENGTH} consecutive elements, which
+ * the B+-tree finds next to each other in its leaves.
+ * <p>
+ * The elements are the even numbers below {@code 2 * size}, boxed up front, so that lookups of odd
+ * keys miss. Each trial builds only the one implementation it measures: at 10<sup>8</sup> elements
+ * the binary trees take about 5.5 GB of heap with their keys and the B+-tree about 2.6 GB, which
+ * the 12 GB heap of the fork covers. The heap is set with {@code jvmArgs} because the build's
+ * {@code jvmArgsAppend} replaces the annotation's; drop the largest size with
+ * {@code -p size=...} on a smaller machine.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(value = 1, jvmArgs = "-Xmx12g")
+public class BPlusTreeBenchmark
+{
+  private static final int SCAN_LENGTH = 1000;
+  private static final int PROBES = 1 << 16;
+
+  @Param({"100000", "1000000", "10000000", "100000000"})
+  public int size;
+
+  @Param({"bplus", "redblack", "treeset"})
+  public String impl;
+
+  private NavigableSet<Integer> m_set;
+  private Integer[] m_probes;
+  private int m_next;
+
+  @Setup(Level.Trial)
+  public void setup()
+  {
+    switch (impl)
+    {
+      case "bplus":
+        m_set = new BPlusTree<>(Ordering.<Integer>natural());
+        break;
+      case "redblack":
+        m_set = new DefaultRedBlackTree<>(Ordering.<Integer>natural());
+        break;
+      default:
+        m_set = new TreeSet<>(Ordering.<Integer>natural());
+        break;
+    }
+    for (int i = 0; i < size; i++)
+    {
+      m_set.add(2 * i);
+    }
+    Random random = new Random(1);
+    m_probes = new Integer[PROBES];
+    for (int i = 0; i < PROBES; i++)
+    {
+      m_probes[i] = random.nextInt(2 * size);
+    }
+  }
+
+  private Integer nextProbe()
+  {
+    m_next = (m_next + 1) & (PROBES - 1);
+    return m_probes[m_next];
+  }
+
+  @Benchmark
+  public boolean lookup()
+  {
+    return m_set.contains(nextProbe());
+  }
+
+  @Benchmark
+  public long rangeScan()
+  {
+    Integer from = nextProbe();
+    long sum = 0;
+    for (Integer value : m_set.subSet(from, true, from + 2 * SCAN_LENGTH, false))
+    {
+      sum += value;
+    }
+    return sum;
+  }
+}
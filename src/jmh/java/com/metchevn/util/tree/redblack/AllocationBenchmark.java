@@ -0,0 +1,74 @@
+package com.metchevn.util.tree.redblack;
+
+import com.google.common.collect.Ordering;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The hot paths of a {@link DefaultRedBlackTree} that should allocate nothing: adding an element it
+ * already has, looking one up and removing one it does not have. Run with {@code -prof gc};
+ * {@code gc.alloc.rate.norm} should be 0 bytes per operation for all three. The keys are boxed up
+ * front so that only the tree's own allocations are measured.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class AllocationBenchmark
+{
+  @Param({"1000", "1000000"})
+  public int size;
+
+  private DefaultRedBlackTree<Integer> m_tree;
+  /** Even keys are in the tree, odd ones are not. */
+  private Integer[] m_keys;
+  private int m_next;
+
+  @Setup(Level.Trial)
+  public void setup()
+  {
+    m_keys = new Integer[2 * size];
+    m_tree = new DefaultRedBlackTree<>(Ordering.<Integer>natural());
+    for (int i = 0; i < m_keys.length; i++)
+    {
+      m_keys[i] = i;
+      if (i % 2 == 0)
+      {
+        m_tree.add(m_keys[i]);
+      }
+    }
+  }
+
+  /** Strides through the keys so that successive operations walk different paths. */
+  private int nextIndex()
+  {
+    m_next = (m_next + 7919) % m_keys.length;
+    return m_next;
+  }
+
+  @Benchmark
+  public boolean duplicateAdd()
+  {
+    return m_tree.add(m_keys[nextIndex() & ~1]);
+  }
+
+  @Benchmark
+  public boolean contains()
+  {
+    return m_tree.contains(m_keys[nextIndex()]);
+  }
+
+  @Benchmark
+  public boolean missingRemove()
+  {
+    return m_tree.remove(m_keys[nextIndex() | 1]);
+  }
+}
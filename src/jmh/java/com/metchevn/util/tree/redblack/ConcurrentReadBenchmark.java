@@ -0,0 +1,87 @@
+package com.metchevn.util.tree.redblack;
+
+import com.google.common.collect.Ordering;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Collections;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntFunction;
+
+/**
+ * Seven readers doing {@code contains} and {@code ceiling} against one writer adding and removing
+ * random keys, on a {@link ConcurrentRedBlackTree}, a {@link ConcurrentSkipListSet} and a
+ * {@link DefaultRedBlackTree} behind {@code synchronized}. Compare the {@code read} scores for the
+ * read throughput; run with {@code -tg} to try other mixes of readers and writers.
+ */
+@State(Scope.Group)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ConcurrentReadBenchmark
+{
+  @Param({"1000", "1000000"})
+  public int size;
+
+  @Param({"stamped", "skiplist", "synchronized"})
+  public String set;
+
+  private Set<Integer> m_set;
+  private IntFunction<Integer> m_ceiling;
+
+  @Setup(Level.Trial)
+  public void setup()
+  {
+    switch (set)
+    {
+      case "stamped":
+        ConcurrentRedBlackTree<Integer> tree = new ConcurrentRedBlackTree<>(Ordering.<Integer>natural());
+        m_set = tree;
+        m_ceiling = tree::ceiling;
+        break;
+      case "skiplist":
+        NavigableSet<Integer> skipList = new ConcurrentSkipListSet<>();
+        m_set = skipList;
+        m_ceiling = skipList::ceiling;
+        break;
+      default:
+        NavigableSet<Integer> synchronizedTree = Collections.synchronizedNavigableSet(new DefaultRedBlackTree<>(Ordering.<Integer>natural()));
+        m_set = synchronizedTree;
+        m_ceiling = synchronizedTree::ceiling;
+    }
+    for (int i = 0; i < size; i += 2)
+    {
+      m_set.add(i);
+    }
+  }
+
+  @Benchmark
+  @Group("mixed")
+  @GroupThreads(7)
+  public Integer read()
+  {
+    int key = ThreadLocalRandom.current().nextInt(size);
+    return m_set.contains(key) ? key : m_ceiling.apply(key);
+  }
+
+  @Benchmark
+  @Group("mixed")
+  @GroupThreads(1)
+  public boolean write()
+  {
+    int key = ThreadLocalRandom.current().nextInt(size);
+    return m_set.add(key) || m_set.remove(key);
+  }
+}
@@ -0,0 +1,76 @@
+package com.metchevn.util.tree.redblack;
+
+import com.google.common.collect.Ordering;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Fills a {@link DefaultRedBlackTree} with {@code size} integers, with node depths tracked on every
+ * relink as before and computed on demand. The score is the time to insert them all; divide
+ * {@code size} by it for the insert throughput. The largest size needs most of the 8 GB heap and
+ * takes minutes per iteration with tracked depths.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(value = 1, jvmArgs = "-Xmx8g")
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+public class InsertBenchmark
+{
+  @Param({"1000000", "10000000", "100000000"})
+  public int size;
+
+  @Param({"false", "true"})
+  public boolean trackDepth;
+
+  @Param({"ascending", "random"})
+  public String order;
+
+  private int[] m_values;
+
+  @Setup(Level.Trial)
+  public void setup()
+  {
+    m_values = new int[size];
+    for (int i = 0; i < size; i++)
+    {
+      m_values[i] = i;
+    }
+    if (order.equals("random"))
+    {
+      Random random = new Random(42);
+      for (int i = size - 1; i > 0; i--)
+      {
+        int j = random.nextInt(i + 1);
+        int swap = m_values[i];
+        m_values[i] = m_values[j];
+        m_values[j] = swap;
+      }
+    }
+  }
+
+  @Benchmark
+  public DefaultRedBlackTree<Integer> insert()
+  {
+    DefaultRedBlackTree<Integer> tree = new DefaultRedBlackTree<>(Ordering.<Integer>natural(), trackDepth);
+    for (int value : m_values)
+    {
+      tree.add(value);
+    }
+    return tree;
+  }
+}
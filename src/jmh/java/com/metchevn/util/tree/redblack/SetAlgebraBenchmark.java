@@ -0,0 +1,84 @@
+package com.metchevn.util.tree.redblack;
+
+import com.google.common.collect.Ordering;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Union of two indexes of {@code size} and {@code size * ratio} random longs: the persistent trees'
+ * split/join union against adding one into a copy of the other, as a {@link TreeSet} and as a
+ * {@link DefaultRedBlackTree}. Small ratios are where the O(m log(n/m + 1)) bound pays.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(value = 1, jvmArgs = "-Xmx8g")
+public class SetAlgebraBenchmark
+{
+  @Param({"1000000", "4000000"})
+  public int size;
+
+  @Param({"0.001", "1"})
+  public double ratio;
+
+  private List<Long> m_large;
+  private List<Long> m_small;
+  private PersistentRedBlackTree<Long> m_largeTree;
+  private PersistentRedBlackTree<Long> m_smallTree;
+
+  @Setup(Level.Trial)
+  public void setup()
+  {
+    Random random = new Random(42);
+    m_large = sorted(random, size);
+    m_small = sorted(random, (int) (size * ratio));
+    m_largeTree = PersistentRedBlackTree.fromSorted(Ordering.<Long>natural(), m_large);
+    m_smallTree = PersistentRedBlackTree.fromSorted(Ordering.<Long>natural(), m_small);
+  }
+
+  private static List<Long> sorted(Random random, int size)
+  {
+    TreeSet<Long> values = new TreeSet<>();
+    while (values.size() < size)
+    {
+      values.add(random.nextLong());
+    }
+    return new ArrayList<>(values);
+  }
+
+  @Benchmark
+  public PersistentRedBlackTree<Long> persistentUnion()
+  {
+    return m_largeTree.union(m_smallTree);
+  }
+
+  @Benchmark
+  public TreeSet<Long> treeSetAddAll()
+  {
+    TreeSet<Long> union = new TreeSet<>(m_large);
+    union.addAll(m_small);
+    return union;
+  }
+
+  @Benchmark
+  public DefaultRedBlackTree<Long> redBlackAddAll()
+  {
+    DefaultRedBlackTree<Long> union = DefaultRedBlackTree.fromSorted(Ordering.<Long>natural(), m_large);
+    union.addAll(m_small);
+    return union;
+  }
+}
@@ -0,0 +1,288 @@
+package com.metchevn.codejam;
+
+import java.io.Closeable;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Parses whitespace separated ASCII tokens straight from bytes.
+ * <p>
+ * Files are memory-mapped (in windows of {@link #MAP_WINDOW} bytes), any other stream is read in
+ * blocks of {@link #BLOCK_SIZE} bytes into a reused buffer. Numbers are accumulated digit by digit
+ * into a {@code long}, so unlike {@link java.io.StreamTokenizer} there is no loss of precision above
+ * 2^53 and nothing is allocated per numeric token.
+ * <p>
+ * Words and ordinary characters follow the {@link java.io.StreamTokenizer} defaults: a word starts
+ * with a letter and continues over letters, digits, {@code '.'} and {@code '-'}; a {@code '-'} that
+ * is not followed by a digit is an ordinary character.
+ */
+public class ByteTokenizer implements Closeable {
+  static final int BLOCK_SIZE = 1 << 16;
+  static final long MAP_WINDOW = 1L << 30;
+  private static final int EOF = -1;
+
+  private final InputStream m_is;
+  private final FileChannel m_channel;
+  private final byte[] m_block;
+  private ByteBuffer m_buffer;
+  private long m_mapPosition = -1;
+  /** Offset in the input of index 0 of {@link #m_buffer}. */
+  private long m_base;
+  private byte[] m_word = new byte[64];
+  private boolean m_recording;
+  private byte[] m_recorded = new byte[256];
+  private int m_recordedLength;
+
+  public ByteTokenizer(InputStream is) {
+    m_is = is;
+    if (is instanceof FileInputStream) {
+      m_channel = ((FileInputStream) is).getChannel();
+      m_block = null;
+      m_buffer = ByteBuffer.allocate(0);
+    } else {
+      m_channel = null;
+      m_block = new byte[BLOCK_SIZE];
+      m_buffer = ByteBuffer.wrap(m_block);
+      m_buffer.limit(0);
+    }
+  }
+
+  public ByteTokenizer(ByteBuffer buffer) {
+    m_is = null;
+    m_channel = null;
+    m_block = null;
+    m_buffer = buffer;
+  }
+
+  private boolean fill() throws IOException {
+    if (m_channel != null) {
+      if (m_mapPosition < 0) {
+        m_mapPosition = m_channel.position();
+      }
+      long remaining = m_channel.size() - m_mapPosition;
+      if (remaining <= 0) {
+        return false;
+      }
+      m_buffer = m_channel.map(FileChannel.MapMode.READ_ONLY, m_mapPosition, Math.min(remaining, MAP_WINDOW));
+      m_base = m_mapPosition;
+      m_mapPosition += m_buffer.limit();
+      return true;
+    }
+    if (m_block == null) {
+      return false;
+    }
+    m_base += m_buffer.limit();
+    int read;
+    do {
+      read = m_is.read(m_block);
+    } while (read == 0);
+    m_buffer.clear();
+    m_buffer.limit(Math.max(read, 0));
+    return read > 0;
+  }
+
+  private int peek() throws IOException {
+    if (!m_buffer.hasRemaining() && !fill()) {
+      return EOF;
+    }
+    return m_buffer.get(m_buffer.position()) & 0xFF;
+  }
+
+  /** Consumes the byte returned by the last successful {@link #peek()}. */
+  private void skip() {
+    byte b = m_buffer.get();
+    if (m_recording) {
+      record(b);
+    }
+  }
+
+  private void record(byte b) {
+    if (m_recordedLength == 0 && (b & 0xFF) <= ' ') {
+      return;
+    }
+    if (m_recordedLength == m_recorded.length) {
+      m_recorded = Arrays.copyOf(m_recorded, m_recordedLength * 2);
+    }
+    m_recorded[m_recordedLength++] = b;
+  }
+
+  /**
+   * Starts keeping a copy of every byte consumed from here on, except leading whitespace, until
+   * {@link #stopRecording()}.
+   */
+  public void startRecording() {
+    m_recording = true;
+    m_recordedLength = 0;
+  }
+
+  public void stopRecording() {
+    m_recording = false;
+  }
+
+  /** The bytes consumed while recording; only the first {@link #getRecordedLength()} are valid. */
+  public byte[] getRecorded() {
+    return m_recorded;
+  }
+
+  public int getRecordedLength() {
+    return m_recordedLength;
+  }
+
+  private int skipWhitespace() throws IOException {
+    int c = peek();
+    while (c != EOF && c <= ' ') {
+      skip();
+      c = peek();
+    }
+    return c;
+  }
+
+  private static boolean isDigit(int c) {
+    return c >= '0' && c <= '9';
+  }
+
+  private static boolean isWordStart(int c) {
+    return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || c >= 128;
+  }
+
+  private static boolean isWordPart(int c) {
+    return isWordStart(c) || isDigit(c) || c == '.' || c == '-';
+  }
+
+  private static String describe(int c) {
+    return c == EOF ? "EOF" : Character.toString((char) c);
+  }
+
+  /**
+   * Accumulates negatively so that {@link Long#MIN_VALUE} parses exactly, checking for overflow as
+   * {@link Long#parseLong(String)} does. The whole token is consumed even when it is out of range.
+   */
+  private long parseDigits(boolean negative) throws IOException {
+    long limit = negative ? Long.MIN_VALUE : -Long.MAX_VALUE;
+    long multiplyLimit = limit / 10;
+    long value = 0;
+    boolean overflow = false;
+    int c = peek();
+    while (isDigit(c)) {
+      skip();
+      int digit = c - '0';
+      if (value < multiplyLimit || value * 10 < limit + digit) {
+        overflow = true;
+      } else {
+        value = value * 10 - digit;
+      }
+      c = peek();
+    }
+    if (overflow) {
+      throw new NumberFormatException("Number out of range for a long");
+    }
+    return negative ? value : -value;
+  }
+
+  /**
+   * Offset of the next unread byte: in the file for mapped files, from the start of the stream or
+   * buffer otherwise.
+   */
+  public long getPosition() throws IOException {
+    if (m_channel != null && m_mapPosition < 0) {
+      return m_channel.position();
+    }
+    return m_base + m_buffer.position();
+  }
+
+  /** The channel of a mapped file, {@code null} when reading any other input. */
+  FileChannel getChannel() {
+    return m_channel;
+  }
+
+  /** Skips the next whitespace separated token without parsing it. */
+  public void skipToken() throws IOException {
+    int c = skipWhitespace();
+    if (c == EOF) {
+      throw new RuntimeException("Not a token EOF");
+    }
+    while (c != EOF && c > ' ') {
+      skip();
+      c = peek();
+    }
+  }
+
+  public void skipTokens(long count) throws IOException {
+    for (long i = 0; i < count; i++) {
+      skipToken();
+    }
+  }
+
+  public long parseLong() throws IOException {
+    int c = skipWhitespace();
+    boolean negative = c == '-';
+    if (negative) {
+      skip();
+      c = peek();
+    }
+    if (!isDigit(c)) {
+      throw new RuntimeException("Not a number " + describe(c));
+    }
+    return parseDigits(negative);
+  }
+
+  public int parseInt() throws IOException {
+    long value = parseLong();
+    if (value < Integer.MIN_VALUE || value > Integer.MAX_VALUE) {
+      throw new NumberFormatException("Number out of range for an int: " + value);
+    }
+    return (int) value;
+  }
+
+  public char parseChar() throws IOException {
+    int c = skipWhitespace();
+    if (c != EOF) {
+      skip();
+    }
+    return (char) c;
+  }
+
+  public CharOrNumber parseCharOrNumber() throws IOException {
+    int c = skipWhitespace();
+    if (isDigit(c)) {
+      return new CharOrNumber(null, parseDigits(false));
+    }
+    if (c == EOF) {
+      return new CharOrNumber((char) c, null);
+    }
+    skip();
+    if (c == '-' && isDigit(peek())) {
+      return new CharOrNumber(null, parseDigits(true));
+    }
+    return new CharOrNumber((char) c, null);
+  }
+
+  public String parseString() throws IOException {
+    int c = skipWhitespace();
+    if (!isWordStart(c)) {
+      throw new RuntimeException("Not a word " + describe(c));
+    }
+    int length = 0;
+    while (isWordPart(c)) {
+      skip();
+      if (length == m_word.length) {
+        m_word = Arrays.copyOf(m_word, length * 2);
+      }
+      m_word[length++] = (byte) c;
+      c = peek();
+    }
+    return new String(m_word, 0, length, StandardCharsets.ISO_8859_1);
+  }
+
+  @Override
+  public void close() throws IOException {
+    if (m_is != null) {
+      m_is.close();
+    }
+  }
+}
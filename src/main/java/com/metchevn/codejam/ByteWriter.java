@@ -0,0 +1,194 @@
+package com.metchevn.codejam;
+
+import java.io.Closeable;
+import java.io.FileOutputStream;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * Writes ASCII text, numbers and arrays of numbers straight into a reused direct {@link ByteBuffer}
+ * that is flushed to a channel, with no intermediate Strings and no character encoding.
+ * <p>
+ * Files are written through their {@link java.nio.channels.FileChannel}, any other stream (such as
+ * stdout) through {@link Channels#newChannel(OutputStream)}.
+ */
+public class ByteWriter implements Closeable, Flushable {
+  static final int BUFFER_SIZE = 1 << 16;
+  private static final long[] POWERS_OF_TEN = new long[19];
+  /** Below 2^52 a double's fractional part is exact. */
+  private static final double EXACT_LIMIT = 1L << 52;
+
+  static {
+    POWERS_OF_TEN[0] = 1;
+    for (int i = 1; i < POWERS_OF_TEN.length; i++) {
+      POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10;
+    }
+  }
+
+  private final OutputStream m_os;
+  private final WritableByteChannel m_channel;
+  private final byte[] m_digits = new byte[20];
+  private final ByteBuffer m_buffer;
+
+  public ByteWriter(OutputStream os) {
+    this(os, BUFFER_SIZE);
+  }
+
+  ByteWriter(OutputStream os, int bufferSize) {
+    m_os = os;
+    m_channel = os instanceof FileOutputStream ? ((FileOutputStream) os).getChannel() : Channels.newChannel(os);
+    m_buffer = ByteBuffer.allocateDirect(Math.max(bufferSize, m_digits.length));
+  }
+
+  private void ensure(int bytes) throws IOException {
+    if (m_buffer.remaining() < bytes) {
+      drain();
+    }
+  }
+
+  private void drain() throws IOException {
+    m_buffer.flip();
+    while (m_buffer.hasRemaining()) {
+      m_channel.write(m_buffer);
+    }
+    m_buffer.clear();
+  }
+
+  /** Writes the characters of {@code ascii} one byte each; characters above 0xFF are truncated. */
+  public ByteWriter write(CharSequence ascii) throws IOException {
+    for (int i = 0; i < ascii.length(); i++) {
+      write(ascii.charAt(i));
+    }
+    return this;
+  }
+
+  public ByteWriter write(byte[] bytes) throws IOException {
+    for (int offset = 0; offset < bytes.length; ) {
+      ensure(1);
+      int length = Math.min(bytes.length - offset, m_buffer.remaining());
+      m_buffer.put(bytes, offset, length);
+      offset += length;
+    }
+    return this;
+  }
+
+  public ByteWriter write(char c) throws IOException {
+    ensure(1);
+    m_buffer.put((byte) c);
+    return this;
+  }
+
+  public ByteWriter write(int value) throws IOException {
+    return write((long) value);
+  }
+
+  /** Collects the digits negatively, from the end, so that {@link Long#MIN_VALUE} needs no special case. */
+  public ByteWriter write(long value) throws IOException {
+    long negative = value < 0 ? value : -value;
+    int start = m_digits.length;
+    do {
+      m_digits[--start] = (byte) ('0' - negative % 10);
+      negative /= 10;
+    } while (negative != 0);
+    if (value < 0) {
+      m_digits[--start] = '-';
+    }
+    ensure(m_digits.length - start);
+    m_buffer.put(m_digits, start, m_digits.length - start);
+    return this;
+  }
+
+  /**
+   * Writes the same text as {@link Double#toString(double)}. Whole numbers below 10^7 are written
+   * directly, anything else still goes through {@link Double#toString(double)}.
+   */
+  public ByteWriter write(double value) throws IOException {
+    long whole = (long) value;
+    if (whole == value && Math.abs(value) < 1e7 && (value != 0 || 1 / value > 0)) {
+      return write(whole).write('.').write('0');
+    }
+    return write(Double.toString(value));
+  }
+
+  /**
+   * Writes the same text as {@code String.format("%.<decimals>f", value)}: the digits of
+   * {@link Double#toString(double)} rounded half up to exactly {@code decimals} fractional digits,
+   * with a {@code '-'} for any negative value, even one that rounds to zero.
+   * <p>
+   * Scaling by a power of ten and rounding the product only agrees with that when the product is
+   * clear of a half-way point by more than its rounding errors, a few ulps; closer values and large
+   * ones go through {@link BigDecimal}.
+   */
+  public ByteWriter write(double value, int decimals) throws IOException {
+    if (decimals < 0 || decimals >= POWERS_OF_TEN.length) {
+      throw new IllegalArgumentException("Unsupported number of decimals " + decimals);
+    }
+    if (Double.isNaN(value) || Double.isInfinite(value)) {
+      return write(String.format("%." + decimals + "f", value));
+    }
+    if (Double.doubleToRawLongBits(value) < 0) {
+      write('-');
+    }
+    double scaled = Math.abs(value) * POWERS_OF_TEN[decimals];
+    if (scaled >= EXACT_LIMIT || Math.abs(scaled - Math.floor(scaled) - 0.5) <= 4 * Math.ulp(scaled)) {
+      return write(BigDecimal.valueOf(Math.abs(value)).setScale(decimals, RoundingMode.HALF_UP).toPlainString());
+    }
+    long rounded = Math.round(scaled);
+    write(rounded / POWERS_OF_TEN[decimals]);
+    if (decimals > 0) {
+      write('.');
+      long fraction = rounded % POWERS_OF_TEN[decimals];
+      for (int i = decimals - 1; i >= 0; i--) {
+        write((char) ('0' + fraction / POWERS_OF_TEN[i] % 10));
+      }
+    }
+    return this;
+  }
+
+  /** Writes the values separated by single spaces. */
+  public ByteWriter write(int[] values) throws IOException {
+    for (int i = 0; i < values.length; i++) {
+      if (i > 0) {
+        write(' ');
+      }
+      write(values[i]);
+    }
+    return this;
+  }
+
+  /** Writes the values separated by single spaces. */
+  public ByteWriter write(long[] values) throws IOException {
+    for (int i = 0; i < values.length; i++) {
+      if (i > 0) {
+        write(' ');
+      }
+      write(values[i]);
+    }
+    return this;
+  }
+
+  public ByteWriter newLine() throws IOException {
+    return write('\n');
+  }
+
+  @Override
+  public void flush() throws IOException {
+    drain();
+    m_os.flush();
+  }
+
+  @Override
+  public void close() throws IOException {
+    try {
+      drain();
+    } finally {
+      m_channel.close();
+    }
+  }
+}
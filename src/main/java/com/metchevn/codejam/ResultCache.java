@@ -0,0 +1,276 @@
+package com.metchevn.codejam;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.JarURLConnection;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.stream.Stream;
+
+/**
+ * On-disk cache of answers, keyed by solver class, solver version and a SHA-256 of the raw bytes a
+ * case was parsed from. Each answer is one file under {@code <directory>/<2 hex>/<64 hex>}.
+ * <p>
+ * The total size of the answers is bounded: when it goes over {@code maxBytes} the least recently
+ * used answers are deleted. Recency survives restarts through the files' modification times.
+ * <p>
+ * {@link Solver} picks the cache up from the {@code codejam.cache} system property (the directory),
+ * with {@code codejam.cache.maxBytes} as the bound; {@code -Dcodejam.cache.bypass=true} turns it off,
+ * for example while benchmarking.
+ */
+public class ResultCache {
+  public static final String DIRECTORY_PROPERTY = "codejam.cache";
+  public static final String MAX_BYTES_PROPERTY = "codejam.cache.maxBytes";
+  public static final String BYPASS_PROPERTY = "codejam.cache.bypass";
+  private static final long DEFAULT_MAX_BYTES = 256L << 20;
+  private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+  private final Path m_directory;
+  private final long m_maxBytes;
+  /** Key to answer size, in access order. */
+  private final LinkedHashMap<String, Long> m_entries = new LinkedHashMap<>(16, 0.75f, true);
+  private long m_bytes;
+  private long m_hits;
+  private long m_misses;
+
+  public ResultCache(Path directory, long maxBytes) throws IOException {
+    m_directory = directory;
+    m_maxBytes = maxBytes;
+    Files.createDirectories(directory);
+    try (Stream<Path> files = Files.walk(directory, 2)) {
+      files.filter(file -> file.getFileName().toString().length() == 64 && Files.isRegularFile(file))
+          .sorted((a, b) -> lastModified(a).compareTo(lastModified(b)))
+          .forEach(file -> {
+            long size = size(file);
+            m_entries.put(file.getFileName().toString(), size);
+            m_bytes += size;
+          });
+    } catch (UncheckedIOException e) {
+      throw e.getCause();
+    }
+    evict();
+  }
+
+  /** The cache configured through system properties, or {@code null} if there is none or it is bypassed. */
+  public static ResultCache fromSystemProperties() {
+    String directory = System.getProperty(DIRECTORY_PROPERTY);
+    if (directory == null || Boolean.getBoolean(BYPASS_PROPERTY)) {
+      return null;
+    }
+    try {
+      return new ResultCache(Paths.get(directory), Long.getLong(MAX_BYTES_PROPERTY, DEFAULT_MAX_BYTES));
+    } catch (IOException e) {
+      throw new UncheckedIOException("Cannot open result cache " + directory, e);
+    }
+  }
+
+  private static FileTime lastModified(Path file) {
+    try {
+      return Files.getLastModifiedTime(file);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  private static long size(Path file) {
+    try {
+      return Files.size(file);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  static MessageDigest sha256() {
+    try {
+      return MessageDigest.getInstance("SHA-256");
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException("SHA-256 is required on every JVM", e);
+    }
+  }
+
+  static String hex(byte[] bytes) {
+    char[] hex = new char[bytes.length * 2];
+    for (int i = 0; i < bytes.length; i++) {
+      hex[2 * i] = HEX[(bytes[i] >> 4) & 0xF];
+      hex[2 * i + 1] = HEX[bytes[i] & 0xF];
+    }
+    return new String(hex);
+  }
+
+  /** The key of a case of the given solver, from the raw bytes it was parsed from. */
+  public static String key(String solver, String version, byte[] input, int length) {
+    MessageDigest digest = sha256();
+    digest.update(solver.getBytes(StandardCharsets.UTF_8));
+    digest.update((byte) 0);
+    digest.update(version.getBytes(StandardCharsets.UTF_8));
+    digest.update((byte) 0);
+    digest.update(input, 0, length);
+    return hex(digest.digest());
+  }
+
+  /**
+   * A SHA-256 of the class files of the solver's top level class and of every class nested in it,
+   * named or anonymous, so that recompiling any part of a solver invalidates its answers.
+   */
+  public static String classVersion(Class<?> solverClass) {
+    Class<?> top = solverClass;
+    while (top.getEnclosingClass() != null) {
+      top = top.getEnclosingClass();
+    }
+    try {
+      List<String> classFiles = classFiles(top);
+      if (classFiles.isEmpty()) {
+        return "unknown";
+      }
+      MessageDigest digest = sha256();
+      byte[] buffer = new byte[8192];
+      for (String classFile : classFiles) {
+        try (InputStream is = top.getResourceAsStream(classFile)) {
+          if (is == null) {
+            return "unknown";
+          }
+          digest.update(classFile.getBytes(StandardCharsets.UTF_8));
+          digest.update((byte) 0);
+          for (int read = is.read(buffer); read >= 0; read = is.read(buffer)) {
+            digest.update(buffer, 0, read);
+          }
+        }
+      }
+      return hex(digest.digest());
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  /**
+   * The names of the class files of a top level class and its nested classes, sorted, found next to
+   * its own class file in a directory or a jar. Only its own class file if it was loaded from
+   * anywhere else, and none if that cannot be found either.
+   */
+  static List<String> classFiles(Class<?> top) throws IOException {
+    String name = top.getName().substring(top.getName().lastIndexOf('.') + 1);
+    String classFile = name + ".class";
+    URL url = top.getResource(classFile);
+    if (url == null) {
+      return Collections.emptyList();
+    }
+    List<String> classFiles = new ArrayList<>();
+    if (url.getProtocol().equals("file")) {
+      Path directory;
+      try {
+        directory = Paths.get(url.toURI()).getParent();
+      } catch (URISyntaxException e) {
+        throw new IOException("Cannot locate " + url, e);
+      }
+      try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+        for (Path file : files) {
+          addIfNested(classFiles, name, file.getFileName().toString());
+        }
+      }
+    } else if (url.getProtocol().equals("jar")) {
+      JarURLConnection connection = (JarURLConnection) url.openConnection();
+      connection.setUseCaches(false);
+      String entry = connection.getEntryName();
+      String directory = entry.substring(0, entry.length() - classFile.length());
+      try (JarFile jar = connection.getJarFile()) {
+        for (Enumeration<JarEntry> entries = jar.entries(); entries.hasMoreElements(); ) {
+          String entryName = entries.nextElement().getName();
+          if (entryName.startsWith(directory) && entryName.indexOf('/', directory.length()) < 0) {
+            addIfNested(classFiles, name, entryName.substring(directory.length()));
+          }
+        }
+      }
+    } else {
+      classFiles.add(classFile);
+    }
+    Collections.sort(classFiles);
+    return classFiles;
+  }
+
+  private static void addIfNested(List<String> classFiles, String name, String file) {
+    if (file.endsWith(".class") && (file.equals(name + ".class") || file.startsWith(name + "$"))) {
+      classFiles.add(file);
+    }
+  }
+
+  private Path file(String key) {
+    return m_directory.resolve(key.substring(0, 2)).resolve(key);
+  }
+
+  /** The stored answer, or {@code null} on a miss. */
+  public synchronized byte[] get(String key) throws IOException {
+    if (m_entries.get(key) == null) {
+      m_misses++;
+      return null;
+    }
+    Path file = file(key);
+    try {
+      byte[] answer = Files.readAllBytes(file);
+      Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis()));
+      m_hits++;
+      return answer;
+    } catch (NoSuchFileException e) {
+      // deleted behind our back, by another run evicting it
+      m_bytes -= m_entries.remove(key);
+      m_misses++;
+      return null;
+    }
+  }
+
+  public synchronized void put(String key, byte[] answer) throws IOException {
+    Path file = file(key);
+    Files.createDirectories(file.getParent());
+    Path temp = Files.createTempFile(file.getParent(), key, ".tmp");
+    Files.write(temp, answer);
+    Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    Long previous = m_entries.put(key, (long) answer.length);
+    m_bytes += answer.length - (previous == null ? 0 : previous);
+    evict();
+  }
+
+  private void evict() throws IOException {
+    Iterator<Map.Entry<String, Long>> eldest = m_entries.entrySet().iterator();
+    while (m_bytes > m_maxBytes && eldest.hasNext()) {
+      Map.Entry<String, Long> entry = eldest.next();
+      Files.deleteIfExists(file(entry.getKey()));
+      m_bytes -= entry.getValue();
+      eldest.remove();
+    }
+  }
+
+  public synchronized int size() {
+    return m_entries.size();
+  }
+
+  public synchronized long getBytes() {
+    return m_bytes;
+  }
+
+  public synchronized long getHits() {
+    return m_hits;
+  }
+
+  public synchronized long getMisses() {
+    return m_misses;
+  }
+}
@@ -0,0 +1,179 @@
+package com.metchevn.codejam;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Per case parse, solve and write latencies of one {@link Solver#solve()} run, plus the bytes each
+ * case allocated when the JVM can measure allocation per thread.
+ * <p>
+ * Each phase of a case is recorded by the thread that ran it. The arrays are only read once the run
+ * has finished, after the threads that wrote them have been joined.
+ */
+public class RunReport {
+  private static final int SLOWEST_CASES = 5;
+  private static final com.sun.management.ThreadMXBean ALLOCATION = allocationBean();
+
+  private final long[] m_parseNanos;
+  private final long[] m_solveNanos;
+  private final long[] m_writeNanos;
+  private final long[] m_allocatedBytes;
+  private final long m_start;
+  private long m_wallNanos = -1;
+
+  RunReport(int cases, long startNanos) {
+    m_start = startNanos;
+    m_parseNanos = new long[cases];
+    m_solveNanos = new long[cases];
+    m_writeNanos = new long[cases];
+    m_allocatedBytes = new long[cases];
+  }
+
+  private static com.sun.management.ThreadMXBean allocationBean() {
+    try {
+      ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+      if (threads instanceof com.sun.management.ThreadMXBean) {
+        com.sun.management.ThreadMXBean bean = (com.sun.management.ThreadMXBean) threads;
+        if (bean.isThreadAllocatedMemorySupported() && bean.isThreadAllocatedMemoryEnabled()) {
+          return bean;
+        }
+      }
+    } catch (LinkageError | UnsupportedOperationException e) {
+      // not a HotSpot style JVM, allocation is simply not reported
+    }
+    return null;
+  }
+
+  /** Bytes allocated so far by the current thread, or -1 if the JVM cannot tell. */
+  static long allocatedBytes() {
+    return ALLOCATION == null ? -1 : ALLOCATION.getThreadAllocatedBytes(Thread.currentThread().getId());
+  }
+
+  public static boolean isAllocationSupported() {
+    return ALLOCATION != null;
+  }
+
+  void parsed(long caseNumber, long startNanos, long startBytes) {
+    record(m_parseNanos, caseNumber, startNanos, startBytes);
+  }
+
+  void solved(long caseNumber, long startNanos, long startBytes) {
+    record(m_solveNanos, caseNumber, startNanos, startBytes);
+  }
+
+  void written(long caseNumber, long startNanos, long startBytes) {
+    record(m_writeNanos, caseNumber, startNanos, startBytes);
+  }
+
+  private void record(long[] nanos, long caseNumber, long startNanos, long startBytes) {
+    int i = (int) (caseNumber - 1);
+    nanos[i] = System.nanoTime() - startNanos;
+    if (startBytes >= 0) {
+      m_allocatedBytes[i] += allocatedBytes() - startBytes;
+    }
+  }
+
+  void finish() {
+    m_wallNanos = System.nanoTime() - m_start;
+  }
+
+  public int getCases() {
+    return m_parseNanos.length;
+  }
+
+  public long getParseNanos(long caseNumber) {
+    return m_parseNanos[(int) (caseNumber - 1)];
+  }
+
+  public long getSolveNanos(long caseNumber) {
+    return m_solveNanos[(int) (caseNumber - 1)];
+  }
+
+  public long getWriteNanos(long caseNumber) {
+    return m_writeNanos[(int) (caseNumber - 1)];
+  }
+
+  /** Bytes allocated while parsing, solving and writing the case, or -1 if not supported. */
+  public long getAllocatedBytes(long caseNumber) {
+    return isAllocationSupported() ? m_allocatedBytes[(int) (caseNumber - 1)] : -1;
+  }
+
+  public long getTotalNanos(long caseNumber) {
+    return getParseNanos(caseNumber) + getSolveNanos(caseNumber) + getWriteNanos(caseNumber);
+  }
+
+  /** Wall clock time of the whole run, including reading the number of cases. */
+  public long getWallNanos() {
+    return m_wallNanos;
+  }
+
+  /** Nearest-rank percentile of the given per case latencies, in nanoseconds. */
+  static long percentile(long[] nanos, double percentile) {
+    if (nanos.length == 0) {
+      return 0;
+    }
+    long[] sorted = nanos.clone();
+    Arrays.sort(sorted);
+    int rank = (int) Math.ceil(percentile / 100 * sorted.length);
+    return sorted[Math.max(rank, 1) - 1];
+  }
+
+  /** Case numbers of the slowest cases by total latency, slowest first. */
+  public long[] getSlowestCases(int count) {
+    int cases = getCases();
+    long[] slowest = new long[Math.min(count, cases)];
+    boolean[] taken = new boolean[cases];
+    for (int k = 0; k < slowest.length; k++) {
+      int worst = -1;
+      for (int i = 0; i < cases; i++) {
+        if (!taken[i] && (worst < 0 || getTotalNanos(i + 1) > getTotalNanos(worst + 1))) {
+          worst = i;
+        }
+      }
+      taken[worst] = true;
+      slowest[k] = worst + 1;
+    }
+    return slowest;
+  }
+
+  private static String millis(long nanos) {
+    return String.format(Locale.ROOT, "%10.3f ms", nanos / 1e6);
+  }
+
+  private static String bytes(long bytes) {
+    return bytes < 0 ? "n/a" : String.format(Locale.ROOT, "%.1f KB", bytes / 1024d);
+  }
+
+  @Override
+  public String toString() {
+    int cases = getCases();
+    StringBuilder report = new StringBuilder();
+    double seconds = m_wallNanos / 1e9;
+    report.append(String.format(Locale.ROOT, "Solved %d cases in %.3f ms (%.1f cases/s)%n",
+        cases, m_wallNanos / 1e6, seconds > 0 ? cases / seconds : 0d));
+    if (cases == 0) {
+      return report.toString();
+    }
+    report.append(String.format(Locale.ROOT, "%-6s%13s%13s%13s%n", "", "parse", "solve", "write"));
+    appendRow(report, "p50", 50);
+    appendRow(report, "p95", 95);
+    appendRow(report, "max", 100);
+    report.append("Slowest cases:").append(System.lineSeparator());
+    for (long caseNumber : getSlowestCases(SLOWEST_CASES)) {
+      report.append(String.format(Locale.ROOT, "  Case #%d: total %s, parse %s, solve %s, write %s, allocated %s%n",
+          caseNumber, millis(getTotalNanos(caseNumber)).trim(), millis(getParseNanos(caseNumber)).trim(),
+          millis(getSolveNanos(caseNumber)).trim(), millis(getWriteNanos(caseNumber)).trim(),
+          bytes(getAllocatedBytes(caseNumber))));
+    }
+    return report.toString();
+  }
+
+  private void appendRow(StringBuilder report, String label, double percentile) {
+    report.append(String.format(Locale.ROOT, "%-6s%s%s%s%n", label,
+        millis(percentile(m_parseNanos, percentile)),
+        millis(percentile(m_solveNanos, percentile)),
+        millis(percentile(m_writeNanos, percentile))));
+  }
+}
@@ -1,21 +1,37 @@
 package com.metchevn.codejam;
 
-import java.io.BufferedReader;
-import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
 import java.io.OutputStream;
-import java.io.OutputStreamWriter;
-import java.io.Reader;
-import java.io.StreamTokenizer;
-import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 public abstract class Solver implements AutoCloseable {
-  private final Reader m_reader;
-  private final StreamTokenizer m_st;
-  private final Writer m_writer;
+  private static final int PENDING_CASES_PER_THREAD = 4;
+  private static final int SLICES_PER_THREAD = 4;
+
+  private final ByteTokenizer m_tokenizer;
+  private final ByteWriter m_writer;
+  private ByteWriter m_logWriter;
   protected final boolean m_log;
+  private volatile RunReport m_report;
+  private ResultCache m_cache;
+  private String m_version;
+  /** Per thread tokenizers over slices of the input while {@link #solveIndexed(int)} runs. */
+  private ThreadLocal<ByteTokenizer> m_slices;
+  /** The recorded bytes of a case being parsed again after a cache miss, outside of indexing. */
+  private ByteTokenizer m_replay;
 
   public Solver(InputStream is, OutputStream os) {
     this(is, os, false);
@@ -23,69 +39,365 @@ public abstract class Solver implements AutoCloseable {
 
   public Solver(InputStream is, OutputStream os, boolean log) {
     m_log = log;
-    m_reader = new BufferedReader(new InputStreamReader(is));
-    m_writer = new BufferedWriter(new OutputStreamWriter(os));
-    m_st = new StreamTokenizer(m_reader);
-    m_st.eolIsSignificant(false);
-    m_st.parseNumbers();
+    m_tokenizer = new ByteTokenizer(is);
+    m_writer = new ByteWriter(os);
+    m_cache = ResultCache.fromSystemProperties();
+  }
+
+  /** Replaces the cache picked up from the system properties; {@code null} turns caching off. */
+  public void setResultCache(ResultCache cache) {
+    m_cache = cache;
+  }
+
+  /**
+   * The class whose code computes the answers, which names the solver in {@link ResultCache} keys.
+   * Defaults to the solver's own class; a solver that delegates to a function object returns the
+   * function's class, so that solvers sharing one adapter class are told apart.
+   */
+  protected Class<?> getSolverClass() {
+    return getClass();
+  }
+
+  /**
+   * Part of the {@link ResultCache} key, so that answers of an older solver are not reused. Defaults
+   * to a hash of the class files of {@link #getSolverClass()} and every class nested with it;
+   * override if the answers also depend on other classes.
+   */
+  protected String getVersion() {
+    if (m_version == null) {
+      m_version = ResultCache.classVersion(getSolverClass());
+    }
+    return m_version;
+  }
+
+  /**
+   * A test case that has been fully read from the input, so that its answer can be computed on any
+   * thread without touching the tokenizer.
+   */
+  public interface Case {
+    Answer solve() throws Exception;
+  }
+
+  /**
+   * A computed answer that writes itself into the output, so that numbers go straight into the
+   * output buffer without being formatted into a String first. It may be written more than once.
+   */
+  public interface Answer {
+    void write(ByteWriter out) throws IOException;
+  }
+
+  public static Answer answer(String ans) {
+    return out -> out.write(ans);
+  }
+
+  /**
+   * Describes how a case is laid out in the input, so that it can be skipped without being parsed,
+   * for instance "N, then 2N numbers". Only the counts need parsing, everything else can be skipped
+   * with {@link ByteTokenizer#skipTokens(long)}.
+   */
+  public interface CaseShape {
+    void skip(ByteTokenizer tokens) throws IOException;
+  }
+
+  /** The layout of a case, or {@code null} if this solver cannot be indexed. */
+  protected CaseShape getCaseShape() {
+    return null;
   }
 
   public void solve() throws Exception {
+    long start = System.nanoTime();
     long cases = parseInt();
+    RunReport report = new RunReport((int) cases, start);
     for (long i = 1; i <= cases; i++) {
-      String ans = solve(i);
-      String str = "Case #" + i + ": " + ans + "\n";
-      m_writer.write(str);
-      if (m_log) {
-        System.out.print(str);
+      write(report, i, solve(report, i, parseCase(report, i)));
+    }
+    m_writer.flush();
+    report.finish();
+    m_report = report;
+  }
+
+  /**
+   * Solves with {@link #solveIndexed(int)} if this solver has a {@link CaseShape} and reads a mapped
+   * file, otherwise through the pipeline with {@link #PENDING_CASES_PER_THREAD} cases per solver
+   * thread allowed in flight.
+   */
+  public void solve(int parallelism) throws Exception {
+    if (parallelism > 1 && getCaseShape() != null && m_tokenizer.getChannel() != null) {
+      solveIndexed(parallelism);
+    } else {
+      solve(parallelism, parallelism * PENDING_CASES_PER_THREAD);
+    }
+  }
+
+  /**
+   * Records the byte offset of every case in a quick pass that only parses the counts described by
+   * {@link #getCaseShape()}, then parses and solves contiguous slices of cases on a
+   * {@link ForkJoinPool}, each slice mapped separately and read by its own tokenizer. The answers
+   * are written in case order as the slices complete.
+   */
+  public void solveIndexed(int parallelism) throws Exception {
+    CaseShape shape = getCaseShape();
+    FileChannel channel = m_tokenizer.getChannel();
+    if (shape == null || channel == null) {
+      throw new IllegalStateException("Indexing needs a case shape and a file input");
+    }
+    long start = System.nanoTime();
+    int cases = parseInt();
+    RunReport report = new RunReport(cases, start);
+    long[] offsets = new long[cases + 1];
+    for (int i = 0; i < cases; i++) {
+      offsets[i] = m_tokenizer.getPosition();
+      shape.skip(m_tokenizer);
+    }
+    offsets[cases] = m_tokenizer.getPosition();
+    int slices = Math.min(cases, Math.max(parallelism, 1) * SLICES_PER_THREAD);
+    ForkJoinPool pool = new ForkJoinPool(Math.max(parallelism, 1));
+    m_slices = new ThreadLocal<>();
+    try {
+      List<Future<Answer[]>> answers = new ArrayList<>();
+      for (int k = 0; k < slices; k++) {
+        int first = (int) ((long) cases * k / slices);
+        int last = (int) ((long) cases * (k + 1) / slices);
+        answers.add(pool.submit(() -> solveSlice(report, channel, offsets, first, last)));
+      }
+      long caseNumber = 1;
+      for (Future<Answer[]> slice : answers) {
+        for (Answer answer : get(slice)) {
+          write(report, caseNumber++, answer);
+        }
+      }
+      m_writer.flush();
+      report.finish();
+      m_report = report;
+    } finally {
+      pool.shutdownNow();
+      m_slices = null;
+    }
+  }
+
+  private Answer[] solveSlice(RunReport report, FileChannel channel, long[] offsets, int first, int last) throws Exception {
+    m_slices.set(new ByteTokenizer(channel.map(FileChannel.MapMode.READ_ONLY, offsets[first], offsets[last] - offsets[first])));
+    try {
+      Answer[] answers = new Answer[last - first];
+      for (int i = first; i < last; i++) {
+        long caseNumber = i + 1;
+        answers[i - first] = solve(report, caseNumber, parseCase(report, caseNumber));
       }
+      return answers;
+    } finally {
+      m_slices.remove();
     }
   }
 
-  protected abstract String solve(long caseNumber) throws Exception;
+  private ByteTokenizer tokenizer() {
+    ThreadLocal<ByteTokenizer> slices = m_slices;
+    if (slices != null) {
+      return slices.get();
+    }
+    ByteTokenizer replay = m_replay;
+    return replay == null ? m_tokenizer : replay;
+  }
 
-  public int parseInt() throws IOException {
-    int token = m_st.nextToken();
-    if (token != StreamTokenizer.TT_NUMBER) {
-      throw new RuntimeException("Not a number " + m_st.sval);
+  /**
+   * Runs a three stage pipeline: the calling thread reads cases, a {@link ForkJoinPool} of the given
+   * parallelism solves them and a writer thread drains the answers in case order. At most
+   * {@code maxPendingCases} cases are read but not yet written, so memory stays flat however large
+   * the input is and reading blocks while the solvers or the writer catch up.
+   */
+  public void solve(int parallelism, int maxPendingCases) throws Exception {
+    if (parallelism <= 1) {
+      solve();
+      return;
+    }
+    long start = System.nanoTime();
+    long cases = parseInt();
+    RunReport report = new RunReport((int) cases, start);
+    BlockingQueue<Future<Answer>> pending = new ArrayBlockingQueue<>(Math.max(1, maxPendingCases));
+    ForkJoinPool pool = new ForkJoinPool(parallelism);
+    ExecutorService writer = Executors.newSingleThreadExecutor();
+    try {
+      Future<?> written = writer.submit(() -> {
+        for (long i = 1; i <= cases; i++) {
+          write(report, i, get(pending.take()));
+        }
+        return null;
+      });
+      for (long i = 1; i <= cases && !written.isDone(); i++) {
+        long caseNumber = i;
+        Case c = parseCase(report, caseNumber);
+        Future<Answer> answer = pool.submit(() -> solve(report, caseNumber, c));
+        while (!pending.offer(answer, 10, TimeUnit.MILLISECONDS) && !written.isDone()) {
+          // back-pressure: wait for the writer to drain, unless it has already failed
+        }
+      }
+      get(written);
+      m_writer.flush();
+      report.finish();
+      m_report = report;
+    } finally {
+      writer.shutdownNow();
+      pool.shutdownNow();
     }
-    return (int) m_st.nval;
+  }
+
+  private static <V> V get(Future<V> future) throws Exception {
+    try {
+      return future.get();
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof Exception) {
+        throw (Exception) e.getCause();
+      }
+      throw e;
+    }
+  }
+
+  /**
+   * Reads the next case, through the cache if there is one. With a {@link CaseShape} the case is
+   * only skipped before the cache is looked up, so that a hit neither parses it nor, for a
+   * {@link StringSolver}, solves it; without one the case is parsed first.
+   */
+  private Case parseCase(RunReport report, long caseNumber) throws Exception {
+    long start = System.nanoTime();
+    long bytes = RunReport.allocatedBytes();
+    Case c;
+    if (m_cache == null) {
+      c = parseCase(caseNumber);
+    } else {
+      ByteTokenizer tokenizer = tokenizer();
+      CaseShape shape = getCaseShape();
+      Case parsed = null;
+      tokenizer.startRecording();
+      try {
+        if (shape != null) {
+          shape.skip(tokenizer);
+        } else {
+          parsed = parseCase(caseNumber);
+        }
+      } finally {
+        tokenizer.stopRecording();
+      }
+      byte[] recorded = tokenizer.getRecorded();
+      int length = tokenizer.getRecordedLength();
+      String key = ResultCache.key(getSolverClass().getName(), getVersion(), recorded, length);
+      byte[] cached = m_cache.get(key);
+      if (cached != null) {
+        c = () -> out -> out.write(cached);
+      } else {
+        c = stored(parsed != null ? parsed : replay(caseNumber, recorded, length), key);
+      }
+    }
+    report.parsed(caseNumber, start, bytes);
+    return c;
+  }
+
+  /** Parses a case from the bytes recorded while its shape was skipped. */
+  private Case replay(long caseNumber, byte[] recorded, int length) throws Exception {
+    ByteTokenizer replay = new ByteTokenizer(ByteBuffer.wrap(recorded, 0, length));
+    ThreadLocal<ByteTokenizer> slices = m_slices;
+    if (slices != null) {
+      ByteTokenizer slice = slices.get();
+      slices.set(replay);
+      try {
+        return parseCase(caseNumber);
+      } finally {
+        slices.set(slice);
+      }
+    }
+    m_replay = replay;
+    try {
+      return parseCase(caseNumber);
+    } finally {
+      m_replay = null;
+    }
+  }
+
+  /** Solves and stores the answer in the cache. */
+  private Case stored(Case c, String key) {
+    ResultCache cache = m_cache;
+    return () -> {
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+      try (ByteWriter out = new ByteWriter(bytes, 256)) {
+        c.solve().write(out);
+      }
+      byte[] answer = bytes.toByteArray();
+      cache.put(key, answer);
+      return out -> out.write(answer);
+    };
+  }
+
+  private static Answer solve(RunReport report, long caseNumber, Case c) throws Exception {
+    long start = System.nanoTime();
+    long bytes = RunReport.allocatedBytes();
+    Answer ans = c.solve();
+    report.solved(caseNumber, start, bytes);
+    return ans;
+  }
+
+  private void write(RunReport report, long caseNumber, Answer ans) throws IOException {
+    long start = System.nanoTime();
+    long bytes = RunReport.allocatedBytes();
+    write(caseNumber, ans);
+    report.written(caseNumber, start, bytes);
+  }
+
+  /**
+   * Timings of the last completed {@link #solve()} run, or {@code null} before the first one. For
+   * a {@link StringSolver} the solve time is part of the parse time.
+   */
+  public RunReport getReport() {
+    return m_report;
+  }
+
+  private void write(long caseNumber, Answer ans) throws IOException {
+    write(m_writer, caseNumber, ans);
+    if (m_log) {
+      if (m_logWriter == null) {
+        m_logWriter = new ByteWriter(System.out, 1024);
+      }
+      write(m_logWriter, caseNumber, ans);
+      m_logWriter.flush();
+    }
+  }
+
+  private static void write(ByteWriter out, long caseNumber, Answer ans) throws IOException {
+    out.write("Case #").write(caseNumber).write(": ");
+    ans.write(out);
+    out.newLine();
+  }
+
+  /**
+   * Reads the next case from the input. All parsing belongs here and all computation in the
+   * returned {@link Case}, which lets {@link #solve(int)} compute cases in parallel. Solvers that
+   * read and solve a case in one go extend {@link StringSolver} instead.
+   */
+  protected abstract Case parseCase(long caseNumber) throws Exception;
+
+  public int parseInt() throws IOException {
+    return tokenizer().parseInt();
   }
 
   public char parseChar() throws IOException {
-    return (char) m_st.nextToken();
+    return tokenizer().parseChar();
   }
 
   public CharOrNumber parseCharOrNumber() throws IOException {
-    int token = m_st.nextToken();
-    if (token == StreamTokenizer.TT_NUMBER) {
-      return new CharOrNumber(null, (long) m_st.nval);
-    }
-    return new CharOrNumber((char)token , null);
+    return tokenizer().parseCharOrNumber();
   }
 
 
   public String parseString() throws IOException {
-    int token = m_st.nextToken();
-    if (token != StreamTokenizer.TT_WORD) {
-      throw new RuntimeException("Not a word " + (char)token);
-    }
-    return m_st.sval;
+    return tokenizer().parseString();
   }
 
 
   public long parseLong() throws IOException {
-    int token = m_st.nextToken();
-    if (token != StreamTokenizer.TT_NUMBER) {
-      throw new RuntimeException("Not a number " + m_st.sval);
-    }
-    return (long) m_st.nval;
+    return tokenizer().parseLong();
   }
 
   @Override
   public void close() throws IOException {
     m_writer.close();
-    m_reader.close();
+    m_tokenizer.close();
   }
 
   protected static StringBuilder toString(int[] solve) {
@@ -0,0 +1,28 @@
+package com.metchevn.codejam;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * A {@link Solver} that reads and solves each case in one go on the reading thread, answering with
+ * a String. Cases are still written in order, but they are not computed in parallel. Without a
+ * {@link CaseShape} a case is solved before the {@link ResultCache} is looked up.
+ */
+public abstract class StringSolver extends Solver {
+  public StringSolver(InputStream is, OutputStream os) {
+    super(is, os);
+  }
+
+  public StringSolver(InputStream is, OutputStream os, boolean log) {
+    super(is, os, log);
+  }
+
+  @Override
+  protected Case parseCase(long caseNumber) throws Exception {
+    Answer ans = answer(solve(caseNumber));
+    return () -> ans;
+  }
+
+  /** Reads and solves the next case on the calling thread. */
+  protected abstract String solve(long caseNumber) throws Exception;
+}
@@ -0,0 +1,219 @@
+package com.metchevn.codejam;
+
+import com.google.common.io.ByteStreams;
+import com.metchevn.codejam.cheaters.Cheaters;
+import com.metchevn.codejam.erdos_szekeres.Erdos_Szekeres;
+import com.metchevn.codejam.panckakeflipper.PancakeFlipperKt;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Runs every registered solver over every {@code .in} file in its input directory and checks the
+ * answers against {@code <name>.out.correct}, or {@code <name>.out} when there is no correct file.
+ * <p>
+ * Usage: {@code SuiteRunner [inputRoot] [problem...]}. Files are solved concurrently, one thread per
+ * processor, and anything the solvers log to stdout is discarded. Exits with status 1 if any input
+ * fails or has nothing to compare against.
+ */
+public class SuiteRunner {
+  public interface Factory {
+    Solver create(InputStream is, OutputStream os);
+  }
+
+  private static final Map<String, Factory> SOLVERS = new LinkedHashMap<>();
+
+  static {
+    register("cheaters", Cheaters::new);
+    register("erdos_szekeres", Erdos_Szekeres::new);
+    register("pancakeflipper", (is, os) -> SolverUtilKt.solver(is, os, PancakeFlipperKt.getPancakeFlipper(), PancakeFlipperKt.getPancakeShape()));
+  }
+
+  /** Registers the solver for the inputs in {@code <inputRoot>/<problem>}. */
+  public static void register(String problem, Factory factory) {
+    SOLVERS.put(problem, factory);
+  }
+
+  public enum Status {
+    PASS, FAIL, NO_EXPECTED, ERROR
+  }
+
+  public static class Result {
+    private final String m_problem;
+    private final File m_input;
+    private final File m_expected;
+    private final Status m_status;
+    private final String m_detail;
+    private final long m_nanos;
+
+    Result(String problem, File input, File expected, Status status, String detail, long nanos) {
+      m_problem = problem;
+      m_input = input;
+      m_expected = expected;
+      m_status = status;
+      m_detail = detail;
+      m_nanos = nanos;
+    }
+
+    public String getProblem() {
+      return m_problem;
+    }
+
+    public File getInput() {
+      return m_input;
+    }
+
+    public File getExpected() {
+      return m_expected;
+    }
+
+    public Status getStatus() {
+      return m_status;
+    }
+
+    public String getDetail() {
+      return m_detail;
+    }
+
+    public long getNanos() {
+      return m_nanos;
+    }
+  }
+
+  private final File m_inputRoot;
+
+  public SuiteRunner(File inputRoot) {
+    m_inputRoot = inputRoot;
+  }
+
+  static File expectedFor(File input) {
+    String base = input.getName().substring(0, input.getName().length() - ".in".length());
+    File correct = new File(input.getParentFile(), base + ".out.correct");
+    if (correct.isFile()) {
+      return correct;
+    }
+    File out = new File(input.getParentFile(), base + ".out");
+    return out.isFile() ? out : null;
+  }
+
+  /** Runs the given problems, or every registered problem if none are given. */
+  public List<Result> run(List<String> problems) throws Exception {
+    ExecutorService executor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+    try {
+      List<Future<Result>> futures = new ArrayList<>();
+      for (Map.Entry<String, Factory> solver : SOLVERS.entrySet()) {
+        if (!problems.isEmpty() && !problems.contains(solver.getKey())) {
+          continue;
+        }
+        File[] inputs = new File(m_inputRoot, solver.getKey()).listFiles((dir, name) -> name.endsWith(".in"));
+        if (inputs == null) {
+          continue;
+        }
+        Arrays.sort(inputs);
+        for (File input : inputs) {
+          futures.add(executor.submit(() -> run(solver.getKey(), solver.getValue(), input)));
+        }
+      }
+      List<Result> results = new ArrayList<>();
+      for (Future<Result> future : futures) {
+        results.add(future.get());
+      }
+      return results;
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  private static Result run(String problem, Factory factory, File input) {
+    File expected = expectedFor(input);
+    long start = System.nanoTime();
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    try (Solver solver = factory.create(new FileInputStream(input), out)) {
+      solver.solve();
+    } catch (Exception | StackOverflowError e) {
+      return new Result(problem, input, expected, Status.ERROR, e.toString(), System.nanoTime() - start);
+    }
+    long nanos = System.nanoTime() - start;
+    if (expected == null) {
+      return new Result(problem, input, null, Status.NO_EXPECTED, "", nanos);
+    }
+    try {
+      String difference = firstDifference(lines(out.toByteArray()), lines(Files.readAllBytes(expected.toPath())));
+      return new Result(problem, input, expected, difference == null ? Status.PASS : Status.FAIL,
+          difference == null ? "" : difference, nanos);
+    } catch (IOException e) {
+      return new Result(problem, input, expected, Status.ERROR, e.toString(), nanos);
+    }
+  }
+
+  private static List<String> lines(byte[] bytes) {
+    List<String> lines = new ArrayList<>();
+    for (String line : new String(bytes, StandardCharsets.US_ASCII).split("\r?\n")) {
+      lines.add(line.trim());
+    }
+    while (!lines.isEmpty() && lines.get(lines.size() - 1).isEmpty()) {
+      lines.remove(lines.size() - 1);
+    }
+    return lines;
+  }
+
+  /** Describes the first line that differs, or returns {@code null} if there is none. */
+  static String firstDifference(List<String> actual, List<String> expected) {
+    for (int i = 0; i < Math.max(actual.size(), expected.size()); i++) {
+      String a = i < actual.size() ? actual.get(i) : "<missing>";
+      String e = i < expected.size() ? expected.get(i) : "<missing>";
+      if (!a.equals(e)) {
+        return "line " + (i + 1) + ": got '" + a + "' expected '" + e + "'";
+      }
+    }
+    return null;
+  }
+
+  public static String table(List<Result> results) {
+    StringBuilder table = new StringBuilder();
+    table.append(String.format(Locale.ROOT, "%-16s %-22s %-30s %-12s %12s  %s%n",
+        "problem", "input", "expected", "status", "time", "detail"));
+    for (Result result : results) {
+      table.append(String.format(Locale.ROOT, "%-16s %-22s %-30s %-12s %9.1f ms  %s%n",
+          result.getProblem(), result.getInput().getName(),
+          result.getExpected() == null ? "-" : result.getExpected().getName(), result.getStatus(),
+          result.getNanos() / 1e6, result.getDetail()));
+    }
+    return table.toString();
+  }
+
+  public static void main(String[] args) throws Exception {
+    File inputRoot = new File(args.length >= 1 ? args[0] : "input");
+    List<String> problems = args.length > 1 ? Arrays.asList(args).subList(1, args.length) : new ArrayList<>();
+    PrintStream stdout = System.out;
+    List<Result> results;
+    System.setOut(new PrintStream(ByteStreams.nullOutputStream()));
+    try {
+      results = new SuiteRunner(inputRoot).run(problems);
+    } finally {
+      System.setOut(stdout);
+    }
+    System.out.print(table(results));
+    boolean passed = results.stream().allMatch(result -> result.getStatus() == Status.PASS);
+    System.out.println(passed ? "All " + results.size() + " inputs passed" : "FAILED");
+    if (!passed) {
+      System.exit(1);
+    }
+  }
+}
@@ -16,25 +16,45 @@ public class Cheaters extends Solver {
 
     public static void main(String[] args) throws Exception {
         long start = System.currentTimeMillis();
-        System.out.println("Done in " + (System.currentTimeMillis() - start) + " milliseconds");
         try (InputStream in = args.length >= 1 ? new FileInputStream(args[0]) : System.in;
              OutputStream out = args.length == 2 ? new FileOutputStream(args[1]) : System.out;
              Cheaters solver = new Cheaters(in, out)) {
-            solver.solve();
+            solver.solve(Runtime.getRuntime().availableProcessors());
+            System.out.print(solver.getReport());
         }
+        System.out.println("Done in " + (System.currentTimeMillis() - start) + " milliseconds");
+    }
+
+    @Override
+    protected CaseShape getCaseShape() {
+        return tokens -> {
+            tokens.skipToken();
+            tokens.skipTokens(tokens.parseInt());
+        };
     }
 
     @Override
-    protected String solve(long caseNumber) throws Exception {
+    protected Case parseCase(long caseNumber) throws Exception {
         long B = parseLong();
         int N = parseInt();
         if (DEBUG) System.out.println(B + " " + N);
         long[] bets = new long[N];
-        long minBet = Long.MAX_VALUE;
-        int numberOfMinBets = 0;
         for (int i = 0; i < N; i++) {
             bets[i] = parseLong();
             if (DEBUG) System.out.print(bets[i] + " ");
+        }
+        if (DEBUG) System.out.println();
+        return () -> {
+            double winnings = solve(B, bets);
+            return out -> out.write(winnings);
+        };
+    }
+
+    private static double solve(long B, long[] bets) {
+        int N = bets.length;
+        long minBet = Long.MAX_VALUE;
+        int numberOfMinBets = 0;
+        for (int i = 0; i < N; i++) {
             if (bets[i] < minBet) {
                 numberOfMinBets = 1;
                 minBet = bets[i];
@@ -42,7 +62,6 @@ public class Cheaters extends Solver {
                 numberOfMinBets++;
             }
         }
-        if (DEBUG) System.out.println();
 
         int remainingSlots = 37 - N;
         long actualBet;
@@ -67,6 +86,6 @@ public class Cheaters extends Solver {
             actualNumberOfSlots = Math.min(remainingSlots, maxNumberOfSlots);
             winningSlots = minBet == actualBet ? remainingSlots + numberOfMinBets : remainingSlots;
         }
-        return Double.toString(Math.max(actualBet * actualNumberOfSlots * (36d / winningSlots - 1) - extraCost, 0d));
+        return Math.max(actualBet * actualNumberOfSlots * (36d / winningSlots - 1) - extraCost, 0d);
     }
 }
@@ -6,6 +6,9 @@ import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.PriorityQueue;
 
 public class Erdos_Szekeres extends Solver
 {
@@ -25,145 +28,142 @@ public class Erdos_Szekeres extends Solver
       Erdos_Szekeres solver = new Erdos_Szekeres(in, out)
     )
     {
-      solver.solve();
+      solver.solve(Runtime.getRuntime().availableProcessors());
+      System.out.print(solver.getReport());
     }
     System.out.println("Done in " + (System.currentTimeMillis() - start) + " milliseconds");
   }
 
   @Override
-  protected String solve(long caseNumber) throws Exception
+  protected CaseShape getCaseShape()
+  {
+    return tokens -> tokens.skipTokens(2L * tokens.parseInt());
+  }
+
+  @Override
+  protected Case parseCase(long caseNumber) throws Exception
   {
     int N = parseInt();
     int[] A = new int[N];
     int[] B = new int[N];
-    int[] X = new int[N];
 
     for (int i = 0; i < N; i++)
     {
       A[i] = parseInt();
     }
-    boolean found1 = false;
     for (int i = 0; i < N; i++)
     {
       B[i] = parseInt();
-      if (!found1 && B[i] == 1)
-      {
-        found1 = true;
-        X[i] = 1;
-      }
     }
-//    System.out.println();
-//    System.out.println("Case #" + caseNumber +": " +toString(A));
-//    System.out.println("Case #" + caseNumber +": " +toString(B));
-    Mathser mathser = new Mathser(N, A, B, X);
-    int[] solve = mathser.solve(2);
-    StringBuilder ans = toString(solve);
-    return ans.toString();
+    return () ->
+    {
+      int[] solve = new Precedence(A, B).solve();
+      return out -> out.write(solve);
+    };
   }
 
-  static class Mathser
+  /**
+   * Models A and B as a precedence DAG over the indices, where an edge i -> j means X[i] < X[j]:
+   * <ul>
+   * <li>equal A values appear in decreasing order, so i -> j for the previous j with A[j] == A[i]</li>
+   * <li>the previous j with A[j] == A[i] - 1 is the smallest of those, so j -> i</li>
+   * <li>equal B values appear in increasing order, so i -> j for the next j with B[j] == B[i]</li>
+   * <li>the next j with B[j] == B[i] - 1 is the smallest of those, so j -> i</li>
+   * </ul>
+   * Every index has at most four edges. Handing out N, N-1, ... 1, each time to the highest index
+   * that no unlabelled index must exceed, gives the lexicographically smallest X in O(N log N).
+   */
+  static class Precedence
   {
-    final int N;
-    final int[] A;
-    final int[] B;
-    final int[] X;
-    private Mathser(int n, int[] a, int[] b, int[] x)
+    private final int N;
+    private final int[] A;
+    private final int[] B;
+    /** Smaller ends of the edges into each index, at most four each. */
+    private final int[][] m_smaller;
+    private final int[] m_smallerCount;
+    /** Number of edges out of each index whose larger end has no value yet. */
+    private final int[] m_pendingLarger;
+
+    Precedence(int[] a, int[] b)
     {
-      N = n;
+      N = a.length;
       A = a;
       B = b;
-      X = x;
+      m_smaller = new int[N][4];
+      m_smallerCount = new int[N];
+      m_pendingLarger = new int[N];
+      addEdges();
     }
-    public int[] solve(int value)
+
+    private void addEdge(int smaller, int larger)
     {
-      //System.out.println("Solving " + value);
-      if (value > N) return X;
-      
-      for(int i = 0; i < N; i++)
+      m_smaller[larger][m_smallerCount[larger]++] = smaller;
+      m_pendingLarger[smaller]++;
+    }
+
+    private void addEdges()
+    {
+      // last index seen with each A value, scanning forwards; values are 1..N
+      int[] lastA = new int[N + 2];
+      Arrays.fill(lastA, -1);
+      for (int i = 0; i < N; i++)
       {
-        if (X[i] == 0 && value >= Math.max(A[i], B[i]))
+        if (lastA[A[i]] >= 0)
         {
-          boolean valid = true;
-          for(int j = 0; j<i;j++)
-          {
-            if (A[j] == A[i] && X[j] != 0)
-            {
-              valid = false;
-              break;
-            }
-            if (B[j] == B[i] && X[j] == 0)
-            {
-              valid = false;
-              break;
-            }
-          }
-          if (!valid)
-          {
-            continue;
-          }
-          
-          for (int j = i+1; j < N;j++)
-          {
-            if (A[j] == A[i] && X[j] == 0)
-            {
-              valid = false;
-              break;
-            }
-            if (B[j] == B[i] && X[j] != 0)
-            {
-              valid = false;
-              break;
-            }
-          }
-          if (!valid)
-          {
-            continue;
-          }
-          
-          valid = set(i, value);
-          if (valid)
-          {
-            int[] solve = solve(value + 1);
-            if (solve != null)
-            {
-              return solve;
-            }
-          }
-          unset(i);
+          addEdge(i, lastA[A[i]]);
+        }
+        if (lastA[A[i] - 1] >= 0)
+        {
+          addEdge(lastA[A[i] - 1], i);
         }
+        lastA[A[i]] = i;
+      }
+      // first index seen with each B value, scanning backwards
+      int[] nextB = new int[N + 2];
+      Arrays.fill(nextB, -1);
+      for (int i = N - 1; i >= 0; i--)
+      {
+        if (nextB[B[i]] >= 0)
+        {
+          addEdge(i, nextB[B[i]]);
+        }
+        if (nextB[B[i] - 1] >= 0)
+        {
+          addEdge(nextB[B[i] - 1], i);
+        }
+        nextB[B[i]] = i;
       }
-      
-      return null;
     }
-    
-    private boolean set(int i, int value)
+
+    int[] solve()
     {
-      X[i] = value;
-      
-      int maxA = 0;
-      for (int j = 0; j < i; j++)
+      int[] X = new int[N];
+      PriorityQueue<Integer> available = new PriorityQueue<>(Math.max(N, 1), Collections.reverseOrder());
+      for (int i = 0; i < N; i++)
       {
-        if (X[j] != 0)
+        if (m_pendingLarger[i] == 0)
         {
-          maxA = Math.max(maxA, A[j]);
+          available.add(i);
         }
       }
-
-      int maxB = 0;
-      for (int j = i+1; j < N; j++)
+      for (int value = N; value >= 1; value--)
       {
-        if (X[j] != 0)
+        Integer i = available.poll();
+        if (i == null)
         {
-          maxB = Math.max(maxB, B[j]);
+          throw new IllegalStateException("A and B are contradictory");
+        }
+        X[i] = value;
+        for (int k = 0; k < m_smallerCount[i]; k++)
+        {
+          int smaller = m_smaller[i][k];
+          if (--m_pendingLarger[smaller] == 0)
+          {
+            available.add(smaller);
+          }
         }
       }
-      
-      return maxA + 1 == A[i] && maxB + 1 == B[i];
-    }
-    
-    private void unset(int i)
-    {
-      X[i] = 0;
+      return X;
     }
   }
 }
@@ -2,14 +2,32 @@ package com.metchevn.codejam
 
 import java.io.FileInputStream
 import java.io.FileOutputStream
+import java.io.InputStream
+import java.io.OutputStream
 
-fun solve(args: Array<String>, solver: Solver.(caseNumber: Long)-> String) {
+/**
+ * A solver that answers with the given function. Every solver built here is the same class, so the
+ * function's class names it in the result cache; a [shape] lets cached answers be found before the
+ * function runs.
+ */
+@JvmOverloads
+fun solver(inputStream: InputStream, out: OutputStream, solver: Solver.(caseNumber: Long)-> String, shape: Solver.CaseShape? = null): Solver =
+    object: StringSolver(inputStream, out) {
+        override fun solve(caseNumber: Long) = solver(caseNumber)
+
+        override fun getSolverClass(): Class<*> = solver.javaClass
+
+        override fun getCaseShape() = shape
+    }
+
+fun solve(args: Array<String>, solver: Solver.(caseNumber: Long)-> String, shape: Solver.CaseShape? = null) {
     val start = System.currentTimeMillis()
     (if (args.isNotEmpty()) FileInputStream(args[0]) else System.`in`).use { inputStream ->
         (if (args.size == 2) FileOutputStream(args[1]) else System.out).use { out ->
-            object: Solver(inputStream, out) {
-                override fun solve(caseNumber: Long) = solver(caseNumber)
-            }.use(Solver::solve)
+            solver(inputStream, out, solver, shape).use { solver ->
+                solver.solve()
+                print(solver.report)
+            }
         }
     }
     println("Done in " + (System.currentTimeMillis() - start) + " milliseconds")
@@ -1,7 +1,5 @@
 package com.metchevn.util.tree.binary;
 
-import com.google.common.base.Function;
-import com.google.common.collect.Iterables;
 import com.google.common.collect.Ordering;
 
 import java.util.AbstractSet;
@@ -11,7 +9,9 @@ import java.util.Iterator;
 import java.util.NavigableSet;
 import java.util.NoSuchElementException;
 import java.util.SortedSet;
+import java.util.Spliterator;
 import java.util.TreeSet;
+import java.util.function.Consumer;
 
 public abstract class AbstractBinaryTree<T, N extends ModifiableBinaryTreeNode<T, N>> extends AbstractSet<T> implements ModifiableBinaryTree<T, N>, NavigableSet<T>
 {
@@ -25,66 +25,248 @@ public abstract class AbstractBinaryTree<T, N extends ModifiableBinaryTreeNode<T
     @Override
     public Iterator<N> iterator()
     {
-      return new Iterator<N>()
+      return new NodeIterator(m_mutable);
+    }
+  }
+
+  /** Finds each successor once, in {@link #next()}. */
+  private final class NodeIterator implements Iterator<N>
+  {
+    private final boolean m_mutable;
+    private N m_next = getFirstNode();
+    private N m_lastReturned;
+
+    NodeIterator(boolean mutable)
+    {
+      m_mutable = mutable;
+    }
+
+    @Override
+    public boolean hasNext()
+    {
+      return m_next != null;
+    }
+
+    @Override
+    public N next()
+    {
+      N node = m_next;
+      if (node == null)
       {
-        private N m_node;
+        throw new NoSuchElementException();
+      }
+      m_next = successor(node);
+      m_lastReturned = node;
+      return node;
+    }
 
-        @Override
-        public boolean hasNext()
-        {
-          if (m_node == null)
-          {
-            return m_root != null;
-          }
-          return successor(m_node) != null;
-        }
+    @Override
+    public void remove()
+    {
+      if (!m_mutable)
+      {
+        throw new IllegalStateException("Immutable iterator");
+      }
+      if (m_lastReturned == null)
+      {
+        throw new IllegalStateException();
+      }
+      // deleting a node with two children moves its successor's payload into it
+      if (m_lastReturned.getLeft() != null && m_lastReturned.getRight() != null)
+      {
+        m_next = m_lastReturned;
+      }
+      deleteNode(m_lastReturned);
+      m_lastReturned = null;
+    }
+  }
 
-        @Override
-        public N next()
-        {
-          m_node = m_node == null ? getFirstNode() : successor(m_node);
-          if (m_node == null)
-          {
-            throw new NoSuchElementException();
-          }
-          return m_node;
-        }
+  private final class PayloadIterator implements Iterator<T>
+  {
+    private final NodeIterator m_nodes;
 
-        @Override
-        public void remove()
-        {
-          if (!m_mutable)
-          {
-            throw new IllegalStateException("Immutable iterator");
-          }
-          if (m_node == null)
-          {
-            throw new IllegalStateException();
-          }
-          N predecessor = predecessor(m_node);
-          deleteNode(m_node);
-          m_node = predecessor;
-        }
-      };
+    PayloadIterator(boolean mutable)
+    {
+      m_nodes = new NodeIterator(mutable);
+    }
+
+    @Override
+    public boolean hasNext()
+    {
+      return m_nodes.hasNext();
+    }
+
+    @Override
+    public T next()
+    {
+      return m_nodes.next().getPayload();
+    }
+
+    @Override
+    public void remove()
+    {
+      m_nodes.remove();
     }
   }
-  private final Comparator<? super T> m_comparator;
-  private N m_root;
-  protected int m_size = 0;
-  private final Function<ImmutableBinaryTreeNode<T>, T> GET_PAYLOAD = new Function<ImmutableBinaryTreeNode<T>, T>()
+
+  /**
+   * Covers the nodes from {@code m_current} up to, excluding, {@code m_fence}, and splits at subtree
+   * boundaries: {@code m_splitRoot} is a subtree inside that range, the prefix up to it is split off
+   * along with its left subtree, and this spliterator keeps the rest with its right subtree. Only a
+   * spliterator that has not started advancing splits.
+   */
+  private final class NodeSpliterator implements Spliterator<T>
   {
+    private N m_current;
+    private final N m_fence;
+    private N m_splitRoot;
+    private long m_estimate;
+    private boolean m_exact;
+
+    NodeSpliterator(N current, N fence, N splitRoot, long estimate, boolean exact)
+    {
+      m_current = current;
+      m_fence = fence;
+      m_splitRoot = splitRoot;
+      m_estimate = estimate;
+      m_exact = exact;
+    }
+
     @Override
-    public T apply(ImmutableBinaryTreeNode<T> input)
+    public Spliterator<T> trySplit()
     {
-      return input.getPayload();
+      N split = m_splitRoot;
+      if (split != null && same(split, m_current))
+      {
+        split = split.getRight();
+      }
+      if (split == null || m_estimate < 2)
+      {
+        return null;
+      }
+      Spliterator<T> prefix = new NodeSpliterator(m_current, split, split.getLeft(), m_estimate >>> 1, false);
+      m_current = split;
+      m_splitRoot = split.getRight();
+      m_estimate -= m_estimate >>> 1;
+      m_exact = false;
+      return prefix;
     }
-  };
+
+    @Override
+    public boolean tryAdvance(Consumer<? super T> action)
+    {
+      N node = m_current;
+      if (node == null || same(node, m_fence))
+      {
+        return false;
+      }
+      m_splitRoot = null;
+      m_current = successor(node);
+      action.accept(node.getPayload());
+      return true;
+    }
+
+    @Override
+    public void forEachRemaining(Consumer<? super T> action)
+    {
+      m_splitRoot = null;
+      for (N node = m_current; node != null && !same(node, m_fence); node = successor(node))
+      {
+        action.accept(node.getPayload());
+      }
+      m_current = m_fence;
+    }
+
+    @Override
+    public long estimateSize()
+    {
+      return m_estimate;
+    }
+
+    @Override
+    public int characteristics()
+    {
+      return DISTINCT | SORTED | ORDERED | NONNULL | (m_exact ? SIZED : 0);
+    }
+
+    @Override
+    public Comparator<? super T> getComparator()
+    {
+      return m_comparator;
+    }
+  }
+
+  private final Comparator<? super T> m_comparator;
+  private N m_root;
+  protected int m_size = 0;
+  private TreeMetrics m_metrics;
 
   public AbstractBinaryTree(Comparator<? super T> comparator)
   {
     m_comparator = comparator;
   }
 
+  /** Starts counting into {@code metrics}, or stops counting if it is {@code null}. */
+  public void setMetrics(TreeMetrics metrics)
+  {
+    m_metrics = metrics;
+  }
+
+  /** The metrics this tree counts into, or {@code null} if it does not count. */
+  public TreeMetrics getMetrics()
+  {
+    return m_metrics;
+  }
+
+  /**
+   * Takes a snapshot of the metrics with the current size, height and black height, and publishes it
+   * as their last sample. Walks the whole tree for its height, so call it from the thread using the
+   * tree and no more often than every so many operations.
+   *
+   * @throws IllegalStateException if the tree has no metrics
+   */
+  public TreeMetrics.Snapshot sampleMetrics()
+  {
+    if (m_metrics == null)
+    {
+      throw new IllegalStateException("No metrics, see setMetrics");
+    }
+    return m_metrics.sample(m_size, height(), blackHeight());
+  }
+
+  /** The number of nodes on the longest path from the root, in O(n). */
+  public int height()
+  {
+    return height(m_root);
+  }
+
+  private static <T, N extends ModifiableBinaryTreeNode<T, N>> int height(N p)
+  {
+    return p == null ? 0 : 1 + Math.max(height(p.getLeft()), height(p.getRight()));
+  }
+
+  /** The number of black nodes on every path from the root, or -1 if the tree is not red-black. */
+  protected int blackHeight()
+  {
+    return -1;
+  }
+
+  private void lookup()
+  {
+    if (m_metrics != null)
+    {
+      m_metrics.lookup();
+    }
+  }
+
+  protected void recoloured()
+  {
+    if (m_metrics != null)
+    {
+      m_metrics.recolouring();
+    }
+  }
+
   protected static <T, N extends ModifiableBinaryTreeNode<T, N>> N parentOf(N p)
   {
     return (p == null ? null : p.getParent());
@@ -100,11 +282,50 @@ public abstract class AbstractBinaryTree<T, N extends ModifiableBinaryTreeNode<T
     return (p == null) ? null : p.getRight();
   }
   
+  /**
+   * Whether {@code a} and {@code b} are the same node. Nodes are compared with {@code equals} rather
+   * than identity so that a tree can hand out short-lived handles to nodes it stores elsewhere, as
+   * {@link com.metchevn.util.tree.redblack.ArenaRedBlackTree} does.
+   */
+  protected static <N> boolean same(N a, N b)
+  {
+    return a == b || (a != null && a.equals(b));
+  }
+
+  protected static <T, N extends ModifiableBinaryTreeNode<T, N>> int sizeOf(N p)
+  {
+    return p == null ? 0 : p.getSubtreeSize();
+  }
+
+  /**
+   * Recomputes what {@code node} summarises of its subtree from its own payload and its children,
+   * which are up to date. Called bottom-up whenever the subtree of a node changes: on the path of
+   * an inserted or removed node, and on both nodes of a rotation. Subclasses that keep more than the
+   * subtree size extend it; a child of size 0 is being removed and counts as nothing.
+   */
+  protected void augment(N node)
+  {
+    node.setSubtreeSize(1 + sizeOf(node.getLeft()) + sizeOf(node.getRight()));
+  }
+
+  /** {@link #augment} every node from {@code node} up to the root. */
+  protected void augmentPath(N node)
+  {
+    for (N p = node; p != null; p = p.getParent())
+    {
+      augment(p);
+    }
+  }
+
   /** From CLR */
   protected void rotateLeft(N p)
   {
     if (p != null)
     {
+      if (m_metrics != null)
+      {
+        m_metrics.rotation();
+      }
       N r = p.getRight();
       p.setRight(r.getLeft());
       if (r.getLeft() != null)
@@ -116,7 +337,7 @@ public abstract class AbstractBinaryTree<T, N extends ModifiableBinaryTreeNode<T
       {
         m_root = r;
       }
-      else if (p.getParent().getLeft() == p)
+      else if (same(p.getParent().getLeft(), p))
       {
         p.getParent().setLeft(r);
       }
@@ -126,6 +347,8 @@ public abstract class AbstractBinaryTree<T, N extends ModifiableBinaryTreeNode<T
       }
       r.setLeft(p);
       p.setParent(r);
+      augment(p);
+      augment(r);
     }
   }
 
@@ -134,6 +357,10 @@ public abstract class AbstractBinaryTree<T, N extends ModifiableBinaryTreeNode<T
   {
     if (p != null)
     {
+      if (m_metrics != null)
+      {
+        m_metrics.rotation();
+      }
       N l = p.getLeft();
       p.setLeft(l.getRight());
       if (l.getRight() != null)
@@ -145,7 +372,7 @@ public abstract class AbstractBinaryTree<T, N extends ModifiableBinaryTreeNode<T
       {
         m_root = l;
       }
-      else if (p.getParent().getRight() == p)
+      else if (same(p.getParent().getRight(), p))
       {
         p.getParent().setRight(l);
       }
@@ -155,6 +382,8 @@ public abstract class AbstractBinaryTree<T, N extends ModifiableBinaryTreeNode<T
       }
       l.setRight(p);
       p.setParent(l);
+      augment(p);
+      augment(l);
     }
   }
 
@@ -177,7 +406,7 @@ public abstract class AbstractBinaryTree<T, N extends ModifiableBinaryTreeNode<T
     {
       N p = t.getParent();
       N ch = t;
-      while (p != null && ch == p.getRight())
+      while (p != null && same(ch, p.getRight()))
       {
         ch = p;
         p = p.getParent();
@@ -205,7 +434,7 @@ public abstract class AbstractBinaryTree<T, N extends ModifiableBinaryTreeNode<T
     {
       N p = t.getParent();
       N ch = t;
-      while (p != null && ch == p.getLeft())
+      while (p != null && same(ch, p.getLeft()))
       {
         ch = p;
         p = p.getParent();
@@ -266,25 +495,32 @@ public abstract class AbstractBinaryTree<T, N extends ModifiableBinaryTreeNode<T
     }
   }
 
+  /** Adds {@code value} unless the tree has an equal element, see {@link #add}; allocates the returned wrapper. */
   public ModifiedNode put(T value)
   {
-    N node = construct(value);
-    if (m_root == null)
-    {
-      m_size = 1;
-      m_root = node;
-      return new ModifiedNode(true, node);
-    }
-    N parent = m_root;
+    int before = m_size;
+    N node = putNode(value);
+    return new ModifiedNode(m_size != before, node);
+  }
+
+  /**
+   * Links a node for {@code value} unless the tree already has an equal one, and returns the node
+   * holding it either way; callers tell the two apart by the size. The node is only constructed once
+   * the search has come up empty, so a duplicate allocates nothing.
+   */
+  private N putNode(T value)
+  {
+    lookup();
+    N parent = null;
     N t = m_root;
     int cmp = 0;
     while (t != null)
     {
       parent = t;
-      cmp = compare(node, t);
+      cmp = compare(value, t);
       if (cmp == 0)
       {
-        return new ModifiedNode(false, parent);
+        return t;
       }
       if (cmp < 0)
       {
@@ -295,6 +531,14 @@ public abstract class AbstractBinaryTree<T, N extends ModifiableBinaryTreeNode<T
         t = t.getRight();
       }
     }
+    N node = construct(value);
+    if (parent == null)
+    {
+      m_size = 1;
+      m_root = node;
+      augment(node);
+      return node;
+    }
     node.setParent(parent);
     if (cmp < 0)
     {
@@ -304,9 +548,10 @@ public abstract class AbstractBinaryTree<T, N extends ModifiableBinaryTreeNode<T
     {
       parent.setRight(node);
     }
+    augmentPath(node);
     fixAfterInsertion(node);
     m_size++;
-    return new ModifiedNode(true, node);
+    return node;
   }
   
   protected abstract void fixAfterInsertion(N node);
@@ -328,17 +573,33 @@ public abstract class AbstractBinaryTree<T, N extends ModifiableBinaryTreeNode<T
   @Override
   public boolean add(T e)
   {
-    ModifiedNode put = put(e);
-    return put.isModified();
+    int before = m_size;
+    putNode(e);
+    return m_size != before;
   }
   
   @Override
   @SuppressWarnings("unchecked")
   public boolean remove(Object payLoad)
   {
-    return delete((T)payLoad).isModified();
+    N node = getNode((T) payLoad);
+    if (node == null)
+    {
+      return false;
+    }
+    deleteNode(node);
+    return true;
+  }
+
+  /** In O(log n), rather than by iterating as {@link AbstractSet} would. */
+  @Override
+  @SuppressWarnings("unchecked")
+  public boolean contains(Object o)
+  {
+    return getNode((T) o) != null;
   }
 
+  /** Removes {@code value} if the tree has it, see {@link #remove}; allocates the returned wrapper. */
   public ModifiedNode delete(T value)
   {
     N node = getNode(value);
@@ -354,6 +615,7 @@ public abstract class AbstractBinaryTree<T, N extends ModifiableBinaryTreeNode<T
 
   public N getNode(T value)
   {
+    lookup();
     if (m_root == null)
     {
       return null;
@@ -380,10 +642,11 @@ public abstract class AbstractBinaryTree<T, N extends ModifiableBinaryTreeNode<T
 
   public N getCeilingNode(T payload)
   {
+    lookup();
     N p = m_root;
     while (p != null)
     {
-      int cmp = compare(payload, p.getPayload());
+      int cmp = compare(payload, p);
       if (cmp < 0)
       {
         if (p.getLeft() != null)
@@ -401,7 +664,7 @@ public abstract class AbstractBinaryTree<T, N extends ModifiableBinaryTreeNode<T
         {
           N parent = p.getParent();
           N ch = p;
-          while (parent != null && ch == parent.getRight())
+          while (parent != null && same(ch, parent.getRight()))
           {
             ch = parent;
             parent = parent.getParent();
@@ -417,10 +680,11 @@ public abstract class AbstractBinaryTree<T, N extends ModifiableBinaryTreeNode<T
 
   public N getFloorNode(T payload)
   {
+    lookup();
     N p = m_root;
     while (p != null)
     {
-      int cmp = compare(payload, p.getPayload());
+      int cmp = compare(payload, p);
       if (cmp > 0)
       {
         if (p.getRight() != null)
@@ -438,7 +702,7 @@ public abstract class AbstractBinaryTree<T, N extends ModifiableBinaryTreeNode<T
         {
           N parent = p.getParent();
           N ch = p;
-          while (parent != null && ch == parent.getLeft())
+          while (parent != null && same(ch, parent.getLeft()))
           {
             ch = parent;
             parent = parent.getParent();
@@ -454,10 +718,11 @@ public abstract class AbstractBinaryTree<T, N extends ModifiableBinaryTreeNode<T
 
   public N getHigherNode(T payLoad)
   {
+    lookup();
     N p = m_root;
     while (p != null)
     {
-      int cmp = compare(payLoad, p.getPayload());
+      int cmp = compare(payLoad, p);
       if (cmp < 0)
       {
         if (p.getLeft() != null)
@@ -475,7 +740,7 @@ public abstract class AbstractBinaryTree<T, N extends ModifiableBinaryTreeNode<T
         {
           N parent = p.getParent();
           N ch = p;
-          while (parent != null && ch == parent.getRight())
+          while (parent != null && same(ch, parent.getRight()))
           {
             ch = parent;
             parent = parent.getParent();
@@ -489,10 +754,11 @@ public abstract class AbstractBinaryTree<T, N extends ModifiableBinaryTreeNode<T
 
   public N getLowerNode(T payload)
   {
+    lookup();
     N p = m_root;
     while (p != null)
     {
-      int cmp = compare(payload, p.getPayload());
+      int cmp = compare(payload, p);
       if (cmp > 0)
       {
         if (p.getRight() != null)
@@ -510,7 +776,7 @@ public abstract class AbstractBinaryTree<T, N extends ModifiableBinaryTreeNode<T
         {
           N parent = p.getParent();
           N ch = p;
-          while (parent != null && ch == parent.getLeft())
+          while (parent != null && same(ch, parent.getLeft()))
           {
             ch = parent;
             parent = parent.getParent();
@@ -522,47 +788,108 @@ public abstract class AbstractBinaryTree<T, N extends ModifiableBinaryTreeNode<T
     return null;
   }
 
-  private N pollFirstNode()
+  /** The node of the {@code k}th smallest element, counting from 0, in O(log n). */
+  public N selectNode(int k)
   {
-    N p = getFirstNode();
-    if (p != null)
-      deleteNode(p);
-    return p;
+    if (k < 0 || k >= m_size)
+    {
+      throw new IndexOutOfBoundsException("Index: " + k + ", Size: " + m_size);
+    }
+    N p = m_root;
+    while (true)
+    {
+      int left = sizeOf(p.getLeft());
+      if (k < left)
+      {
+        p = p.getLeft();
+      }
+      else if (k > left)
+      {
+        k -= left + 1;
+        p = p.getRight();
+      }
+      else
+      {
+        return p;
+      }
+    }
   }
 
-  private N pollLastNode()
+  /** The {@code k}th smallest element, counting from 0, in O(log n). */
+  public T select(int k)
   {
-    N p = getLastNode();
-    if (p != null)
-      deleteNode(p);
-    return p;
+    return selectNode(k).getPayload();
   }
 
-  private int compare(N a, N b)
+  /** The number of elements smaller than {@code value}, in O(log n). */
+  public int rank(T value)
   {
-    return compare(a.getPayload(), b);
+    return rank(value, false);
+  }
+
+  /** The number of elements smaller than {@code value}, or not greater than it if {@code inclusive}. */
+  public int rank(T value, boolean inclusive)
+  {
+    lookup();
+    int rank = 0;
+    N p = m_root;
+    while (p != null)
+    {
+      int cmp = compare(value, p);
+      if (cmp < 0 || (cmp == 0 && !inclusive))
+      {
+        p = p.getLeft();
+      }
+      else
+      {
+        rank += sizeOf(p.getLeft()) + 1;
+        p = p.getRight();
+      }
+    }
+    return rank;
+  }
+
+  /** The number of elements in {@code [from, to)}, in O(log n). */
+  public int countInRange(T from, T to)
+  {
+    return Math.max(0, rank(to) - rank(from));
   }
 
   public int compare(T a, N b)
   {
+    if (m_metrics != null)
+    {
+      m_metrics.visit();
+    }
     return m_comparator.compare(a, b.getPayload());
   }
 
   public int compare(T a, T b)
   {
+    if (m_metrics != null)
+    {
+      m_metrics.comparison();
+    }
     return m_comparator.compare(a, b);
   }
 
   @Override
   public Iterator<T> iterator()
   {
-    return Iterables.transform(new NodeIterable(false), GET_PAYLOAD).iterator();
+    return new PayloadIterator(false);
   }
   
   @Override
   public Iterator<T> modifiableIterator()
   {
-    return Iterables.transform(new NodeIterable(true), GET_PAYLOAD).iterator();
+    return new PayloadIterator(true);
+  }
+
+  /** Splits at subtree boundaries, so that parallel streams over the tree use every core. */
+  @Override
+  public Spliterator<T> spliterator()
+  {
+    return new NodeSpliterator(getFirstNode(), null, m_root, m_size, true);
   }
 
   @Override
@@ -655,21 +982,31 @@ public abstract class AbstractBinaryTree<T, N extends ModifiableBinaryTreeNode<T
   @Override
   public T pollFirst()
   {
-    N pollFirstNode = pollFirstNode();
-    return pollFirstNode == null ? null : pollFirstNode.getPayload();
+    return poll(getFirstNode());
   }
 
   @Override
   public T pollLast()
   {
-    N pollLastNode = pollLastNode();
-    return pollLastNode == null ? null : pollLastNode.getPayload();
+    return poll(getLastNode());
+  }
+
+  /** Reads the payload before deleting the node, which may recycle it. */
+  private T poll(N node)
+  {
+    if (node == null)
+    {
+      return null;
+    }
+    T payload = node.getPayload();
+    deleteNode(node);
+    return payload;
   }
 
   @Override
   public NavigableSet<T> descendingSet()
   {
-    return asTreeSet(Ordering.from(m_comparator).<T> reverse());
+    return new SubSet(true, null, true, true, null, true, true);
   }
 
   public TreeSet<T> asTreeSet()
@@ -687,25 +1024,29 @@ public abstract class AbstractBinaryTree<T, N extends ModifiableBinaryTreeNode<T
   @Override
   public Iterator<T> descendingIterator()
   {
-    return descendingSet().iterator();
+    return new SubSetIterator(getLastNode(), false, null, false, false);
   }
 
   @Override
   public NavigableSet<T> subSet(T fromElement, boolean fromInclusive, T toElement, boolean toInclusive)
   {
-    return asTreeSet().subSet(fromElement, fromInclusive, toElement, toInclusive);
+    if (compare(fromElement, toElement) > 0)
+    {
+      throw new IllegalArgumentException("fromKey > toKey");
+    }
+    return new SubSet(false, fromElement, fromInclusive, false, toElement, toInclusive, false);
   }
 
   @Override
   public NavigableSet<T> headSet(T toElement, boolean inclusive)
   {
-    return asTreeSet().headSet(toElement, inclusive);
+    return new SubSet(true, null, true, false, toElement, inclusive, false);
   }
 
   @Override
   public NavigableSet<T> tailSet(T fromElement, boolean inclusive)
   {
-    return asTreeSet().tailSet(fromElement, inclusive);
+    return new SubSet(false, fromElement, inclusive, true, null, true, false);
   }
 
   @Override
@@ -725,7 +1066,396 @@ public abstract class AbstractBinaryTree<T, N extends ModifiableBinaryTreeNode<T
   {
     return tailSet(fromElement, true);
   }
-  
+
+  /**
+   * Iterates the live tree from {@code next}, in either direction, until it leaves the range given by
+   * {@code fence}: the lower bound when descending, the upper bound otherwise.
+   */
+  private final class SubSetIterator implements Iterator<T>
+  {
+    private final boolean m_ascending;
+    private final T m_fence;
+    private final boolean m_fenceInclusive;
+    private final boolean m_unbounded;
+    private N m_next;
+    private N m_lastReturned;
+
+    SubSetIterator(N first, boolean ascending, T fence, boolean fenceInclusive, boolean bounded)
+    {
+      m_ascending = ascending;
+      m_fence = fence;
+      m_fenceInclusive = fenceInclusive;
+      m_unbounded = !bounded;
+      m_next = first == null || beyondFence(first) ? null : first;
+    }
+
+    private boolean beyondFence(N node)
+    {
+      if (m_unbounded)
+      {
+        return false;
+      }
+      int cmp = compare(m_fence, node);
+      return m_ascending ? (cmp < 0 || (cmp == 0 && !m_fenceInclusive)) : (cmp > 0 || (cmp == 0 && !m_fenceInclusive));
+    }
+
+    @Override
+    public boolean hasNext()
+    {
+      return m_next != null;
+    }
+
+    @Override
+    public T next()
+    {
+      N node = m_next;
+      if (node == null)
+      {
+        throw new NoSuchElementException();
+      }
+      N following = m_ascending ? successor(node) : predecessor(node);
+      m_next = following == null || beyondFence(following) ? null : following;
+      m_lastReturned = node;
+      return node.getPayload();
+    }
+
+    @Override
+    public void remove()
+    {
+      if (m_lastReturned == null)
+      {
+        throw new IllegalStateException();
+      }
+      // deleting a node with two children moves its successor's payload into it
+      if (m_ascending && m_next != null && m_lastReturned.getLeft() != null && m_lastReturned.getRight() != null)
+      {
+        m_next = m_lastReturned;
+      }
+      deleteNode(m_lastReturned);
+      m_lastReturned = null;
+    }
+  }
+
+  /**
+   * A live view of the elements between two optional bounds, possibly in descending order. Lookups go
+   * straight to the tree and clip the result to the bounds, so they cost O(log n), as does
+   * {@link #size()}, and iterating k elements costs O(log n + k). The bounds are always those of the
+   * tree's ascending order.
+   */
+  private final class SubSet extends AbstractSet<T> implements NavigableSet<T>
+  {
+    private final boolean m_fromStart;
+    private final T m_lo;
+    private final boolean m_loInclusive;
+    private final boolean m_toEnd;
+    private final T m_hi;
+    private final boolean m_hiInclusive;
+    private final boolean m_descending;
+
+    SubSet(boolean fromStart, T lo, boolean loInclusive, boolean toEnd, T hi, boolean hiInclusive, boolean descending)
+    {
+      m_fromStart = fromStart;
+      m_lo = lo;
+      m_loInclusive = loInclusive;
+      m_toEnd = toEnd;
+      m_hi = hi;
+      m_hiInclusive = hiInclusive;
+      m_descending = descending;
+    }
+
+    private boolean tooLow(T value)
+    {
+      if (m_fromStart)
+      {
+        return false;
+      }
+      int cmp = compare(value, m_lo);
+      return cmp < 0 || (cmp == 0 && !m_loInclusive);
+    }
+
+    private boolean tooHigh(T value)
+    {
+      if (m_toEnd)
+      {
+        return false;
+      }
+      int cmp = compare(value, m_hi);
+      return cmp > 0 || (cmp == 0 && !m_hiInclusive);
+    }
+
+    private boolean inRange(T value)
+    {
+      return !tooLow(value) && !tooHigh(value);
+    }
+
+    /** Whether a bound of a nested view is allowed: within this range, or on an exclusive bound of it if it is exclusive too. */
+    private boolean inRange(T value, boolean inclusive)
+    {
+      if (inclusive)
+      {
+        return inRange(value);
+      }
+      return (m_fromStart || compare(value, m_lo) >= 0) && (m_toEnd || compare(value, m_hi) <= 0);
+    }
+
+    private N clip(N node)
+    {
+      return node == null || !inRange(node.getPayload()) ? null : node;
+    }
+
+    private N lowestNode()
+    {
+      return clip(m_fromStart ? getFirstNode() : m_loInclusive ? getCeilingNode(m_lo) : getHigherNode(m_lo));
+    }
+
+    private N highestNode()
+    {
+      return clip(m_toEnd ? getLastNode() : m_hiInclusive ? getFloorNode(m_hi) : getLowerNode(m_hi));
+    }
+
+    private N ceilingNode(T value)
+    {
+      return tooLow(value) ? lowestNode() : clip(getCeilingNode(value));
+    }
+
+    private N higherNode(T value)
+    {
+      return tooLow(value) ? lowestNode() : clip(getHigherNode(value));
+    }
+
+    private N floorNode(T value)
+    {
+      return tooHigh(value) ? highestNode() : clip(getFloorNode(value));
+    }
+
+    private N lowerNode(T value)
+    {
+      return tooHigh(value) ? highestNode() : clip(getLowerNode(value));
+    }
+
+    private T payload(N node)
+    {
+      return node == null ? null : node.getPayload();
+    }
+
+    @Override
+    public Iterator<T> iterator()
+    {
+      return m_descending ? absoluteDescendingIterator() : absoluteAscendingIterator();
+    }
+
+    @Override
+    public Iterator<T> descendingIterator()
+    {
+      return m_descending ? absoluteAscendingIterator() : absoluteDescendingIterator();
+    }
+
+    private Iterator<T> absoluteAscendingIterator()
+    {
+      return new SubSetIterator(lowestNode(), true, m_hi, m_hiInclusive, !m_toEnd);
+    }
+
+    private Iterator<T> absoluteDescendingIterator()
+    {
+      return new SubSetIterator(highestNode(), false, m_lo, m_loInclusive, !m_fromStart);
+    }
+
+    /** Counts with {@link #rank(Object, boolean)}, in O(log n). */
+    @Override
+    public int size()
+    {
+      int below = m_fromStart ? 0 : rank(m_lo, !m_loInclusive);
+      int upToHigh = m_toEnd ? m_size : rank(m_hi, m_hiInclusive);
+      return Math.max(0, upToHigh - below);
+    }
+
+    @Override
+    public boolean isEmpty()
+    {
+      return lowestNode() == null;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public boolean contains(Object o)
+    {
+      return inRange((T) o) && getNode((T) o) != null;
+    }
+
+    @Override
+    public boolean add(T e)
+    {
+      if (!inRange(e))
+      {
+        throw new IllegalArgumentException("key out of range");
+      }
+      return AbstractBinaryTree.this.add(e);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public boolean remove(Object o)
+    {
+      return inRange((T) o) && AbstractBinaryTree.this.remove(o);
+    }
+
+    @Override
+    public void clear()
+    {
+      for (Iterator<T> iterator = iterator(); iterator.hasNext(); )
+      {
+        iterator.next();
+        iterator.remove();
+      }
+    }
+
+    @Override
+    public Comparator<? super T> comparator()
+    {
+      return m_descending ? Ordering.from(m_comparator).reverse() : m_comparator;
+    }
+
+    @Override
+    public T first()
+    {
+      N node = m_descending ? highestNode() : lowestNode();
+      if (node == null)
+      {
+        throw new NoSuchElementException();
+      }
+      return node.getPayload();
+    }
+
+    @Override
+    public T last()
+    {
+      N node = m_descending ? lowestNode() : highestNode();
+      if (node == null)
+      {
+        throw new NoSuchElementException();
+      }
+      return node.getPayload();
+    }
+
+    @Override
+    public T lower(T e)
+    {
+      return payload(m_descending ? higherNode(e) : lowerNode(e));
+    }
+
+    @Override
+    public T floor(T e)
+    {
+      return payload(m_descending ? ceilingNode(e) : floorNode(e));
+    }
+
+    @Override
+    public T ceiling(T e)
+    {
+      return payload(m_descending ? floorNode(e) : ceilingNode(e));
+    }
+
+    @Override
+    public T higher(T e)
+    {
+      return payload(m_descending ? lowerNode(e) : higherNode(e));
+    }
+
+    @Override
+    public T pollFirst()
+    {
+      return AbstractBinaryTree.this.poll(m_descending ? highestNode() : lowestNode());
+    }
+
+    @Override
+    public T pollLast()
+    {
+      return AbstractBinaryTree.this.poll(m_descending ? lowestNode() : highestNode());
+    }
+
+    @Override
+    public NavigableSet<T> descendingSet()
+    {
+      return new SubSet(m_fromStart, m_lo, m_loInclusive, m_toEnd, m_hi, m_hiInclusive, !m_descending);
+    }
+
+    /** A nested view, with bounds given in the tree's ascending order. */
+    private NavigableSet<T> absoluteSubSet(boolean fromStart, T lo, boolean loInclusive, boolean toEnd, T hi, boolean hiInclusive)
+    {
+      if (!fromStart && !inRange(lo, loInclusive))
+      {
+        throw new IllegalArgumentException("fromKey out of range");
+      }
+      if (!toEnd && !inRange(hi, hiInclusive))
+      {
+        throw new IllegalArgumentException("toKey out of range");
+      }
+      if (fromStart)
+      {
+        lo = m_lo;
+        loInclusive = m_loInclusive;
+      }
+      if (toEnd)
+      {
+        hi = m_hi;
+        hiInclusive = m_hiInclusive;
+      }
+      return new SubSet(fromStart && m_fromStart, lo, loInclusive, toEnd && m_toEnd, hi, hiInclusive, m_descending);
+    }
+
+    @Override
+    public NavigableSet<T> subSet(T fromElement, boolean fromInclusive, T toElement, boolean toInclusive)
+    {
+      if (m_descending)
+      {
+        if (compare(fromElement, toElement) < 0)
+        {
+          throw new IllegalArgumentException("fromKey > toKey");
+        }
+        return absoluteSubSet(false, toElement, toInclusive, false, fromElement, fromInclusive);
+      }
+      if (compare(fromElement, toElement) > 0)
+      {
+        throw new IllegalArgumentException("fromKey > toKey");
+      }
+      return absoluteSubSet(false, fromElement, fromInclusive, false, toElement, toInclusive);
+    }
+
+    @Override
+    public NavigableSet<T> headSet(T toElement, boolean inclusive)
+    {
+      return m_descending
+          ? absoluteSubSet(false, toElement, inclusive, true, null, true)
+          : absoluteSubSet(true, null, true, false, toElement, inclusive);
+    }
+
+    @Override
+    public NavigableSet<T> tailSet(T fromElement, boolean inclusive)
+    {
+      return m_descending
+          ? absoluteSubSet(true, null, true, false, fromElement, inclusive)
+          : absoluteSubSet(false, fromElement, inclusive, true, null, true);
+    }
+
+    @Override
+    public SortedSet<T> subSet(T fromElement, T toElement)
+    {
+      return subSet(fromElement, true, toElement, false);
+    }
+
+    @Override
+    public SortedSet<T> headSet(T toElement)
+    {
+      return headSet(toElement, false);
+    }
+
+    @Override
+    public SortedSet<T> tailSet(T fromElement)
+    {
+      return tailSet(fromElement, true);
+    }
+  }
+
   @Override
   public N getRoot()
   {
@@ -1,6 +1,12 @@
 package com.metchevn.util.tree.binary;
 
 
+/**
+ * A node with links to its children and parent. By default a node does not store its depth and
+ * {@link #getDepth()} walks up to the root, so that relinking a node, as rotations do, is O(1). Nodes
+ * created with {@code trackDepth} keep their depth up to date instead, which makes
+ * {@link #getDepth()} O(1) but every relink O(size of the moved subtree).
+ */
 public abstract class AbstractBinaryTreeNode<T, N extends AbstractBinaryTreeNode<T, N>> implements ModifiableBinaryTreeNode<T, N>
 {
   private N m_left;
@@ -9,11 +15,20 @@ public abstract class AbstractBinaryTreeNode<T, N extends AbstractBinaryTreeNode
 
   private T m_payload;
   
-  private int m_depth = 0;
+  private static final int UNTRACKED = -1;
+
+  private int m_depth;
+  private int m_subtreeSize = 1;
   
   public AbstractBinaryTreeNode(T payload)
+  {
+    this(payload, false);
+  }
+
+  public AbstractBinaryTreeNode(T payload, boolean trackDepth)
   {
     m_payload = payload;
+    m_depth = trackDepth ? 0 : UNTRACKED;
   }
   
   @Override
@@ -44,9 +59,9 @@ public abstract class AbstractBinaryTreeNode<T, N extends AbstractBinaryTreeNode
   public void setLeft(N left)
   {
     m_left = left;
-    if (left != null)
+    if (left != null && left.isDepthTracked())
     {
-      left.setDepth(m_depth + 1);
+      left.setDepth(getDepth() + 1);
     }
   }
   
@@ -54,16 +69,19 @@ public abstract class AbstractBinaryTreeNode<T, N extends AbstractBinaryTreeNode
   public void setRight(N right)
   {
     m_right = right;
-    if (right != null)
+    if (right != null && right.isDepthTracked())
     {
-      right.setDepth(m_depth + 1);
+      right.setDepth(getDepth() + 1);
     }
   }
   
   @Override
   public void setParent(N parent)
   {
-    setDepth(parent == null ? 0 : parent.getDepth() + 1);
+    if (m_depth != UNTRACKED)
+    {
+      setDepth(parent == null ? 0 : parent.getDepth() + 1);
+    }
     m_parent = parent;
   }
   
@@ -82,12 +100,26 @@ public abstract class AbstractBinaryTreeNode<T, N extends AbstractBinaryTreeNode
   @Override
   public int getDepth()
   {
-    return m_depth;
+    if (m_depth != UNTRACKED)
+    {
+      return m_depth;
+    }
+    int depth = 0;
+    for (N p = m_parent; p != null; p = p.getParent())
+    {
+      depth++;
+    }
+    return depth;
+  }
+
+  public boolean isDepthTracked()
+  {
+    return m_depth != UNTRACKED;
   }
   
   void setDepth(int depth)
   {
-    if (m_depth != depth)
+    if (m_depth != UNTRACKED && m_depth != depth)
     {
       if (m_left != null)
       {
@@ -101,6 +133,18 @@ public abstract class AbstractBinaryTreeNode<T, N extends AbstractBinaryTreeNode
     }
   }
   
+  @Override
+  public int getSubtreeSize()
+  {
+    return m_subtreeSize;
+  }
+
+  @Override
+  public void setSubtreeSize(int size)
+  {
+    m_subtreeSize = size;
+  }
+
   @Override
   public boolean isLeaf()
   {
@@ -13,4 +13,7 @@ public interface ImmutableBinaryTreeNode<T>
   boolean isLeaf();
   
   int getDepth();
+
+  /** The number of nodes in the subtree rooted here, this one included. */
+  int getSubtreeSize();
 }
\ No newline at end of file
@@ -18,4 +18,6 @@ public interface ModifiableBinaryTreeNode<T, N extends ModifiableBinaryTreeNode<
   void setRight(N right);
 
   void setLeft(N left);
+
+  void setSubtreeSize(int size);
 }
\ No newline at end of file
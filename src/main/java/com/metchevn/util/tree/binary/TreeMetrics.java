@@ -0,0 +1,234 @@
+package com.metchevn.util.tree.binary;
+
+import java.lang.management.ManagementFactory;
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * Counts the work an {@link AbstractBinaryTree} does: comparator calls, lookups and the nodes they
+ * visit, rotations and, in red-black trees, recolourings. A tree only counts once it has been given
+ * metrics through {@link AbstractBinaryTree#setMetrics}; until then each hook costs a null check.
+ * <p>
+ * The counters are updated by the thread that uses the tree and, like the tree, are not thread-safe.
+ * That thread calls {@link AbstractBinaryTree#sampleMetrics()} to take a {@link Snapshot} of the
+ * counters together with the size, height and black height; the last snapshot is published to other
+ * threads, and to JMX once {@link #register registered}.
+ */
+public class TreeMetrics implements TreeMetricsMXBean
+{
+  private static final Snapshot EMPTY = new Snapshot(0, 0, 0, 0, 0, 0, 0, -1, 0);
+
+  private long m_comparisons;
+  private long m_lookups;
+  private long m_visits;
+  private long m_rotations;
+  private long m_recolourings;
+  private volatile Snapshot m_last = EMPTY;
+
+  /** The counters, size and shape of a tree at one point in time. */
+  public static final class Snapshot
+  {
+    private final long m_comparisons;
+    private final long m_lookups;
+    private final long m_visits;
+    private final long m_rotations;
+    private final long m_recolourings;
+    private final int m_size;
+    private final int m_height;
+    private final int m_blackHeight;
+    private final long m_timeMillis;
+
+    Snapshot(long comparisons, long lookups, long visits, long rotations, long recolourings, int size, int height, int blackHeight, long timeMillis)
+    {
+      m_comparisons = comparisons;
+      m_lookups = lookups;
+      m_visits = visits;
+      m_rotations = rotations;
+      m_recolourings = recolourings;
+      m_size = size;
+      m_height = height;
+      m_blackHeight = blackHeight;
+      m_timeMillis = timeMillis;
+    }
+
+    public long getComparisons()
+    {
+      return m_comparisons;
+    }
+
+    /** Searches from the root: finding, adding or removing an element, navigation and ranks. */
+    public long getLookups()
+    {
+      return m_lookups;
+    }
+
+    /** Nodes compared against during lookups and iteration bounds checks. */
+    public long getVisits()
+    {
+      return m_visits;
+    }
+
+    public double getVisitsPerLookup()
+    {
+      return m_lookups == 0 ? 0 : (double) m_visits / m_lookups;
+    }
+
+    public long getRotations()
+    {
+      return m_rotations;
+    }
+
+    public long getRecolourings()
+    {
+      return m_recolourings;
+    }
+
+    public int getSize()
+    {
+      return m_size;
+    }
+
+    /** The number of nodes on the longest path from the root, 0 for an empty tree. */
+    public int getHeight()
+    {
+      return m_height;
+    }
+
+    /** The number of black nodes on every path from the root, or -1 if the tree is not red-black. */
+    public int getBlackHeight()
+    {
+      return m_blackHeight;
+    }
+
+    public long getTimeMillis()
+    {
+      return m_timeMillis;
+    }
+
+    @Override
+    public String toString()
+    {
+      return "size=" + m_size + " height=" + m_height + " blackHeight=" + m_blackHeight + " comparisons=" + m_comparisons
+          + " lookups=" + m_lookups + " visits=" + m_visits + " rotations=" + m_rotations + " recolourings=" + m_recolourings;
+    }
+  }
+
+  public void comparison()
+  {
+    m_comparisons++;
+  }
+
+  /** A comparison against a node on the way down a lookup. */
+  public void visit()
+  {
+    m_comparisons++;
+    m_visits++;
+  }
+
+  public void lookup()
+  {
+    m_lookups++;
+  }
+
+  public void rotation()
+  {
+    m_rotations++;
+  }
+
+  public void recolouring()
+  {
+    m_recolourings++;
+  }
+
+  public void reset()
+  {
+    m_comparisons = 0;
+    m_lookups = 0;
+    m_visits = 0;
+    m_rotations = 0;
+    m_recolourings = 0;
+  }
+
+  /** Takes and publishes a snapshot of the counters with the given shape. */
+  Snapshot sample(int size, int height, int blackHeight)
+  {
+    Snapshot snapshot = new Snapshot(m_comparisons, m_lookups, m_visits, m_rotations, m_recolourings, size, height, blackHeight,
+        System.currentTimeMillis());
+    m_last = snapshot;
+    return snapshot;
+  }
+
+  /** The last snapshot taken, safe to read from any thread. */
+  public Snapshot getLastSample()
+  {
+    return m_last;
+  }
+
+  /** Registers these metrics with the platform MBean server, under {@code com.metchevn.util.tree:type=Tree,name=<name>}. */
+  public ObjectName register(String name) throws JMException
+  {
+    ObjectName objectName = ObjectName.getInstance("com.metchevn.util.tree:type=Tree,name=" + ObjectName.quote(name));
+    ManagementFactory.getPlatformMBeanServer().registerMBean(this, objectName);
+    return objectName;
+  }
+
+  @Override
+  public long getComparisons()
+  {
+    return m_last.getComparisons();
+  }
+
+  @Override
+  public long getLookups()
+  {
+    return m_last.getLookups();
+  }
+
+  @Override
+  public long getVisits()
+  {
+    return m_last.getVisits();
+  }
+
+  @Override
+  public double getVisitsPerLookup()
+  {
+    return m_last.getVisitsPerLookup();
+  }
+
+  @Override
+  public long getRotations()
+  {
+    return m_last.getRotations();
+  }
+
+  @Override
+  public long getRecolourings()
+  {
+    return m_last.getRecolourings();
+  }
+
+  @Override
+  public int getSize()
+  {
+    return m_last.getSize();
+  }
+
+  @Override
+  public int getHeight()
+  {
+    return m_last.getHeight();
+  }
+
+  @Override
+  public int getBlackHeight()
+  {
+    return m_last.getBlackHeight();
+  }
+
+  @Override
+  public long getSampleTimeMillis()
+  {
+    return m_last.getTimeMillis();
+  }
+}
@@ -0,0 +1,25 @@
+package com.metchevn.util.tree.binary;
+
+/** The last sample of a tree's {@link TreeMetrics}, as exported over JMX. */
+public interface TreeMetricsMXBean
+{
+  long getComparisons();
+
+  long getLookups();
+
+  long getVisits();
+
+  double getVisitsPerLookup();
+
+  long getRotations();
+
+  long getRecolourings();
+
+  int getSize();
+
+  int getHeight();
+
+  int getBlackHeight();
+
+  long getSampleTimeMillis();
+}
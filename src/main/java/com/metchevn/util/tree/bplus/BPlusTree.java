@@ -0,0 +1,1063 @@
+package com.metchevn.util.tree.bplus;
+
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.NavigableSet;
+import java.util.NoSuchElementException;
+import java.util.SortedSet;
+
+/**
+ * A sorted set in a B+-tree: every node holds up to {@code maxKeys} keys in one array, the elements
+ * are all in the leaves and the leaves are linked both ways. A lookup touches about
+ * log<sub>maxKeys/2</sub>(n) nodes, each a binary search over a contiguous array, instead of one node
+ * per level of a binary tree, and a range scan walks along the leaves' arrays. The keys themselves
+ * are still references, so comparing boxed keys still dereferences them.
+ * <p>
+ * Implements the same {@link NavigableSet} contract as
+ * {@link com.metchevn.util.tree.redblack.DefaultRedBlackTree}, with live subset views and fail-fast
+ * iterators that support {@code remove()}. Null elements are not permitted.
+ */
+public class BPlusTree<T> extends AbstractSet<T> implements NavigableSet<T>
+{
+  private static final int DEFAULT_MAX_KEYS = 64;
+
+  /** The node arrays have room for one key more than {@code maxKeys}, for a node about to split. */
+  private abstract static class Node
+  {
+    final Object[] m_keys;
+    int m_count;
+
+    Node(int maxKeys)
+    {
+      m_keys = new Object[maxKeys + 1];
+    }
+  }
+
+  private static final class Leaf extends Node
+  {
+    Leaf m_prev;
+    Leaf m_next;
+
+    Leaf(int maxKeys)
+    {
+      super(maxKeys);
+    }
+  }
+
+  /** Key {@code i} is above every key under child {@code i} and at most every key under child {@code i + 1}. */
+  private static final class Inner extends Node
+  {
+    final Node[] m_children;
+
+    Inner(int maxKeys)
+    {
+      super(maxKeys);
+      m_children = new Node[maxKeys + 2];
+    }
+  }
+
+  private final Comparator<? super T> m_comparator;
+  private final int m_maxKeys;
+  private final int m_minKeys;
+  private Node m_root;
+  private Leaf m_first;
+  private Leaf m_last;
+  private int m_size;
+  private int m_height;
+  private int m_modCount;
+  /** The separator for the sibling returned by the last split. */
+  private Object m_splitKey;
+
+  public BPlusTree(Comparator<? super T> comparator)
+  {
+    this(comparator, DEFAULT_MAX_KEYS);
+  }
+
+  public BPlusTree(Comparator<? super T> comparator, int maxKeys)
+  {
+    if (maxKeys < 4)
+    {
+      throw new IllegalArgumentException("A node must hold at least 4 keys: " + maxKeys);
+    }
+    m_comparator = comparator;
+    m_maxKeys = maxKeys;
+    m_minKeys = maxKeys / 2;
+  }
+
+  @Override
+  public Comparator<? super T> comparator()
+  {
+    return m_comparator;
+  }
+
+  @Override
+  public int size()
+  {
+    return m_size;
+  }
+
+  /** The number of levels, 0 for an empty tree and 1 for a single leaf. */
+  public int height()
+  {
+    return m_height;
+  }
+
+  @SuppressWarnings("unchecked")
+  private int compare(Object a, Object b)
+  {
+    return m_comparator.compare((T) a, (T) b);
+  }
+
+  @SuppressWarnings("unchecked")
+  private static <T> T key(Node node, int index)
+  {
+    return (T) node.m_keys[index];
+  }
+
+  /** The index of {@code key} in the node, or {@code -(insertion point) - 1}. */
+  private int search(Node node, Object key)
+  {
+    int lo = 0;
+    int hi = node.m_count - 1;
+    while (lo <= hi)
+    {
+      int mid = (lo + hi) >>> 1;
+      int cmp = compare(node.m_keys[mid], key);
+      if (cmp < 0)
+      {
+        lo = mid + 1;
+      }
+      else if (cmp > 0)
+      {
+        hi = mid - 1;
+      }
+      else
+      {
+        return mid;
+      }
+    }
+    return -(lo + 1);
+  }
+
+  private int childIndex(Inner node, Object key)
+  {
+    int i = search(node, key);
+    return i >= 0 ? i + 1 : -i - 1;
+  }
+
+  /** The leaf where {@code key} is or would be; the tree must not be empty. */
+  private Leaf leafFor(Object key)
+  {
+    Node node = m_root;
+    while (node instanceof Inner)
+    {
+      Inner inner = (Inner) node;
+      node = inner.m_children[childIndex(inner, key)];
+    }
+    return (Leaf) node;
+  }
+
+  private static void insertAt(Object[] array, int length, int index, Object value)
+  {
+    System.arraycopy(array, index, array, index + 1, length - index);
+    array[index] = value;
+  }
+
+  private static void removeAt(Object[] array, int length, int index)
+  {
+    System.arraycopy(array, index + 1, array, index, length - index - 1);
+    array[length - 1] = null;
+  }
+
+  @Override
+  public boolean add(T e)
+  {
+    if (e == null)
+    {
+      throw new NullPointerException();
+    }
+    if (m_root == null)
+    {
+      Leaf leaf = new Leaf(m_maxKeys);
+      leaf.m_keys[0] = e;
+      leaf.m_count = 1;
+      m_root = m_first = m_last = leaf;
+      m_height = 1;
+      m_size = 1;
+      m_modCount++;
+      return true;
+    }
+    int before = m_size;
+    Node sibling = insert(m_root, e);
+    if (sibling != null)
+    {
+      Inner root = new Inner(m_maxKeys);
+      root.m_keys[0] = m_splitKey;
+      root.m_children[0] = m_root;
+      root.m_children[1] = sibling;
+      root.m_count = 1;
+      m_root = root;
+      m_height++;
+    }
+    m_splitKey = null;
+    return m_size != before;
+  }
+
+  /** Inserts {@code e} under {@code node}, returning the new right sibling of {@code node} if it had to split. */
+  private Node insert(Node node, T e)
+  {
+    if (node instanceof Leaf)
+    {
+      Leaf leaf = (Leaf) node;
+      int i = search(leaf, e);
+      if (i >= 0)
+      {
+        return null;
+      }
+      insertAt(leaf.m_keys, leaf.m_count, -i - 1, e);
+      leaf.m_count++;
+      m_size++;
+      m_modCount++;
+      return leaf.m_count > m_maxKeys ? splitLeaf(leaf) : null;
+    }
+    Inner inner = (Inner) node;
+    int c = childIndex(inner, e);
+    Node sibling = insert(inner.m_children[c], e);
+    if (sibling == null)
+    {
+      return null;
+    }
+    insertAt(inner.m_keys, inner.m_count, c, m_splitKey);
+    insertAt(inner.m_children, inner.m_count + 1, c + 1, sibling);
+    inner.m_count++;
+    return inner.m_count > m_maxKeys ? splitInner(inner) : null;
+  }
+
+  private Leaf splitLeaf(Leaf leaf)
+  {
+    Leaf right = new Leaf(m_maxKeys);
+    int keep = leaf.m_count / 2;
+    int moved = leaf.m_count - keep;
+    System.arraycopy(leaf.m_keys, keep, right.m_keys, 0, moved);
+    Arrays.fill(leaf.m_keys, keep, leaf.m_count, null);
+    leaf.m_count = keep;
+    right.m_count = moved;
+    right.m_next = leaf.m_next;
+    if (leaf.m_next != null)
+    {
+      leaf.m_next.m_prev = right;
+    }
+    else
+    {
+      m_last = right;
+    }
+    right.m_prev = leaf;
+    leaf.m_next = right;
+    m_splitKey = right.m_keys[0];
+    return right;
+  }
+
+  /** The middle key moves up as the separator, the keys and children after it to the new sibling. */
+  private Inner splitInner(Inner inner)
+  {
+    Inner right = new Inner(m_maxKeys);
+    int mid = inner.m_count / 2;
+    int moved = inner.m_count - mid - 1;
+    m_splitKey = inner.m_keys[mid];
+    System.arraycopy(inner.m_keys, mid + 1, right.m_keys, 0, moved);
+    System.arraycopy(inner.m_children, mid + 1, right.m_children, 0, moved + 1);
+    Arrays.fill(inner.m_keys, mid, inner.m_count, null);
+    Arrays.fill(inner.m_children, mid + 1, inner.m_count + 1, null);
+    inner.m_count = mid;
+    right.m_count = moved;
+    return right;
+  }
+
+  @Override
+  public boolean remove(Object o)
+  {
+    if (m_root == null || o == null)
+    {
+      return false;
+    }
+    int before = m_size;
+    remove(m_root, o);
+    if (m_size == before)
+    {
+      return false;
+    }
+    if (m_root.m_count == 0)
+    {
+      if (m_root instanceof Inner)
+      {
+        m_root = ((Inner) m_root).m_children[0];
+      }
+      else
+      {
+        m_root = m_first = m_last = null;
+      }
+      m_height--;
+    }
+    return true;
+  }
+
+  /** Removes {@code key} from under {@code node}, leaving {@code node} itself possibly under-full. */
+  private void remove(Node node, Object key)
+  {
+    if (node instanceof Leaf)
+    {
+      int i = search(node, key);
+      if (i >= 0)
+      {
+        removeAt(node.m_keys, node.m_count, i);
+        node.m_count--;
+        m_size--;
+        m_modCount++;
+      }
+      return;
+    }
+    Inner inner = (Inner) node;
+    int c = childIndex(inner, key);
+    Node child = inner.m_children[c];
+    remove(child, key);
+    if (child.m_count < m_minKeys)
+    {
+      rebalance(inner, c);
+    }
+  }
+
+  /** Refills child {@code c} of {@code parent} from a sibling, or merges it with one. */
+  private void rebalance(Inner parent, int c)
+  {
+    Node left = c > 0 ? parent.m_children[c - 1] : null;
+    Node right = c < parent.m_count ? parent.m_children[c + 1] : null;
+    if (left != null && left.m_count > m_minKeys)
+    {
+      borrowFromLeft(parent, c);
+    }
+    else if (right != null && right.m_count > m_minKeys)
+    {
+      borrowFromRight(parent, c);
+    }
+    else if (left != null)
+    {
+      merge(parent, c - 1);
+    }
+    else
+    {
+      merge(parent, c);
+    }
+  }
+
+  private void borrowFromLeft(Inner parent, int c)
+  {
+    Node child = parent.m_children[c];
+    Node left = parent.m_children[c - 1];
+    if (child instanceof Leaf)
+    {
+      insertAt(child.m_keys, child.m_count, 0, left.m_keys[left.m_count - 1]);
+      parent.m_keys[c - 1] = child.m_keys[0];
+    }
+    else
+    {
+      Inner innerChild = (Inner) child;
+      Inner innerLeft = (Inner) left;
+      insertAt(child.m_keys, child.m_count, 0, parent.m_keys[c - 1]);
+      insertAt(innerChild.m_children, child.m_count + 1, 0, innerLeft.m_children[left.m_count]);
+      innerLeft.m_children[left.m_count] = null;
+      parent.m_keys[c - 1] = left.m_keys[left.m_count - 1];
+    }
+    left.m_keys[left.m_count - 1] = null;
+    left.m_count--;
+    child.m_count++;
+  }
+
+  private void borrowFromRight(Inner parent, int c)
+  {
+    Node child = parent.m_children[c];
+    Node right = parent.m_children[c + 1];
+    if (child instanceof Leaf)
+    {
+      child.m_keys[child.m_count] = right.m_keys[0];
+      removeAt(right.m_keys, right.m_count, 0);
+      parent.m_keys[c] = right.m_keys[0];
+    }
+    else
+    {
+      Inner innerChild = (Inner) child;
+      Inner innerRight = (Inner) right;
+      child.m_keys[child.m_count] = parent.m_keys[c];
+      innerChild.m_children[child.m_count + 1] = innerRight.m_children[0];
+      parent.m_keys[c] = right.m_keys[0];
+      removeAt(right.m_keys, right.m_count, 0);
+      removeAt(innerRight.m_children, right.m_count + 1, 0);
+    }
+    right.m_count--;
+    child.m_count++;
+  }
+
+  /** Merges child {@code i + 1} of {@code parent} into child {@code i}. */
+  private void merge(Inner parent, int i)
+  {
+    Node left = parent.m_children[i];
+    Node right = parent.m_children[i + 1];
+    if (left instanceof Leaf)
+    {
+      System.arraycopy(right.m_keys, 0, left.m_keys, left.m_count, right.m_count);
+      left.m_count += right.m_count;
+      Leaf leftLeaf = (Leaf) left;
+      Leaf rightLeaf = (Leaf) right;
+      leftLeaf.m_next = rightLeaf.m_next;
+      if (rightLeaf.m_next != null)
+      {
+        rightLeaf.m_next.m_prev = leftLeaf;
+      }
+      else
+      {
+        m_last = leftLeaf;
+      }
+    }
+    else
+    {
+      left.m_keys[left.m_count] = parent.m_keys[i];
+      System.arraycopy(right.m_keys, 0, left.m_keys, left.m_count + 1, right.m_count);
+      System.arraycopy(((Inner) right).m_children, 0, ((Inner) left).m_children, left.m_count + 1, right.m_count + 1);
+      left.m_count += right.m_count + 1;
+    }
+    removeAt(parent.m_keys, parent.m_count, i);
+    removeAt(parent.m_children, parent.m_count + 1, i + 1);
+    parent.m_count--;
+  }
+
+  @Override
+  public void clear()
+  {
+    m_root = m_first = m_last = null;
+    m_size = 0;
+    m_height = 0;
+    m_modCount++;
+  }
+
+  @Override
+  public boolean contains(Object o)
+  {
+    return m_root != null && o != null && search(leafFor(o), o) >= 0;
+  }
+
+  @Override
+  public T ceiling(T e)
+  {
+    if (m_root == null)
+    {
+      return null;
+    }
+    Leaf leaf = leafFor(e);
+    int i = search(leaf, e);
+    return atOrAfter(leaf, i >= 0 ? i : -i - 1);
+  }
+
+  @Override
+  public T higher(T e)
+  {
+    if (m_root == null)
+    {
+      return null;
+    }
+    Leaf leaf = leafFor(e);
+    int i = search(leaf, e);
+    return atOrAfter(leaf, i >= 0 ? i + 1 : -i - 1);
+  }
+
+  @Override
+  public T floor(T e)
+  {
+    if (m_root == null)
+    {
+      return null;
+    }
+    Leaf leaf = leafFor(e);
+    int i = search(leaf, e);
+    return atOrBefore(leaf, i >= 0 ? i : -i - 2);
+  }
+
+  @Override
+  public T lower(T e)
+  {
+    if (m_root == null)
+    {
+      return null;
+    }
+    Leaf leaf = leafFor(e);
+    int i = search(leaf, e);
+    return atOrBefore(leaf, i >= 0 ? i - 1 : -i - 2);
+  }
+
+  /** The key at {@code index} of the leaf, or the first of the next leaf if it is past the end. */
+  private static <T> T atOrAfter(Leaf leaf, int index)
+  {
+    if (index < leaf.m_count)
+    {
+      return key(leaf, index);
+    }
+    return leaf.m_next == null ? null : key(leaf.m_next, 0);
+  }
+
+  /** The key at {@code index} of the leaf, or the last of the previous leaf if it is before the start. */
+  private static <T> T atOrBefore(Leaf leaf, int index)
+  {
+    if (index >= 0)
+    {
+      return key(leaf, index);
+    }
+    return leaf.m_prev == null ? null : key(leaf.m_prev, leaf.m_prev.m_count - 1);
+  }
+
+  @Override
+  public T first()
+  {
+    if (m_first == null)
+    {
+      throw new NoSuchElementException();
+    }
+    return key(m_first, 0);
+  }
+
+  @Override
+  public T last()
+  {
+    if (m_last == null)
+    {
+      throw new NoSuchElementException();
+    }
+    return key(m_last, m_last.m_count - 1);
+  }
+
+  @Override
+  public T pollFirst()
+  {
+    if (m_first == null)
+    {
+      return null;
+    }
+    T first = key(m_first, 0);
+    remove(first);
+    return first;
+  }
+
+  @Override
+  public T pollLast()
+  {
+    if (m_last == null)
+    {
+      return null;
+    }
+    T last = key(m_last, m_last.m_count - 1);
+    remove(last);
+    return last;
+  }
+
+  /**
+   * Walks along the leaves from a start key, or from the first or last element if it is
+   * {@code null}, until the fence, if any. {@code remove()} removes through the tree and then finds
+   * its place again, as the leaves may have been merged or refilled.
+   */
+  private final class Cursor implements Iterator<T>
+  {
+    private final boolean m_ascending;
+    private final Object m_fence;
+    private final boolean m_fenceInclusive;
+    private Leaf m_leaf;
+    private int m_index;
+    private T m_lastReturned;
+    private int m_expectedModCount = m_modCount;
+
+    Cursor(Object start, boolean startInclusive, boolean ascending, Object fence, boolean fenceInclusive)
+    {
+      m_ascending = ascending;
+      m_fence = fence;
+      m_fenceInclusive = fenceInclusive;
+      if (start == null)
+      {
+        m_leaf = ascending ? m_first : m_last;
+        m_index = m_leaf == null || ascending ? 0 : m_leaf.m_count - 1;
+      }
+      else
+      {
+        seek(start, startInclusive);
+      }
+    }
+
+    /** Moves to the first key from {@code key} on in the direction of the walk. */
+    private void seek(Object key, boolean inclusive)
+    {
+      if (m_root == null)
+      {
+        m_leaf = null;
+        return;
+      }
+      m_leaf = leafFor(key);
+      int i = search(m_leaf, key);
+      if (m_ascending)
+      {
+        m_index = i >= 0 ? (inclusive ? i : i + 1) : -i - 1;
+        if (m_index == m_leaf.m_count)
+        {
+          m_leaf = m_leaf.m_next;
+          m_index = 0;
+        }
+      }
+      else
+      {
+        m_index = i >= 0 ? (inclusive ? i : i - 1) : -i - 2;
+        if (m_index < 0)
+        {
+          m_leaf = m_leaf.m_prev;
+          m_index = m_leaf == null ? 0 : m_leaf.m_count - 1;
+        }
+      }
+    }
+
+    @Override
+    public boolean hasNext()
+    {
+      if (m_leaf == null)
+      {
+        return false;
+      }
+      if (m_fence == null)
+      {
+        return true;
+      }
+      int cmp = compare(m_leaf.m_keys[m_index], m_fence);
+      return m_ascending ? cmp < 0 || (cmp == 0 && m_fenceInclusive) : cmp > 0 || (cmp == 0 && m_fenceInclusive);
+    }
+
+    @Override
+    public T next()
+    {
+      if (m_modCount != m_expectedModCount)
+      {
+        throw new ConcurrentModificationException();
+      }
+      if (!hasNext())
+      {
+        throw new NoSuchElementException();
+      }
+      m_lastReturned = key(m_leaf, m_index);
+      if (m_ascending)
+      {
+        if (++m_index == m_leaf.m_count)
+        {
+          m_leaf = m_leaf.m_next;
+          m_index = 0;
+        }
+      }
+      else if (--m_index < 0)
+      {
+        m_leaf = m_leaf.m_prev;
+        m_index = m_leaf == null ? 0 : m_leaf.m_count - 1;
+      }
+      return m_lastReturned;
+    }
+
+    @Override
+    public void remove()
+    {
+      if (m_lastReturned == null)
+      {
+        throw new IllegalStateException();
+      }
+      if (m_modCount != m_expectedModCount)
+      {
+        throw new ConcurrentModificationException();
+      }
+      BPlusTree.this.remove(m_lastReturned);
+      seek(m_lastReturned, false);
+      m_lastReturned = null;
+      m_expectedModCount = m_modCount;
+    }
+  }
+
+  @Override
+  public Iterator<T> iterator()
+  {
+    return new Cursor(null, true, true, null, false);
+  }
+
+  @Override
+  public Iterator<T> descendingIterator()
+  {
+    return new Cursor(null, true, false, null, false);
+  }
+
+  @Override
+  public NavigableSet<T> descendingSet()
+  {
+    return new SubSet(true, null, false, true, null, false, true);
+  }
+
+  @Override
+  public NavigableSet<T> subSet(T fromElement, boolean fromInclusive, T toElement, boolean toInclusive)
+  {
+    if (compare(fromElement, toElement) > 0)
+    {
+      throw new IllegalArgumentException("fromElement > toElement");
+    }
+    return new SubSet(false, fromElement, fromInclusive, false, toElement, toInclusive, false);
+  }
+
+  @Override
+  public NavigableSet<T> headSet(T toElement, boolean inclusive)
+  {
+    return new SubSet(true, null, false, false, toElement, inclusive, false);
+  }
+
+  @Override
+  public NavigableSet<T> tailSet(T fromElement, boolean inclusive)
+  {
+    return new SubSet(false, fromElement, inclusive, true, null, false, false);
+  }
+
+  @Override
+  public SortedSet<T> subSet(T fromElement, T toElement)
+  {
+    return subSet(fromElement, true, toElement, false);
+  }
+
+  @Override
+  public SortedSet<T> headSet(T toElement)
+  {
+    return headSet(toElement, false);
+  }
+
+  @Override
+  public SortedSet<T> tailSet(T fromElement)
+  {
+    return tailSet(fromElement, true);
+  }
+
+  /**
+   * A live view of the elements between two bounds, in ascending or descending order. The bounds
+   * are always kept in ascending terms, {@code lo} below {@code hi}, whatever the order of the view.
+   */
+  private final class SubSet extends AbstractSet<T> implements NavigableSet<T>
+  {
+    private final boolean m_fromStart;
+    private final T m_lo;
+    private final boolean m_loInclusive;
+    private final boolean m_toEnd;
+    private final T m_hi;
+    private final boolean m_hiInclusive;
+    private final boolean m_descending;
+
+    SubSet(boolean fromStart, T lo, boolean loInclusive, boolean toEnd, T hi, boolean hiInclusive, boolean descending)
+    {
+      m_fromStart = fromStart;
+      m_lo = lo;
+      m_loInclusive = loInclusive;
+      m_toEnd = toEnd;
+      m_hi = hi;
+      m_hiInclusive = hiInclusive;
+      m_descending = descending;
+    }
+
+    private boolean tooLow(Object e)
+    {
+      if (m_fromStart)
+      {
+        return false;
+      }
+      int cmp = compare(e, m_lo);
+      return cmp < 0 || (cmp == 0 && !m_loInclusive);
+    }
+
+    private boolean tooHigh(Object e)
+    {
+      if (m_toEnd)
+      {
+        return false;
+      }
+      int cmp = compare(e, m_hi);
+      return cmp > 0 || (cmp == 0 && !m_hiInclusive);
+    }
+
+    private boolean inRange(Object e)
+    {
+      return !tooLow(e) && !tooHigh(e);
+    }
+
+    /** Whether a bound of a new view is within this one: an exclusive bound may sit on an exclusive bound. */
+    private void checkBound(T e, boolean inclusive)
+    {
+      if (!m_fromStart)
+      {
+        int cmp = compare(e, m_lo);
+        if (cmp < 0 || (cmp == 0 && !m_loInclusive && inclusive))
+        {
+          throw new IllegalArgumentException("Bound out of range: " + e);
+        }
+      }
+      if (!m_toEnd)
+      {
+        int cmp = compare(e, m_hi);
+        if (cmp > 0 || (cmp == 0 && !m_hiInclusive && inclusive))
+        {
+          throw new IllegalArgumentException("Bound out of range: " + e);
+        }
+      }
+    }
+
+    private T lowest()
+    {
+      T e = m_fromStart ? (m_size == 0 ? null : BPlusTree.this.first()) : m_loInclusive ? BPlusTree.this.ceiling(m_lo) : BPlusTree.this.higher(m_lo);
+      return e == null || tooHigh(e) ? null : e;
+    }
+
+    private T highest()
+    {
+      T e = m_toEnd ? (m_size == 0 ? null : BPlusTree.this.last()) : m_hiInclusive ? BPlusTree.this.floor(m_hi) : BPlusTree.this.lower(m_hi);
+      return e == null || tooLow(e) ? null : e;
+    }
+
+    private T absCeiling(T e)
+    {
+      if (tooLow(e))
+      {
+        return lowest();
+      }
+      T c = BPlusTree.this.ceiling(e);
+      return c == null || tooHigh(c) ? null : c;
+    }
+
+    private T absHigher(T e)
+    {
+      if (tooLow(e))
+      {
+        return lowest();
+      }
+      T c = BPlusTree.this.higher(e);
+      return c == null || tooHigh(c) ? null : c;
+    }
+
+    private T absFloor(T e)
+    {
+      if (tooHigh(e))
+      {
+        return highest();
+      }
+      T c = BPlusTree.this.floor(e);
+      return c == null || tooLow(c) ? null : c;
+    }
+
+    private T absLower(T e)
+    {
+      if (tooHigh(e))
+      {
+        return highest();
+      }
+      T c = BPlusTree.this.lower(e);
+      return c == null || tooLow(c) ? null : c;
+    }
+
+    @Override
+    public T lower(T e)
+    {
+      return m_descending ? absHigher(e) : absLower(e);
+    }
+
+    @Override
+    public T floor(T e)
+    {
+      return m_descending ? absCeiling(e) : absFloor(e);
+    }
+
+    @Override
+    public T ceiling(T e)
+    {
+      return m_descending ? absFloor(e) : absCeiling(e);
+    }
+
+    @Override
+    public T higher(T e)
+    {
+      return m_descending ? absLower(e) : absHigher(e);
+    }
+
+    @Override
+    public T first()
+    {
+      T e = m_descending ? highest() : lowest();
+      if (e == null)
+      {
+        throw new NoSuchElementException();
+      }
+      return e;
+    }
+
+    @Override
+    public T last()
+    {
+      T e = m_descending ? lowest() : highest();
+      if (e == null)
+      {
+        throw new NoSuchElementException();
+      }
+      return e;
+    }
+
+    @Override
+    public T pollFirst()
+    {
+      T e = m_descending ? highest() : lowest();
+      if (e != null)
+      {
+        BPlusTree.this.remove(e);
+      }
+      return e;
+    }
+
+    @Override
+    public T pollLast()
+    {
+      T e = m_descending ? lowest() : highest();
+      if (e != null)
+      {
+        BPlusTree.this.remove(e);
+      }
+      return e;
+    }
+
+    private Iterator<T> iterator(boolean descending)
+    {
+      if (descending)
+      {
+        return new Cursor(m_toEnd ? null : m_hi, m_hiInclusive, false, m_fromStart ? null : m_lo, m_loInclusive);
+      }
+      return new Cursor(m_fromStart ? null : m_lo, m_loInclusive, true, m_toEnd ? null : m_hi, m_hiInclusive);
+    }
+
+    @Override
+    public Iterator<T> iterator()
+    {
+      return iterator(m_descending);
+    }
+
+    @Override
+    public Iterator<T> descendingIterator()
+    {
+      return iterator(!m_descending);
+    }
+
+    @Override
+    public NavigableSet<T> descendingSet()
+    {
+      return new SubSet(m_fromStart, m_lo, m_loInclusive, m_toEnd, m_hi, m_hiInclusive, !m_descending);
+    }
+
+    @Override
+    public NavigableSet<T> subSet(T fromElement, boolean fromInclusive, T toElement, boolean toInclusive)
+    {
+      if (compare(fromElement, toElement) * (m_descending ? -1 : 1) > 0)
+      {
+        throw new IllegalArgumentException("fromElement > toElement");
+      }
+      checkBound(fromElement, fromInclusive);
+      checkBound(toElement, toInclusive);
+      if (m_descending)
+      {
+        return new SubSet(false, toElement, toInclusive, false, fromElement, fromInclusive, true);
+      }
+      return new SubSet(false, fromElement, fromInclusive, false, toElement, toInclusive, false);
+    }
+
+    @Override
+    public NavigableSet<T> headSet(T toElement, boolean inclusive)
+    {
+      checkBound(toElement, inclusive);
+      if (m_descending)
+      {
+        return new SubSet(false, toElement, inclusive, m_toEnd, m_hi, m_hiInclusive, true);
+      }
+      return new SubSet(m_fromStart, m_lo, m_loInclusive, false, toElement, inclusive, false);
+    }
+
+    @Override
+    public NavigableSet<T> tailSet(T fromElement, boolean inclusive)
+    {
+      checkBound(fromElement, inclusive);
+      if (m_descending)
+      {
+        return new SubSet(m_fromStart, m_lo, m_loInclusive, false, fromElement, inclusive, true);
+      }
+      return new SubSet(false, fromElement, inclusive, m_toEnd, m_hi, m_hiInclusive, false);
+    }
+
+    @Override
+    public SortedSet<T> subSet(T fromElement, T toElement)
+    {
+      return subSet(fromElement, true, toElement, false);
+    }
+
+    @Override
+    public SortedSet<T> headSet(T toElement)
+    {
+      return headSet(toElement, false);
+    }
+
+    @Override
+    public SortedSet<T> tailSet(T fromElement)
+    {
+      return tailSet(fromElement, true);
+    }
+
+    @Override
+    public Comparator<? super T> comparator()
+    {
+      return m_descending ? Collections.reverseOrder(m_comparator) : m_comparator;
+    }
+
+    /** Counts the elements, in O(log n + size). */
+    @Override
+    public int size()
+    {
+      int size = 0;
+      for (Iterator<T> it = iterator(false); it.hasNext(); it.next())
+      {
+        size++;
+      }
+      return size;
+    }
+
+    @Override
+    public boolean isEmpty()
+    {
+      return lowest() == null;
+    }
+
+    @Override
+    public boolean contains(Object o)
+    {
+      return o != null && inRange(o) && BPlusTree.this.contains(o);
+    }
+
+    @Override
+    public boolean add(T e)
+    {
+      if (!inRange(e))
+      {
+        throw new IllegalArgumentException("Element out of range: " + e);
+      }
+      return BPlusTree.this.add(e);
+    }
+
+    @Override
+    public boolean remove(Object o)
+    {
+      return o != null && inRange(o) && BPlusTree.this.remove(o);
+    }
+  }
+}
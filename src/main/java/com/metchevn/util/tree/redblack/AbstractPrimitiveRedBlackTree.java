@@ -0,0 +1,553 @@
+package com.metchevn.util.tree.redblack;
+
+import static com.metchevn.util.tree.redblack.Colour.BLACK;
+import static com.metchevn.util.tree.redblack.Colour.RED;
+
+import java.util.Arrays;
+
+/**
+ * The links and colours of a red-black tree over primitive keys, kept in parallel arrays indexed by
+ * node instead of in node objects. A node is an {@code int} index, {@link #NIL} stands for no node.
+ * Subclasses keep the keys in an array of their own and do the searching, which is the only part
+ * that depends on the key type.
+ * <p>
+ * Each node costs three {@code int} links and one bit of colour on top of its key. Removed nodes are
+ * recycled through a free list threaded through the left links.
+ */
+public abstract class AbstractPrimitiveRedBlackTree
+{
+  public static final int NIL = -1;
+  private static final int DEFAULT_CAPACITY = 16;
+
+  private int[] m_left;
+  private int[] m_right;
+  private int[] m_parent;
+  /** One bit per node, set for black nodes. */
+  private long[] m_colours;
+  private int m_root = NIL;
+  private int m_size = 0;
+  /** The first node that has never been used. */
+  private int m_next = 0;
+  /** Head of the removed nodes, linked through {@link #m_left}. */
+  private int m_free = NIL;
+
+  protected AbstractPrimitiveRedBlackTree(int initialCapacity)
+  {
+    int capacity = Math.max(initialCapacity, 1);
+    m_left = new int[capacity];
+    m_right = new int[capacity];
+    m_parent = new int[capacity];
+    m_colours = new long[(capacity + 63) >>> 6];
+  }
+
+  protected AbstractPrimitiveRedBlackTree()
+  {
+    this(DEFAULT_CAPACITY);
+  }
+
+  /** Resizes the key storage, keeping the keys of nodes below {@code capacity}. */
+  protected abstract void resizeKeys(int capacity);
+
+  /** Copies the key of node {@code from} over the key of node {@code to}. */
+  protected abstract void copyKey(int from, int to);
+
+  public int size()
+  {
+    return m_size;
+  }
+
+  public boolean isEmpty()
+  {
+    return m_size == 0;
+  }
+
+  public void clear()
+  {
+    m_root = NIL;
+    m_size = 0;
+    m_next = 0;
+    m_free = NIL;
+  }
+
+  /** The number of nodes the arrays can hold before they grow. */
+  public int capacity()
+  {
+    return m_left.length;
+  }
+
+  public int getRoot()
+  {
+    return m_root;
+  }
+
+  public int getLeft(int node)
+  {
+    return m_left[node];
+  }
+
+  public int getRight(int node)
+  {
+    return m_right[node];
+  }
+
+  public int getParent(int node)
+  {
+    return m_parent[node];
+  }
+
+  public boolean getColour(int node)
+  {
+    return (m_colours[node >>> 6] & (1L << node)) != 0;
+  }
+
+  private void setColour(int node, boolean colour)
+  {
+    if (colour == BLACK)
+    {
+      m_colours[node >>> 6] |= 1L << node;
+    }
+    else
+    {
+      m_colours[node >>> 6] &= ~(1L << node);
+    }
+  }
+
+  private boolean colorOf(int p)
+  {
+    return p == NIL ? BLACK : getColour(p);
+  }
+
+  private void setColor(int p, boolean c)
+  {
+    if (p != NIL)
+    {
+      setColour(p, c);
+    }
+  }
+
+  private int parentOf(int p)
+  {
+    return p == NIL ? NIL : m_parent[p];
+  }
+
+  private int leftOf(int p)
+  {
+    return p == NIL ? NIL : m_left[p];
+  }
+
+  private int rightOf(int p)
+  {
+    return p == NIL ? NIL : m_right[p];
+  }
+
+  /** A detached black node, for the subclass to store its key in before {@link #insert}. */
+  protected int allocate()
+  {
+    int node;
+    if (m_free != NIL)
+    {
+      node = m_free;
+      m_free = m_left[node];
+    }
+    else
+    {
+      if (m_next == m_left.length)
+      {
+        grow();
+      }
+      node = m_next++;
+    }
+    m_left[node] = NIL;
+    m_right[node] = NIL;
+    m_parent[node] = NIL;
+    setColour(node, BLACK);
+    return node;
+  }
+
+  private void grow()
+  {
+    int capacity = m_left.length + Math.max(m_left.length >> 1, 1);
+    if (capacity < 0)
+    {
+      capacity = Integer.MAX_VALUE - 8;
+    }
+    m_left = Arrays.copyOf(m_left, capacity);
+    m_right = Arrays.copyOf(m_right, capacity);
+    m_parent = Arrays.copyOf(m_parent, capacity);
+    m_colours = Arrays.copyOf(m_colours, (capacity + 63) >>> 6);
+    resizeKeys(capacity);
+  }
+
+  /**
+   * Links {@code node} below {@code parent}, on its left if {@code cmp < 0}, or as the root if the tree
+   * is empty, then rebalances.
+   */
+  protected void insert(int parent, int cmp, int node)
+  {
+    if (parent == NIL)
+    {
+      m_root = node;
+    }
+    else
+    {
+      m_parent[node] = parent;
+      if (cmp < 0)
+      {
+        m_left[parent] = node;
+      }
+      else
+      {
+        m_right[parent] = node;
+      }
+      fixAfterInsertion(node);
+    }
+    m_size++;
+  }
+
+  public int getFirstNode()
+  {
+    int p = m_root;
+    if (p != NIL)
+    {
+      while (m_left[p] != NIL)
+      {
+        p = m_left[p];
+      }
+    }
+    return p;
+  }
+
+  public int getLastNode()
+  {
+    int p = m_root;
+    if (p != NIL)
+    {
+      while (m_right[p] != NIL)
+      {
+        p = m_right[p];
+      }
+    }
+    return p;
+  }
+
+  public int successor(int t)
+  {
+    if (t == NIL)
+    {
+      return NIL;
+    }
+    else if (m_right[t] != NIL)
+    {
+      int p = m_right[t];
+      while (m_left[p] != NIL)
+      {
+        p = m_left[p];
+      }
+      return p;
+    }
+    else
+    {
+      int p = m_parent[t];
+      int ch = t;
+      while (p != NIL && ch == m_right[p])
+      {
+        ch = p;
+        p = m_parent[p];
+      }
+      return p;
+    }
+  }
+
+  public int predecessor(int t)
+  {
+    if (t == NIL)
+    {
+      return NIL;
+    }
+    else if (m_left[t] != NIL)
+    {
+      int p = m_left[t];
+      while (m_right[p] != NIL)
+      {
+        p = m_right[p];
+      }
+      return p;
+    }
+    else
+    {
+      int p = m_parent[t];
+      int ch = t;
+      while (p != NIL && ch == m_left[p])
+      {
+        ch = p;
+        p = m_parent[p];
+      }
+      return p;
+    }
+  }
+
+  /** The parent of the leftmost node above which every node is greater, for ceiling searches. */
+  protected int ascendFromRight(int p)
+  {
+    int parent = m_parent[p];
+    int ch = p;
+    while (parent != NIL && ch == m_right[parent])
+    {
+      ch = parent;
+      parent = m_parent[parent];
+    }
+    return parent;
+  }
+
+  /** The mirror image of {@link #ascendFromRight(int)}, for floor searches. */
+  protected int ascendFromLeft(int p)
+  {
+    int parent = m_parent[p];
+    int ch = p;
+    while (parent != NIL && ch == m_left[parent])
+    {
+      ch = parent;
+      parent = m_parent[parent];
+    }
+    return parent;
+  }
+
+  /** From CLR */
+  private void rotateLeft(int p)
+  {
+    if (p != NIL)
+    {
+      int r = m_right[p];
+      m_right[p] = m_left[r];
+      if (m_left[r] != NIL)
+      {
+        m_parent[m_left[r]] = p;
+      }
+      m_parent[r] = m_parent[p];
+      if (m_parent[p] == NIL)
+      {
+        m_root = r;
+      }
+      else if (m_left[m_parent[p]] == p)
+      {
+        m_left[m_parent[p]] = r;
+      }
+      else
+      {
+        m_right[m_parent[p]] = r;
+      }
+      m_left[r] = p;
+      m_parent[p] = r;
+    }
+  }
+
+  /** From CLR */
+  private void rotateRight(int p)
+  {
+    if (p != NIL)
+    {
+      int l = m_left[p];
+      m_left[p] = m_right[l];
+      if (m_right[l] != NIL)
+      {
+        m_parent[m_right[l]] = p;
+      }
+      m_parent[l] = m_parent[p];
+      if (m_parent[p] == NIL)
+      {
+        m_root = l;
+      }
+      else if (m_right[m_parent[p]] == p)
+      {
+        m_right[m_parent[p]] = l;
+      }
+      else
+      {
+        m_left[m_parent[p]] = l;
+      }
+      m_right[l] = p;
+      m_parent[p] = l;
+    }
+  }
+
+  /** From CLR */
+  private void fixAfterInsertion(int x)
+  {
+    setColour(x, RED);
+    while (x != NIL && x != m_root && colorOf(m_parent[x]) == RED)
+    {
+      if (parentOf(x) == leftOf(parentOf(parentOf(x))))
+      {
+        int y = rightOf(parentOf(parentOf(x)));
+        if (colorOf(y) == RED)
+        {
+          setColor(parentOf(x), BLACK);
+          setColor(y, BLACK);
+          setColor(parentOf(parentOf(x)), RED);
+          x = parentOf(parentOf(x));
+        }
+        else
+        {
+          if (x == rightOf(parentOf(x)))
+          {
+            x = parentOf(x);
+            rotateLeft(x);
+          }
+          setColor(parentOf(x), BLACK);
+          setColor(parentOf(parentOf(x)), RED);
+          rotateRight(parentOf(parentOf(x)));
+        }
+      }
+      else
+      {
+        int y = leftOf(parentOf(parentOf(x)));
+        if (colorOf(y) == RED)
+        {
+          setColor(parentOf(x), BLACK);
+          setColor(y, BLACK);
+          setColor(parentOf(parentOf(x)), RED);
+          x = parentOf(parentOf(x));
+        }
+        else
+        {
+          if (x == leftOf(parentOf(x)))
+          {
+            x = parentOf(x);
+            rotateRight(x);
+          }
+          setColor(parentOf(x), BLACK);
+          setColor(parentOf(parentOf(x)), RED);
+          rotateLeft(parentOf(parentOf(x)));
+        }
+      }
+    }
+    setColour(m_root, BLACK);
+  }
+
+  /**
+   * Delete node p, and then rebalance the tree. The node that is unlinked, which is p's successor
+   * if p has two children, goes back to the free list.
+   */
+  protected void deleteNode(int p)
+  {
+    m_size--;
+    // If strictly internal, copy successor's key to p and then make p
+    // point to successor.
+    if (m_left[p] != NIL && m_right[p] != NIL)
+    {
+      int s = successor(p);
+      copyKey(s, p);
+      p = s;
+    } // p has 2 children
+    // Start fixup at replacement node, if it exists.
+    int replacement = (m_left[p] != NIL ? m_left[p] : m_right[p]);
+    if (replacement != NIL)
+    {
+      // Link replacement to parent
+      m_parent[replacement] = m_parent[p];
+      if (m_parent[p] == NIL)
+        m_root = replacement;
+      else if (p == m_left[m_parent[p]])
+        m_left[m_parent[p]] = replacement;
+      else
+        m_right[m_parent[p]] = replacement;
+      // Null out links so they are OK to use by fixAfterDeletion.
+      m_left[p] = NIL;
+      m_right[p] = NIL;
+      m_parent[p] = NIL;
+      // Fix replacement
+      if (getColour(p) == BLACK)
+        fixAfterDeletion(replacement);
+    }
+    else if (m_parent[p] == NIL)
+    { // return if we are the only node.
+      m_root = NIL;
+    }
+    else
+    { // No children. Use self as phantom replacement and unlink.
+      if (getColour(p) == BLACK)
+        fixAfterDeletion(p);
+      if (m_parent[p] != NIL)
+      {
+        if (p == m_left[m_parent[p]])
+          m_left[m_parent[p]] = NIL;
+        else if (p == m_right[m_parent[p]])
+          m_right[m_parent[p]] = NIL;
+        m_parent[p] = NIL;
+      }
+    }
+    m_left[p] = m_free;
+    m_free = p;
+  }
+
+  /** From CLR */
+  private void fixAfterDeletion(int x)
+  {
+    while (x != m_root && colorOf(x) == BLACK)
+    {
+      if (x == leftOf(parentOf(x)))
+      {
+        int sib = rightOf(parentOf(x));
+        if (colorOf(sib) == RED)
+        {
+          setColor(sib, BLACK);
+          setColor(parentOf(x), RED);
+          rotateLeft(parentOf(x));
+          sib = rightOf(parentOf(x));
+        }
+        if (colorOf(leftOf(sib)) == BLACK && colorOf(rightOf(sib)) == BLACK)
+        {
+          setColor(sib, RED);
+          x = parentOf(x);
+        }
+        else
+        {
+          if (colorOf(rightOf(sib)) == BLACK)
+          {
+            setColor(leftOf(sib), BLACK);
+            setColor(sib, RED);
+            rotateRight(sib);
+            sib = rightOf(parentOf(x));
+          }
+          setColor(sib, colorOf(parentOf(x)));
+          setColor(parentOf(x), BLACK);
+          setColor(rightOf(sib), BLACK);
+          rotateLeft(parentOf(x));
+          x = m_root;
+        }
+      }
+      else
+      { // symmetric
+        int sib = leftOf(parentOf(x));
+        if (colorOf(sib) == RED)
+        {
+          setColor(sib, BLACK);
+          setColor(parentOf(x), RED);
+          rotateRight(parentOf(x));
+          sib = leftOf(parentOf(x));
+        }
+        if (colorOf(rightOf(sib)) == BLACK && colorOf(leftOf(sib)) == BLACK)
+        {
+          setColor(sib, RED);
+          x = parentOf(x);
+        }
+        else
+        {
+          if (colorOf(leftOf(sib)) == BLACK)
+          {
+            setColor(rightOf(sib), BLACK);
+            setColor(sib, RED);
+            rotateLeft(sib);
+            sib = leftOf(parentOf(x));
+          }
+          setColor(sib, colorOf(parentOf(x)));
+          setColor(parentOf(x), BLACK);
+          setColor(leftOf(sib), BLACK);
+          rotateRight(parentOf(x));
+          x = m_root;
+        }
+      }
+    }
+    setColor(x, BLACK);
+  }
+}
@@ -13,6 +13,11 @@ public abstract class AbstractRedBlackNode<T, N extends AbstractRedBlackNode<T,N
     super(payload);
   }
 
+  protected AbstractRedBlackNode(T payload, boolean trackDepth)
+  {
+    super(payload, trackDepth);
+  }
+
   @Override
   public boolean getColour()
   {
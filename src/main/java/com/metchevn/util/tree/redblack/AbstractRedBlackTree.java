@@ -5,7 +5,12 @@ import static com.metchevn.util.tree.redblack.Colour.RED;
 
 import com.metchevn.util.tree.binary.AbstractBinaryTree;
 
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.RandomAccess;
 
 public abstract class AbstractRedBlackTree<T, N extends ModifiableRedBlackNode<T, N>> extends AbstractBinaryTree<T, N> implements ModifiableRedBlackTree<T, N>
 {
@@ -19,22 +24,240 @@ public abstract class AbstractRedBlackTree<T, N extends ModifiableRedBlackNode<T
     return (p == null ? BLACK : p.getColour());
   }
 
-  protected static <T, N extends ModifiableRedBlackNode<T, N>> void setColor(N p, boolean c)
+  /** Sets the colour of {@code p}, if any, counting it as a recolouring if it changes. */
+  protected void setColor(N p, boolean c)
   {
-    if (p != null)
+    if (p != null && p.getColour() != c)
     {
       p.setColour(c);
+      recoloured();
     }
   }
 
+  /** Counts the black nodes down the left spine, which every other path matches. */
+  @Override
+  protected int blackHeight()
+  {
+    int height = 0;
+    for (N p = getRoot(); p != null; p = p.getLeft())
+    {
+      if (p.getColour() == BLACK)
+      {
+        height++;
+      }
+    }
+    return height;
+  }
+
+  /** Bulk loads an empty tree through {@link #addAllSorted(Collection)}. */
+  @Override
+  public boolean addAll(Collection<? extends T> values)
+  {
+    if (getRoot() == null)
+    {
+      return addAllSorted(values);
+    }
+    return super.addAll(values);
+  }
+
+  /**
+   * Adds the values by rebuilding the tree bottom-up, perfectly balanced, in O(n + m) for n values
+   * already in ascending order and m elements already in the tree. Unsorted values are sorted first.
+   * As with {@link #add(Object)}, elements already in the tree are kept over equal values, and the
+   * first of several equal values wins.
+   * <p>
+   * A rebuild replaces every node, so references to nodes of a non-empty tree, such as those from
+   * {@link #getNode(Object)}, no longer belong to it afterwards. It only pays when the values are
+   * not few next to the tree, see {@link #worthRebuilding}; otherwise they are inserted one by one
+   * in O(n log(n + m)) and the existing nodes are kept.
+   * <p>
+   * Nodes are linked through {@code setLeft}/{@code setRight}/{@code setParent}, children before
+   * their parent, so that augmented nodes such as
+   * {@link com.metchevn.util.tree.interval.IntervalNode} compute their summaries as they are linked.
+   */
+  public boolean addAllSorted(Collection<? extends T> values)
+  {
+    if (getRoot() != null && !worthRebuilding(m_size, values.size()))
+    {
+      return super.addAll(values);
+    }
+    List<T> sorted = sortedDistinct(values);
+    if (sorted.isEmpty())
+    {
+      return false;
+    }
+    int before = m_size;
+    if (getRoot() != null)
+    {
+      sorted = merge(this, sorted);
+    }
+    clear();
+    setRoot(build(sorted, 0, sorted.size() - 1, 0, redLevel(sorted.size())));
+    m_size = sorted.size();
+    return m_size != before;
+  }
+
+  /**
+   * Whether merging n values into a tree of m and rebuilding it, O(n + m), beats inserting them,
+   * O(n log(n + m)): when n is at least about m / log(m).
+   */
+  static boolean worthRebuilding(int existing, int added)
+  {
+    long total = (long) existing + added;
+    return (long) added * (64 - Long.numberOfLeadingZeros(total)) >= total;
+  }
+
+  @SuppressWarnings("unchecked")
+  private List<T> sortedDistinct(Collection<? extends T> values)
+  {
+    if (values instanceof List && values instanceof RandomAccess && isStrictlyAscending(values))
+    {
+      return (List<T>) values;
+    }
+    List<T> sorted = new ArrayList<>(values);
+    if (!isStrictlyAscending(sorted))
+    {
+      // stable, so the first of equal values stays first
+      sorted.sort(comparator());
+      int distinct = 0;
+      for (T value : sorted)
+      {
+        if (distinct == 0 || compare(sorted.get(distinct - 1), value) != 0)
+        {
+          sorted.set(distinct++, value);
+        }
+      }
+      sorted.subList(distinct, sorted.size()).clear();
+    }
+    return sorted;
+  }
+
+  private boolean isStrictlyAscending(Collection<? extends T> values)
+  {
+    T previous = null;
+    boolean first = true;
+    for (T value : values)
+    {
+      if (!first && compare(previous, value) >= 0)
+      {
+        return false;
+      }
+      previous = value;
+      first = false;
+    }
+    return true;
+  }
+
+  private List<T> merge(Iterable<T> existing, List<T> sorted)
+  {
+    List<T> merged = new ArrayList<>(m_size + sorted.size());
+    Iterator<T> left = existing.iterator();
+    Iterator<T> right = sorted.iterator();
+    T l = left.hasNext() ? left.next() : null;
+    T r = right.hasNext() ? right.next() : null;
+    while (l != null || r != null)
+    {
+      int cmp = l == null ? 1 : r == null ? -1 : compare(l, r);
+      if (cmp <= 0)
+      {
+        merged.add(l);
+        l = left.hasNext() ? left.next() : null;
+        if (cmp == 0)
+        {
+          r = right.hasNext() ? right.next() : null;
+        }
+      }
+      else
+      {
+        merged.add(r);
+        r = right.hasNext() ? right.next() : null;
+      }
+    }
+    return merged;
+  }
+
+  /**
+   * The level at which the nodes of a tree built by {@link #build} are red: the deepest one, when it
+   * is not full, so that every path has the same number of black nodes.
+   */
+  static int redLevel(int size)
+  {
+    int level = 0;
+    for (int m = size - 1; m >= 0; m = m / 2 - 1)
+    {
+      level++;
+    }
+    return level;
+  }
+
+  private N build(List<T> sorted, int lo, int hi, int level, int redLevel)
+  {
+    if (hi < lo)
+    {
+      return null;
+    }
+    int mid = (lo + hi) >>> 1;
+    N left = build(sorted, lo, mid - 1, level + 1, redLevel);
+    N node = construct(sorted.get(mid));
+    node.setColour(level == redLevel ? RED : BLACK);
+    N right = build(sorted, mid + 1, hi, level + 1, redLevel);
+    if (left != null)
+    {
+      node.setLeft(left);
+      left.setParent(node);
+    }
+    if (right != null)
+    {
+      node.setRight(right);
+      right.setParent(node);
+    }
+    augment(node);
+    return node;
+  }
+
+  /**
+   * Replaces the contents with the nodes of a {@link RedBlackTreeSnapshot}, linked as
+   * {@link #build} links them. Nothing is compared: the snapshot's order and colours are trusted.
+   */
+  void restore(RedBlackTreeSnapshot.Reader<? extends T> reader, int size)
+  {
+    clear();
+    if (size > 0)
+    {
+      setRoot(restore(reader));
+    }
+    m_size = size;
+  }
+
+  private N restore(RedBlackTreeSnapshot.Reader<? extends T> reader)
+  {
+    int flags = reader.nextShape();
+    N left = (flags & RedBlackTreeSnapshot.HAS_LEFT) != 0 ? restore(reader) : null;
+    N node = construct(reader.nextPayload());
+    node.setColour((flags & RedBlackTreeSnapshot.BLACK_NODE) != 0 ? BLACK : RED);
+    N right = (flags & RedBlackTreeSnapshot.HAS_RIGHT) != 0 ? restore(reader) : null;
+    if (left != null)
+    {
+      node.setLeft(left);
+      left.setParent(node);
+    }
+    if (right != null)
+    {
+      node.setRight(right);
+      right.setParent(node);
+    }
+    augment(node);
+    return node;
+  }
+
   /** From CLR */
   @Override
   protected void fixAfterInsertion(N x)
   {
     x.setColour(RED);
-    while (x != null && x != getRoot() && x.getParent().getColour() == RED)
+    while (x != null && !same(x, getRoot()) && x.getParent().getColour() == RED)
     {
-      if (parentOf(x) == leftOf(parentOf(parentOf(x))))
+      if (same(parentOf(x), leftOf(parentOf(parentOf(x)))))
       {
         N y = rightOf(parentOf(parentOf(x)));
         if (colorOf(y) == RED)
@@ -46,7 +269,7 @@ public abstract class AbstractRedBlackTree<T, N extends ModifiableRedBlackNode<T
         }
         else
         {
-          if (x == rightOf(parentOf(x)))
+          if (same(x, rightOf(parentOf(x))))
           {
             x = parentOf(x);
             rotateLeft(x);
@@ -68,7 +291,7 @@ public abstract class AbstractRedBlackTree<T, N extends ModifiableRedBlackNode<T
         }
         else
         {
-          if (x == leftOf(parentOf(x)))
+          if (same(x, leftOf(parentOf(x))))
           {
             x = parentOf(x);
             rotateRight(x);
@@ -79,7 +302,7 @@ public abstract class AbstractRedBlackTree<T, N extends ModifiableRedBlackNode<T
         }
       }
     }
-    getRoot().setColour(BLACK);
+    setColor(getRoot(), BLACK);
   }
 
   /**
@@ -105,7 +328,7 @@ public abstract class AbstractRedBlackTree<T, N extends ModifiableRedBlackNode<T
       replacement.setParent(p.getParent());
       if (p.getParent() == null)
         setRoot(replacement);
-      else if (p == p.getParent().getLeft())
+      else if (same(p, p.getParent().getLeft()))
         p.getParent().setLeft(replacement);
       else
         p.getParent().setRight(replacement);
@@ -113,6 +336,7 @@ public abstract class AbstractRedBlackTree<T, N extends ModifiableRedBlackNode<T
       p.setLeft(null);
       p.setRight(null);
       p.setParent(null);
+      augmentPath(replacement.getParent());
       // Fix replacement
       if (p.getColour() == BLACK)
         fixAfterDeletion(replacement);
@@ -123,13 +347,16 @@ public abstract class AbstractRedBlackTree<T, N extends ModifiableRedBlackNode<T
     }
     else
     { // No children. Use self as phantom replacement and unlink.
+      // taken off its ancestors now, so it must count as nothing in rotations
+      p.setSubtreeSize(0);
+      augmentPath(p.getParent());
       if (p.getColour() == BLACK)
         fixAfterDeletion(p);
       if (p.getParent() != null)
       {
-        if (p == p.getParent().getLeft())
+        if (same(p, p.getParent().getLeft()))
           p.getParent().setLeft(null);
-        else if (p == p.getParent().getRight())
+        else if (same(p, p.getParent().getRight()))
           p.getParent().setRight(null);
         p.setParent(null);
       }
@@ -139,9 +366,9 @@ public abstract class AbstractRedBlackTree<T, N extends ModifiableRedBlackNode<T
   /** From CLR */
   private void fixAfterDeletion(N x)
   {
-    while (x != getRoot() && colorOf(x) == BLACK)
+    while (!same(x, getRoot()) && colorOf(x) == BLACK)
     {
-      if (x == leftOf(parentOf(x)))
+      if (same(x, leftOf(parentOf(x))))
       {
         N sib = rightOf(parentOf(x));
         if (colorOf(sib) == RED)
@@ -0,0 +1,151 @@
+package com.metchevn.util.tree.redblack;
+
+import static com.metchevn.util.tree.redblack.NodeArena.NIL;
+
+/**
+ * A handle on a node of an {@link ArenaRedBlackTree}, created on demand and holding nothing but the
+ * node's index, so that no node object outlives the operation that needed it. Handles are equal when
+ * they refer to the same node of the same tree.
+ * <p>
+ * A handle must not be used once its node has been removed, the index may already hold another node.
+ */
+public final class ArenaRedBlackNode<T> implements ModifiableRedBlackNode<T, ArenaRedBlackNode<T>>
+{
+  private final NodeArena<T> m_arena;
+  private final int m_index;
+
+  ArenaRedBlackNode(NodeArena<T> arena, int index)
+  {
+    m_arena = arena;
+    m_index = index;
+  }
+
+  static <T> ArenaRedBlackNode<T> of(NodeArena<T> arena, int index)
+  {
+    return index == NIL ? null : new ArenaRedBlackNode<>(arena, index);
+  }
+
+  private static int indexOf(ArenaRedBlackNode<?> node)
+  {
+    return node == null ? NIL : node.m_index;
+  }
+
+  int getIndex()
+  {
+    return m_index;
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public T getPayload()
+  {
+    return (T) m_arena.m_payloads[m_index];
+  }
+
+  @Override
+  public void setPayLoad(T payload)
+  {
+    m_arena.m_payloads[m_index] = payload;
+  }
+
+  @Override
+  public ArenaRedBlackNode<T> getLeft()
+  {
+    return of(m_arena, m_arena.m_left[m_index]);
+  }
+
+  @Override
+  public ArenaRedBlackNode<T> getRight()
+  {
+    return of(m_arena, m_arena.m_right[m_index]);
+  }
+
+  @Override
+  public ArenaRedBlackNode<T> getParent()
+  {
+    return of(m_arena, m_arena.m_parent[m_index]);
+  }
+
+  @Override
+  public void setLeft(ArenaRedBlackNode<T> left)
+  {
+    m_arena.m_left[m_index] = indexOf(left);
+  }
+
+  @Override
+  public void setRight(ArenaRedBlackNode<T> right)
+  {
+    m_arena.m_right[m_index] = indexOf(right);
+  }
+
+  @Override
+  public void setParent(ArenaRedBlackNode<T> parent)
+  {
+    m_arena.m_parent[m_index] = indexOf(parent);
+  }
+
+  @Override
+  public boolean getColour()
+  {
+    return m_arena.getColour(m_index);
+  }
+
+  @Override
+  public void setColour(boolean colour)
+  {
+    m_arena.setColour(m_index, colour);
+  }
+
+  @Override
+  public int getSubtreeSize()
+  {
+    return m_arena.m_sizes[m_index];
+  }
+
+  @Override
+  public void setSubtreeSize(int size)
+  {
+    m_arena.m_sizes[m_index] = size;
+  }
+
+  @Override
+  public boolean isLeaf()
+  {
+    return m_arena.m_left[m_index] == NIL && m_arena.m_right[m_index] == NIL;
+  }
+
+  /** Walks up to the root, as no depth is stored. */
+  @Override
+  public int getDepth()
+  {
+    int depth = 0;
+    for (int p = m_arena.m_parent[m_index]; p != NIL; p = m_arena.m_parent[p])
+    {
+      depth++;
+    }
+    return depth;
+  }
+
+  @Override
+  public boolean equals(Object obj)
+  {
+    if (!(obj instanceof ArenaRedBlackNode))
+    {
+      return false;
+    }
+    ArenaRedBlackNode<?> other = (ArenaRedBlackNode<?>) obj;
+    return m_index == other.m_index && m_arena == other.m_arena;
+  }
+
+  @Override
+  public int hashCode()
+  {
+    return m_index;
+  }
+
+  @Override
+  public String toString()
+  {
+    return String.valueOf(getPayload());
+  }
+}
@@ -0,0 +1,60 @@
+package com.metchevn.util.tree.redblack;
+
+import java.util.Comparator;
+
+/**
+ * A red-black tree whose nodes live in a {@link NodeArena} rather than in one object each: the tree
+ * structure is a handful of primitive arrays and the payloads a single reference array, whatever the
+ * size, and removed nodes are recycled instead of becoming garbage. Long-lived trees therefore put
+ * next to nothing in the old generation besides the payloads themselves.
+ * <p>
+ * The balancing and navigation are those of {@link AbstractRedBlackTree}, working on
+ * {@link ArenaRedBlackNode} handles that are created as the algorithms walk the tree. They are short
+ * lived, so they stay in the young generation or are not allocated at all after escape analysis.
+ * Nodes do not store their depth, {@link ArenaRedBlackNode#getDepth()} walks up to the root.
+ */
+public class ArenaRedBlackTree<T> extends AbstractRedBlackTree<T, ArenaRedBlackNode<T>>
+{
+  private static final int DEFAULT_CAPACITY = 16;
+
+  private final NodeArena<T> m_arena;
+
+  public ArenaRedBlackTree(Comparator<? super T> comparator)
+  {
+    this(comparator, DEFAULT_CAPACITY);
+  }
+
+  public ArenaRedBlackTree(Comparator<? super T> comparator, int initialCapacity)
+  {
+    super(comparator);
+    m_arena = new NodeArena<>(initialCapacity);
+  }
+
+  @Override
+  protected ArenaRedBlackNode<T> construct(T payload)
+  {
+    return new ArenaRedBlackNode<>(m_arena, m_arena.allocate(payload));
+  }
+
+  /** Unlinks the node, then frees the one that was actually taken out: p's successor if p had two children. */
+  @Override
+  protected void deleteNode(ArenaRedBlackNode<T> p)
+  {
+    ArenaRedBlackNode<T> unlinked = p.getLeft() != null && p.getRight() != null ? successor(p) : p;
+    super.deleteNode(p);
+    m_arena.free(unlinked.getIndex());
+  }
+
+  @Override
+  public void clear()
+  {
+    super.clear();
+    m_arena.clear();
+  }
+
+  /** The number of nodes the arena can hold before it grows. */
+  public int capacity()
+  {
+    return m_arena.capacity();
+  }
+}
@@ -0,0 +1,23 @@
+package com.metchevn.util.tree.redblack;
+
+/** A red-black node that also keeps the aggregate of its subtree, see {@link AugmentedRedBlackTree}. */
+public class AugmentedRedBlackNode<T, A> extends AbstractRedBlackNode<T, AugmentedRedBlackNode<T, A>>
+{
+  private A m_aggregate;
+
+  public AugmentedRedBlackNode(T payload)
+  {
+    super(payload);
+  }
+
+  /** The measures of the payloads of this subtree combined in order. */
+  public A getAggregate()
+  {
+    return m_aggregate;
+  }
+
+  void setAggregate(A aggregate)
+  {
+    m_aggregate = aggregate;
+  }
+}
@@ -0,0 +1,141 @@
+package com.metchevn.util.tree.redblack;
+
+import java.util.Comparator;
+import java.util.function.BinaryOperator;
+import java.util.function.Function;
+
+/**
+ * A red-black tree whose nodes keep the aggregate of their subtree: the {@code measure} of each
+ * payload combined in order with {@code combine}, which must be associative (a monoid without the
+ * need for an identity). Rotations, insertions and deletions keep the aggregates up to date through
+ * {@link #augment}, so the aggregate of any range is answered in O(log n) combines.
+ * <p>
+ * With {@code Long::sum} this gives range sums, with {@code Math::max} range maxima; {@code combine}
+ * need not be commutative, the left operand always comes first. An empty range aggregates to
+ * {@code null}.
+ */
+public class AugmentedRedBlackTree<T, A> extends AbstractRedBlackTree<T, AugmentedRedBlackNode<T, A>>
+{
+  private final Function<? super T, ? extends A> m_measure;
+  private final BinaryOperator<A> m_combine;
+
+  public AugmentedRedBlackTree(Comparator<? super T> comparator, Function<? super T, ? extends A> measure, BinaryOperator<A> combine)
+  {
+    super(comparator);
+    m_measure = measure;
+    m_combine = combine;
+  }
+
+  @Override
+  protected AugmentedRedBlackNode<T, A> construct(T payload)
+  {
+    return new AugmentedRedBlackNode<>(payload);
+  }
+
+  @Override
+  protected void augment(AugmentedRedBlackNode<T, A> node)
+  {
+    super.augment(node);
+    A aggregate = combine(aggregateOf(node.getLeft()), m_measure.apply(node.getPayload()));
+    node.setAggregate(combine(aggregate, aggregateOf(node.getRight())));
+  }
+
+  /** A node being deleted has a size of 0 until it is unlinked and counts as nothing. */
+  private A aggregateOf(AugmentedRedBlackNode<T, A> node)
+  {
+    return node == null || node.getSubtreeSize() == 0 ? null : node.getAggregate();
+  }
+
+  private A combine(A a, A b)
+  {
+    return a == null ? b : b == null ? a : m_combine.apply(a, b);
+  }
+
+  /** The aggregate of the whole tree, in O(1). */
+  public A aggregate()
+  {
+    return aggregateOf(getRoot());
+  }
+
+  /** The aggregate of the elements in {@code [from, to)}, in O(log n). */
+  public A aggregate(T from, T to)
+  {
+    return aggregate(from, true, to, false);
+  }
+
+  /** The aggregate of the elements between {@code from} and {@code to}, in O(log n). */
+  public A aggregate(T from, boolean fromInclusive, T to, boolean toInclusive)
+  {
+    // descend to the first node in the range, all others lie in its left or right subtree
+    AugmentedRedBlackNode<T, A> p = getRoot();
+    while (p != null)
+    {
+      if (!aboveFrom(p, from, fromInclusive))
+      {
+        p = p.getRight();
+      }
+      else if (!belowTo(p, to, toInclusive))
+      {
+        p = p.getLeft();
+      }
+      else
+      {
+        A aggregate = combine(suffix(p.getLeft(), from, fromInclusive), m_measure.apply(p.getPayload()));
+        return combine(aggregate, prefix(p.getRight(), to, toInclusive));
+      }
+    }
+    return null;
+  }
+
+  /** The aggregate of the elements of the subtree after {@code from}. */
+  private A suffix(AugmentedRedBlackNode<T, A> p, T from, boolean inclusive)
+  {
+    A aggregate = null;
+    while (p != null)
+    {
+      if (aboveFrom(p, from, inclusive))
+      {
+        A right = combine(m_measure.apply(p.getPayload()), aggregateOf(p.getRight()));
+        aggregate = combine(right, aggregate);
+        p = p.getLeft();
+      }
+      else
+      {
+        p = p.getRight();
+      }
+    }
+    return aggregate;
+  }
+
+  /** The aggregate of the elements of the subtree before {@code to}. */
+  private A prefix(AugmentedRedBlackNode<T, A> p, T to, boolean inclusive)
+  {
+    A aggregate = null;
+    while (p != null)
+    {
+      if (belowTo(p, to, inclusive))
+      {
+        A left = combine(aggregateOf(p.getLeft()), m_measure.apply(p.getPayload()));
+        aggregate = combine(aggregate, left);
+        p = p.getRight();
+      }
+      else
+      {
+        p = p.getLeft();
+      }
+    }
+    return aggregate;
+  }
+
+  private boolean aboveFrom(AugmentedRedBlackNode<T, A> p, T from, boolean inclusive)
+  {
+    int cmp = compare(from, p);
+    return cmp < 0 || (cmp == 0 && inclusive);
+  }
+
+  private boolean belowTo(AugmentedRedBlackNode<T, A> p, T to, boolean inclusive)
+  {
+    int cmp = compare(to, p);
+    return cmp > 0 || (cmp == 0 && inclusive);
+  }
+}
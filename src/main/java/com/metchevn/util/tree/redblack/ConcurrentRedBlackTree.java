@@ -0,0 +1,404 @@
+package com.metchevn.util.tree.redblack;
+
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.Supplier;
+
+/**
+ * A thread-safe sorted set on a {@link DefaultRedBlackTree}. Writers take the exclusive stamp of a
+ * {@link StampedLock}; lookups and navigation first run as optimistic reads, that take no lock at
+ * all and are retried if a writer got in the way, and only fall back to the read lock after a few
+ * failed attempts. Read-mostly workloads therefore scale with the number of cores instead of being
+ * serialised like behind a {@code synchronized} block.
+ * <p>
+ * An optimistic read may see the tree half way through a rotation, so it never trusts what it sees:
+ * it walks down from the root only, gives up on paths longer than a red-black tree can have and
+ * discards any exception unless the stamp is still valid.
+ * <p>
+ * Iterators are weakly consistent like those of {@link java.util.concurrent.ConcurrentSkipListSet}:
+ * they read batches of consecutive elements, each batch consistent in itself, and never throw
+ * {@link java.util.ConcurrentModificationException}.
+ */
+public class ConcurrentRedBlackTree<T> extends AbstractSet<T>
+{
+  /** Optimistic reads before a reader takes the read lock. */
+  private static final int OPTIMISTIC_ATTEMPTS = 3;
+  /** A red-black tree of at most 2^31 nodes is at most 2 * 32 deep. */
+  private static final int MAX_DEPTH = 64;
+  /** Elements an iterator reads per read, locked or not. */
+  private static final int BATCH_SIZE = 64;
+
+  /** Thrown by an optimistic read that found a path no consistent tree has. */
+  private static final class TornReadException extends RuntimeException
+  {
+    private static final long serialVersionUID = 1L;
+    private static final TornReadException INSTANCE = new TornReadException();
+
+    private TornReadException()
+    {
+      super(null, null, false, false);
+    }
+  }
+
+  private final StampedLock m_lock = new StampedLock();
+  private final DefaultRedBlackTree<T> m_tree;
+  private final Comparator<? super T> m_comparator;
+
+  public ConcurrentRedBlackTree(Comparator<T> comparator)
+  {
+    m_tree = new DefaultRedBlackTree<>(comparator);
+    m_comparator = comparator;
+  }
+
+  private <R> R read(Supplier<R> read)
+  {
+    for (int attempt = 0; attempt < OPTIMISTIC_ATTEMPTS; attempt++)
+    {
+      long stamp = m_lock.tryOptimisticRead();
+      if (stamp != 0)
+      {
+        try
+        {
+          R result = read.get();
+          if (m_lock.validate(stamp))
+          {
+            return result;
+          }
+        }
+        catch (RuntimeException e)
+        {
+          if (m_lock.validate(stamp))
+          {
+            throw e;
+          }
+        }
+      }
+    }
+    long stamp = m_lock.readLock();
+    try
+    {
+      return read.get();
+    }
+    finally
+    {
+      m_lock.unlockRead(stamp);
+    }
+  }
+
+  private static void checkDepth(int depth)
+  {
+    if (depth > MAX_DEPTH)
+    {
+      throw TornReadException.INSTANCE;
+    }
+  }
+
+  /**
+   * The node of the closest element above {@code key} if {@code above}, below it otherwise, or
+   * that of {@code key} itself if {@code inclusive}. Only walks down, so that a torn read cannot loop.
+   */
+  private DefaultRedBlackNode<T> search(T key, boolean above, boolean inclusive)
+  {
+    DefaultRedBlackNode<T> best = null;
+    DefaultRedBlackNode<T> p = m_tree.getRoot();
+    for (int depth = 0; p != null; depth++)
+    {
+      checkDepth(depth);
+      int cmp = m_comparator.compare(key, p.getPayload());
+      if (cmp == 0 && inclusive)
+      {
+        return p;
+      }
+      if (above ? cmp < 0 : cmp > 0)
+      {
+        best = p;
+        p = above ? p.getLeft() : p.getRight();
+      }
+      else
+      {
+        p = above ? p.getRight() : p.getLeft();
+      }
+    }
+    return best;
+  }
+
+  private static <T> T payloadOf(DefaultRedBlackNode<T> node)
+  {
+    return node == null ? null : node.getPayload();
+  }
+
+  private DefaultRedBlackNode<T> extreme(boolean first)
+  {
+    DefaultRedBlackNode<T> p = m_tree.getRoot();
+    if (p == null)
+    {
+      throw new NoSuchElementException();
+    }
+    for (int depth = 0; (first ? p.getLeft() : p.getRight()) != null; depth++)
+    {
+      checkDepth(depth);
+      p = first ? p.getLeft() : p.getRight();
+    }
+    return p;
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public boolean contains(Object o)
+  {
+    T key = (T) o;
+    return read(() ->
+    {
+      DefaultRedBlackNode<T> ceiling = search(key, true, true);
+      return ceiling != null && m_comparator.compare(key, ceiling.getPayload()) == 0;
+    });
+  }
+
+  public T ceiling(T key)
+  {
+    return read(() -> payloadOf(search(key, true, true)));
+  }
+
+  public T higher(T key)
+  {
+    return read(() -> payloadOf(search(key, true, false)));
+  }
+
+  public T floor(T key)
+  {
+    return read(() -> payloadOf(search(key, false, true)));
+  }
+
+  public T lower(T key)
+  {
+    return read(() -> payloadOf(search(key, false, false)));
+  }
+
+  public T first()
+  {
+    return read(() -> extreme(true).getPayload());
+  }
+
+  public T last()
+  {
+    return read(() -> extreme(false).getPayload());
+  }
+
+  @Override
+  public int size()
+  {
+    return read(m_tree::size);
+  }
+
+  public Comparator<? super T> comparator()
+  {
+    return m_comparator;
+  }
+
+  @Override
+  public boolean add(T e)
+  {
+    long stamp = m_lock.writeLock();
+    try
+    {
+      return m_tree.add(e);
+    }
+    finally
+    {
+      m_lock.unlockWrite(stamp);
+    }
+  }
+
+  @Override
+  public boolean addAll(Collection<? extends T> values)
+  {
+    long stamp = m_lock.writeLock();
+    try
+    {
+      return m_tree.addAll(values);
+    }
+    finally
+    {
+      m_lock.unlockWrite(stamp);
+    }
+  }
+
+  @Override
+  public boolean remove(Object o)
+  {
+    long stamp = m_lock.writeLock();
+    try
+    {
+      return m_tree.remove(o);
+    }
+    finally
+    {
+      m_lock.unlockWrite(stamp);
+    }
+  }
+
+  /** Removes and returns the first element, or returns {@code null} if there is none. */
+  public T pollFirst()
+  {
+    long stamp = m_lock.writeLock();
+    try
+    {
+      return m_tree.pollFirst();
+    }
+    finally
+    {
+      m_lock.unlockWrite(stamp);
+    }
+  }
+
+  /** Removes and returns the last element, or returns {@code null} if there is none. */
+  public T pollLast()
+  {
+    long stamp = m_lock.writeLock();
+    try
+    {
+      return m_tree.pollLast();
+    }
+    finally
+    {
+      m_lock.unlockWrite(stamp);
+    }
+  }
+
+  @Override
+  public void clear()
+  {
+    long stamp = m_lock.writeLock();
+    try
+    {
+      m_tree.clear();
+    }
+    finally
+    {
+      m_lock.unlockWrite(stamp);
+    }
+  }
+
+  /** The next element after {@code node} or {@code null}, looking no higher than its depth allows. */
+  private static <T> DefaultRedBlackNode<T> successor(DefaultRedBlackNode<T> node)
+  {
+    DefaultRedBlackNode<T> p = node.getRight();
+    if (p != null)
+    {
+      for (int depth = 0; p.getLeft() != null; depth++)
+      {
+        checkDepth(depth);
+        p = p.getLeft();
+      }
+      return p;
+    }
+    DefaultRedBlackNode<T> child = node;
+    p = node.getParent();
+    for (int depth = 0; p != null && child == p.getRight(); depth++)
+    {
+      checkDepth(depth);
+      child = p;
+      p = p.getParent();
+    }
+    return p;
+  }
+
+  /**
+   * Up to {@link #BATCH_SIZE} consecutive elements from {@code from}, or from the first element if
+   * it is {@code null}, up to {@code to}, or to the last element if it is {@code null}.
+   */
+  private List<T> batch(T from, boolean fromInclusive, T to, boolean toInclusive)
+  {
+    List<T> batch = new ArrayList<>();
+    DefaultRedBlackNode<T> p = from == null ? (m_tree.getRoot() == null ? null : extreme(true)) : search(from, true, fromInclusive);
+    while (p != null && batch.size() < BATCH_SIZE)
+    {
+      T payload = p.getPayload();
+      if (to != null)
+      {
+        int cmp = m_comparator.compare(payload, to);
+        if (cmp > 0 || (cmp == 0 && !toInclusive))
+        {
+          break;
+        }
+      }
+      batch.add(payload);
+      p = successor(p);
+    }
+    return batch;
+  }
+
+  private final class BatchIterator implements Iterator<T>
+  {
+    private final T m_to;
+    private final boolean m_toInclusive;
+    private List<T> m_batch;
+    private int m_index;
+    private T m_last;
+    private boolean m_removable;
+
+    BatchIterator(T from, boolean fromInclusive, T to, boolean toInclusive)
+    {
+      m_to = to;
+      m_toInclusive = toInclusive;
+      m_batch = read(() -> batch(from, fromInclusive, to, toInclusive));
+    }
+
+    @Override
+    public boolean hasNext()
+    {
+      if (m_index == m_batch.size() && m_batch.size() == BATCH_SIZE)
+      {
+        T after = m_batch.get(BATCH_SIZE - 1);
+        m_batch = read(() -> batch(after, false, m_to, m_toInclusive));
+        m_index = 0;
+      }
+      return m_index < m_batch.size();
+    }
+
+    @Override
+    public T next()
+    {
+      if (!hasNext())
+      {
+        throw new NoSuchElementException();
+      }
+      m_last = m_batch.get(m_index++);
+      m_removable = true;
+      return m_last;
+    }
+
+    @Override
+    public void remove()
+    {
+      if (!m_removable)
+      {
+        throw new IllegalStateException();
+      }
+      ConcurrentRedBlackTree.this.remove(m_last);
+      m_removable = false;
+    }
+  }
+
+  /** The elements in ascending order, weakly consistent; {@code remove()} is supported. */
+  @Override
+  public Iterator<T> iterator()
+  {
+    return new BatchIterator(null, true, null, true);
+  }
+
+  /**
+   * The elements between {@code from} and {@code to} in ascending order, weakly consistent; a
+   * {@code null} bound is no bound.
+   */
+  public Iterator<T> iterator(T from, boolean fromInclusive, T to, boolean toInclusive)
+  {
+    return new BatchIterator(from, fromInclusive, to, toInclusive);
+  }
+}
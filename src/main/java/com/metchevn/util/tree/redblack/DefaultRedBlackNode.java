@@ -6,4 +6,9 @@ public class DefaultRedBlackNode<T> extends AbstractRedBlackNode<T, DefaultRedBl
   {
     super(payload);
   }
+
+  public DefaultRedBlackNode(T payload, boolean trackDepth)
+  {
+    super(payload, trackDepth);
+  }
 }
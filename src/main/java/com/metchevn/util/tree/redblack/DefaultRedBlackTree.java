@@ -1,17 +1,39 @@
 package com.metchevn.util.tree.redblack;
 
+import java.util.Collection;
 import java.util.Comparator;
 
+/**
+ * A red-black tree of {@link DefaultRedBlackNode}s. Unless {@code trackDepth} is given, nodes compute
+ * their depth on demand so that rotations are O(1), see
+ * {@link com.metchevn.util.tree.binary.AbstractBinaryTreeNode}.
+ */
 public class DefaultRedBlackTree<T> extends AbstractRedBlackTree<T, DefaultRedBlackNode<T>>
 {
+  private final boolean m_trackDepth;
+
   public DefaultRedBlackTree(Comparator<T> comparator)
+  {
+    this(comparator, false);
+  }
+
+  public DefaultRedBlackTree(Comparator<T> comparator, boolean trackDepth)
   {
     super(comparator);
+    m_trackDepth = trackDepth;
+  }
+
+  /** A tree of the values, built in O(n) if they are in ascending order, see {@link #addAllSorted(Collection)}. */
+  public static <T> DefaultRedBlackTree<T> fromSorted(Comparator<T> comparator, Collection<? extends T> values)
+  {
+    DefaultRedBlackTree<T> tree = new DefaultRedBlackTree<>(comparator);
+    tree.addAllSorted(values);
+    return tree;
   }
 
   @Override
   protected DefaultRedBlackNode<T> construct(T payload)
   {
-    return new DefaultRedBlackNode<>(payload);
+    return new DefaultRedBlackNode<>(payload, m_trackDepth);
   }
 }
@@ -0,0 +1,310 @@
+package com.metchevn.util.tree.redblack;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+
+/**
+ * A sorted set of {@code int}s in a red-black tree with no boxing and no node objects, see
+ * {@link AbstractPrimitiveRedBlackTree}. A key costs about 16 bytes against about 64 for a
+ * {@link DefaultRedBlackTree} of {@link Integer}s.
+ * <p>
+ * The {@code get*Node} searches return {@link #NIL} when there is no such key, the methods returning
+ * keys throw {@link NoSuchElementException} instead.
+ */
+public class IntRedBlackTree extends AbstractPrimitiveRedBlackTree
+{
+  private int[] m_keys;
+
+  public IntRedBlackTree()
+  {
+    m_keys = new int[capacity()];
+  }
+
+  public IntRedBlackTree(int initialCapacity)
+  {
+    super(initialCapacity);
+    m_keys = new int[capacity()];
+  }
+
+  @Override
+  protected void resizeKeys(int capacity)
+  {
+    m_keys = Arrays.copyOf(m_keys, capacity);
+  }
+
+  @Override
+  protected void copyKey(int from, int to)
+  {
+    m_keys[to] = m_keys[from];
+  }
+
+  public int getKey(int node)
+  {
+    return m_keys[node];
+  }
+
+  public boolean add(int key)
+  {
+    int parent = NIL;
+    int t = getRoot();
+    int cmp = 0;
+    while (t != NIL)
+    {
+      parent = t;
+      cmp = Integer.compare(key, m_keys[t]);
+      if (cmp == 0)
+      {
+        return false;
+      }
+      t = cmp < 0 ? getLeft(t) : getRight(t);
+    }
+    int node = allocate();
+    m_keys[node] = key;
+    insert(parent, cmp, node);
+    return true;
+  }
+
+  public boolean remove(int key)
+  {
+    int node = getNode(key);
+    if (node == NIL)
+    {
+      return false;
+    }
+    deleteNode(node);
+    return true;
+  }
+
+  public boolean contains(int key)
+  {
+    return getNode(key) != NIL;
+  }
+
+  public int getNode(int key)
+  {
+    int t = getRoot();
+    while (t != NIL)
+    {
+      int k = m_keys[t];
+      if (key == k)
+      {
+        return t;
+      }
+      t = key < k ? getLeft(t) : getRight(t);
+    }
+    return NIL;
+  }
+
+  public int getCeilingNode(int key)
+  {
+    int p = getRoot();
+    while (p != NIL)
+    {
+      if (key < m_keys[p])
+      {
+        if (getLeft(p) != NIL)
+          p = getLeft(p);
+        else
+          return p;
+      }
+      else if (key > m_keys[p])
+      {
+        if (getRight(p) != NIL)
+          p = getRight(p);
+        else
+          return ascendFromRight(p);
+      }
+      else
+        return p;
+    }
+    return NIL;
+  }
+
+  public int getFloorNode(int key)
+  {
+    int p = getRoot();
+    while (p != NIL)
+    {
+      if (key > m_keys[p])
+      {
+        if (getRight(p) != NIL)
+          p = getRight(p);
+        else
+          return p;
+      }
+      else if (key < m_keys[p])
+      {
+        if (getLeft(p) != NIL)
+          p = getLeft(p);
+        else
+          return ascendFromLeft(p);
+      }
+      else
+        return p;
+    }
+    return NIL;
+  }
+
+  public int getHigherNode(int key)
+  {
+    int p = getRoot();
+    while (p != NIL)
+    {
+      if (key < m_keys[p])
+      {
+        if (getLeft(p) != NIL)
+          p = getLeft(p);
+        else
+          return p;
+      }
+      else
+      {
+        if (getRight(p) != NIL)
+          p = getRight(p);
+        else
+          return ascendFromRight(p);
+      }
+    }
+    return NIL;
+  }
+
+  public int getLowerNode(int key)
+  {
+    int p = getRoot();
+    while (p != NIL)
+    {
+      if (key > m_keys[p])
+      {
+        if (getRight(p) != NIL)
+          p = getRight(p);
+        else
+          return p;
+      }
+      else
+      {
+        if (getLeft(p) != NIL)
+          p = getLeft(p);
+        else
+          return ascendFromLeft(p);
+      }
+    }
+    return NIL;
+  }
+
+  private int keyOf(int node)
+  {
+    if (node == NIL)
+    {
+      throw new NoSuchElementException();
+    }
+    return m_keys[node];
+  }
+
+  public int first()
+  {
+    return keyOf(getFirstNode());
+  }
+
+  public int last()
+  {
+    return keyOf(getLastNode());
+  }
+
+  public int ceiling(int key)
+  {
+    return keyOf(getCeilingNode(key));
+  }
+
+  public int floor(int key)
+  {
+    return keyOf(getFloorNode(key));
+  }
+
+  public int higher(int key)
+  {
+    return keyOf(getHigherNode(key));
+  }
+
+  public int lower(int key)
+  {
+    return keyOf(getLowerNode(key));
+  }
+
+  public int pollFirst()
+  {
+    int node = getFirstNode();
+    int key = keyOf(node);
+    deleteNode(node);
+    return key;
+  }
+
+  public int pollLast()
+  {
+    int node = getLastNode();
+    int key = keyOf(node);
+    deleteNode(node);
+    return key;
+  }
+
+  /** The keys in ascending order; {@code remove()} is supported. */
+  public PrimitiveIterator.OfInt iterator()
+  {
+    return new PrimitiveIterator.OfInt()
+    {
+      private int m_next = getFirstNode();
+      private int m_last = NIL;
+
+      @Override
+      public boolean hasNext()
+      {
+        return m_next != NIL;
+      }
+
+      @Override
+      public int nextInt()
+      {
+        if (m_next == NIL)
+        {
+          throw new NoSuchElementException();
+        }
+        m_last = m_next;
+        m_next = successor(m_next);
+        return m_keys[m_last];
+      }
+
+      @Override
+      public void remove()
+      {
+        if (m_last == NIL)
+        {
+          throw new IllegalStateException();
+        }
+        // deleting a node with two children moves its successor's key into it
+        if (getLeft(m_last) != NIL && getRight(m_last) != NIL)
+        {
+          m_next = m_last;
+        }
+        deleteNode(m_last);
+        m_last = NIL;
+      }
+    };
+  }
+
+  public int[] toArray()
+  {
+    int[] keys = new int[size()];
+    int i = 0;
+    for (int node = getFirstNode(); node != NIL; node = successor(node))
+    {
+      keys[i++] = m_keys[node];
+    }
+    return keys;
+  }
+
+  @Override
+  public String toString()
+  {
+    return Arrays.toString(toArray());
+  }
+}
@@ -0,0 +1,310 @@
+package com.metchevn.util.tree.redblack;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+
+/**
+ * A sorted set of {@code long}s in a red-black tree with no boxing and no node objects, see
+ * {@link AbstractPrimitiveRedBlackTree}. A key costs about 20 bytes against about 64 for a
+ * {@link DefaultRedBlackTree} of {@link Long}s.
+ * <p>
+ * The {@code get*Node} searches return {@link #NIL} when there is no such key, the methods returning
+ * keys throw {@link NoSuchElementException} instead.
+ */
+public class LongRedBlackTree extends AbstractPrimitiveRedBlackTree
+{
+  private long[] m_keys;
+
+  public LongRedBlackTree()
+  {
+    m_keys = new long[capacity()];
+  }
+
+  public LongRedBlackTree(int initialCapacity)
+  {
+    super(initialCapacity);
+    m_keys = new long[capacity()];
+  }
+
+  @Override
+  protected void resizeKeys(int capacity)
+  {
+    m_keys = Arrays.copyOf(m_keys, capacity);
+  }
+
+  @Override
+  protected void copyKey(int from, int to)
+  {
+    m_keys[to] = m_keys[from];
+  }
+
+  public long getKey(int node)
+  {
+    return m_keys[node];
+  }
+
+  public boolean add(long key)
+  {
+    int parent = NIL;
+    int t = getRoot();
+    int cmp = 0;
+    while (t != NIL)
+    {
+      parent = t;
+      cmp = Long.compare(key, m_keys[t]);
+      if (cmp == 0)
+      {
+        return false;
+      }
+      t = cmp < 0 ? getLeft(t) : getRight(t);
+    }
+    int node = allocate();
+    m_keys[node] = key;
+    insert(parent, cmp, node);
+    return true;
+  }
+
+  public boolean remove(long key)
+  {
+    int node = getNode(key);
+    if (node == NIL)
+    {
+      return false;
+    }
+    deleteNode(node);
+    return true;
+  }
+
+  public boolean contains(long key)
+  {
+    return getNode(key) != NIL;
+  }
+
+  public int getNode(long key)
+  {
+    int t = getRoot();
+    while (t != NIL)
+    {
+      long k = m_keys[t];
+      if (key == k)
+      {
+        return t;
+      }
+      t = key < k ? getLeft(t) : getRight(t);
+    }
+    return NIL;
+  }
+
+  public int getCeilingNode(long key)
+  {
+    int p = getRoot();
+    while (p != NIL)
+    {
+      if (key < m_keys[p])
+      {
+        if (getLeft(p) != NIL)
+          p = getLeft(p);
+        else
+          return p;
+      }
+      else if (key > m_keys[p])
+      {
+        if (getRight(p) != NIL)
+          p = getRight(p);
+        else
+          return ascendFromRight(p);
+      }
+      else
+        return p;
+    }
+    return NIL;
+  }
+
+  public int getFloorNode(long key)
+  {
+    int p = getRoot();
+    while (p != NIL)
+    {
+      if (key > m_keys[p])
+      {
+        if (getRight(p) != NIL)
+          p = getRight(p);
+        else
+          return p;
+      }
+      else if (key < m_keys[p])
+      {
+        if (getLeft(p) != NIL)
+          p = getLeft(p);
+        else
+          return ascendFromLeft(p);
+      }
+      else
+        return p;
+    }
+    return NIL;
+  }
+
+  public int getHigherNode(long key)
+  {
+    int p = getRoot();
+    while (p != NIL)
+    {
+      if (key < m_keys[p])
+      {
+        if (getLeft(p) != NIL)
+          p = getLeft(p);
+        else
+          return p;
+      }
+      else
+      {
+        if (getRight(p) != NIL)
+          p = getRight(p);
+        else
+          return ascendFromRight(p);
+      }
+    }
+    return NIL;
+  }
+
+  public int getLowerNode(long key)
+  {
+    int p = getRoot();
+    while (p != NIL)
+    {
+      if (key > m_keys[p])
+      {
+        if (getRight(p) != NIL)
+          p = getRight(p);
+        else
+          return p;
+      }
+      else
+      {
+        if (getLeft(p) != NIL)
+          p = getLeft(p);
+        else
+          return ascendFromLeft(p);
+      }
+    }
+    return NIL;
+  }
+
+  private long keyOf(int node)
+  {
+    if (node == NIL)
+    {
+      throw new NoSuchElementException();
+    }
+    return m_keys[node];
+  }
+
+  public long first()
+  {
+    return keyOf(getFirstNode());
+  }
+
+  public long last()
+  {
+    return keyOf(getLastNode());
+  }
+
+  public long ceiling(long key)
+  {
+    return keyOf(getCeilingNode(key));
+  }
+
+  public long floor(long key)
+  {
+    return keyOf(getFloorNode(key));
+  }
+
+  public long higher(long key)
+  {
+    return keyOf(getHigherNode(key));
+  }
+
+  public long lower(long key)
+  {
+    return keyOf(getLowerNode(key));
+  }
+
+  public long pollFirst()
+  {
+    int node = getFirstNode();
+    long key = keyOf(node);
+    deleteNode(node);
+    return key;
+  }
+
+  public long pollLast()
+  {
+    int node = getLastNode();
+    long key = keyOf(node);
+    deleteNode(node);
+    return key;
+  }
+
+  /** The keys in ascending order; {@code remove()} is supported. */
+  public PrimitiveIterator.OfLong iterator()
+  {
+    return new PrimitiveIterator.OfLong()
+    {
+      private int m_next = getFirstNode();
+      private int m_last = NIL;
+
+      @Override
+      public boolean hasNext()
+      {
+        return m_next != NIL;
+      }
+
+      @Override
+      public long nextLong()
+      {
+        if (m_next == NIL)
+        {
+          throw new NoSuchElementException();
+        }
+        m_last = m_next;
+        m_next = successor(m_next);
+        return m_keys[m_last];
+      }
+
+      @Override
+      public void remove()
+      {
+        if (m_last == NIL)
+        {
+          throw new IllegalStateException();
+        }
+        // deleting a node with two children moves its successor's key into it
+        if (getLeft(m_last) != NIL && getRight(m_last) != NIL)
+        {
+          m_next = m_last;
+        }
+        deleteNode(m_last);
+        m_last = NIL;
+      }
+    };
+  }
+
+  public long[] toArray()
+  {
+    long[] keys = new long[size()];
+    int i = 0;
+    for (int node = getFirstNode(); node != NIL; node = successor(node))
+    {
+      keys[i++] = m_keys[node];
+    }
+    return keys;
+  }
+
+  @Override
+  public String toString()
+  {
+    return Arrays.toString(toArray());
+  }
+}
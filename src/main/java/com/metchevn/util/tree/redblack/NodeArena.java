@@ -0,0 +1,112 @@
+package com.metchevn.util.tree.redblack;
+
+import static com.metchevn.util.tree.redblack.Colour.BLACK;
+
+import java.util.Arrays;
+
+/**
+ * The nodes of an {@link ArenaRedBlackTree}: links as {@code int} indexes into parallel arrays, one
+ * bit of colour and the subtree size per node, and the payloads, which are the only references. Freed nodes are kept on a
+ * free list threaded through the left links. A freed node keeps its payload until it is allocated
+ * again or the arena is cleared, so that the handle of a node that was just removed still reads it.
+ */
+class NodeArena<T>
+{
+  static final int NIL = -1;
+
+  int[] m_left;
+  int[] m_right;
+  int[] m_parent;
+  /** One bit per node, set for black nodes. */
+  long[] m_colours;
+  int[] m_sizes;
+  Object[] m_payloads;
+  private int m_next = 0;
+  private int m_free = NIL;
+
+  NodeArena(int initialCapacity)
+  {
+    int capacity = Math.max(initialCapacity, 1);
+    m_left = new int[capacity];
+    m_right = new int[capacity];
+    m_parent = new int[capacity];
+    m_colours = new long[(capacity + 63) >>> 6];
+    m_sizes = new int[capacity];
+    m_payloads = new Object[capacity];
+  }
+
+  int allocate(T payload)
+  {
+    int node;
+    if (m_free != NIL)
+    {
+      node = m_free;
+      m_free = m_left[node];
+    }
+    else
+    {
+      if (m_next == m_left.length)
+      {
+        grow();
+      }
+      node = m_next++;
+    }
+    m_left[node] = NIL;
+    m_right[node] = NIL;
+    m_parent[node] = NIL;
+    setColour(node, BLACK);
+    m_sizes[node] = 1;
+    m_payloads[node] = payload;
+    return node;
+  }
+
+  private void grow()
+  {
+    int capacity = m_left.length + Math.max(m_left.length >> 1, 1);
+    if (capacity < 0)
+    {
+      capacity = Integer.MAX_VALUE - 8;
+    }
+    m_left = Arrays.copyOf(m_left, capacity);
+    m_right = Arrays.copyOf(m_right, capacity);
+    m_parent = Arrays.copyOf(m_parent, capacity);
+    m_colours = Arrays.copyOf(m_colours, (capacity + 63) >>> 6);
+    m_sizes = Arrays.copyOf(m_sizes, capacity);
+    m_payloads = Arrays.copyOf(m_payloads, capacity);
+  }
+
+  void free(int node)
+  {
+    m_left[node] = m_free;
+    m_free = node;
+  }
+
+  void clear()
+  {
+    Arrays.fill(m_payloads, 0, m_next, null);
+    m_next = 0;
+    m_free = NIL;
+  }
+
+  int capacity()
+  {
+    return m_left.length;
+  }
+
+  boolean getColour(int node)
+  {
+    return (m_colours[node >>> 6] & (1L << node)) != 0;
+  }
+
+  void setColour(int node, boolean colour)
+  {
+    if (colour == BLACK)
+    {
+      m_colours[node >>> 6] |= 1L << node;
+    }
+    else
+    {
+      m_colours[node >>> 6] &= ~(1L << node);
+    }
+  }
+}
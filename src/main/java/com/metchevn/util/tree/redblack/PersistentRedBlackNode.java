@@ -0,0 +1,85 @@
+package com.metchevn.util.tree.redblack;
+
+import static com.metchevn.util.tree.redblack.Colour.BLACK;
+
+/**
+ * A node of a {@link PersistentRedBlackTree}. Nodes never change once built and are shared between
+ * versions, so a node has no single parent and no single depth: every node answers as the root of
+ * its own subtree, with no parent and depth 0. Code that needs either should track it on the way
+ * down from {@link PersistentRedBlackTree#getRoot()}.
+ */
+public final class PersistentRedBlackNode<T> implements ImmutableRedBlackNode<T>
+{
+  private final T m_payload;
+  private final PersistentRedBlackNode<T> m_left;
+  private final PersistentRedBlackNode<T> m_right;
+  private final boolean m_colour;
+  private final int m_subtreeSize;
+  /** The black nodes on every path down from this one, this one included. */
+  private final int m_blackHeight;
+
+  PersistentRedBlackNode(boolean colour, PersistentRedBlackNode<T> left, T payload, PersistentRedBlackNode<T> right)
+  {
+    m_payload = payload;
+    m_left = left;
+    m_right = right;
+    m_colour = colour;
+    m_subtreeSize = 1 + (left == null ? 0 : left.m_subtreeSize) + (right == null ? 0 : right.m_subtreeSize);
+    m_blackHeight = (left == null ? 0 : left.m_blackHeight) + (colour == BLACK ? 1 : 0);
+  }
+
+  @Override
+  public T getPayload()
+  {
+    return m_payload;
+  }
+
+  @Override
+  public PersistentRedBlackNode<T> getLeft()
+  {
+    return m_left;
+  }
+
+  @Override
+  public PersistentRedBlackNode<T> getRight()
+  {
+    return m_right;
+  }
+
+  /** Always {@code null}, a node may be in several versions under different parents. */
+  @Override
+  public PersistentRedBlackNode<T> getParent()
+  {
+    return null;
+  }
+
+  @Override
+  public boolean isLeaf()
+  {
+    return m_left == null && m_right == null;
+  }
+
+  /** Always 0, the depth within the node's own subtree: a node may be in several versions at different depths. */
+  @Override
+  public int getDepth()
+  {
+    return 0;
+  }
+
+  @Override
+  public int getSubtreeSize()
+  {
+    return m_subtreeSize;
+  }
+
+  int getBlackHeight()
+  {
+    return m_blackHeight;
+  }
+
+  @Override
+  public boolean getColour()
+  {
+    return m_colour;
+  }
+}
@@ -0,0 +1,701 @@
+package com.metchevn.util.tree.redblack;
+
+import static com.metchevn.util.tree.redblack.Colour.BLACK;
+import static com.metchevn.util.tree.redblack.Colour.RED;
+
+import java.util.AbstractSet;
+import java.util.ArrayDeque;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.Function;
+
+/**
+ * A persistent red-black tree: {@link #plus} and {@link #minus} leave this tree as it is and return
+ * a new version that copies only the O(log n) nodes on the path to the change and shares all others.
+ * Every version stays valid, so a version is its own snapshot, taken in O(1): a writer publishes
+ * each new version through a {@code volatile} field or an {@link java.util.concurrent.atomic.AtomicReference}
+ * and readers iterate whichever version they read, with no locks and no copies.
+ * <p>
+ * Insertion balances as Okasaki's, deletion as Kahrs' "Red-black trees with types". The bulk
+ * {@link #union}, {@link #intersection} and {@link #difference} are built on {@link #split} and
+ * {@link #join} and share whole subtrees of their operands. The {@link java.util.Set} mutators throw
+ * {@link UnsupportedOperationException}.
+ */
+public final class PersistentRedBlackTree<T> extends AbstractSet<T> implements ImmutableRedBlackTree<T, PersistentRedBlackNode<T>>
+{
+  private final Comparator<? super T> m_comparator;
+  private final PersistentRedBlackNode<T> m_root;
+
+  private PersistentRedBlackTree(Comparator<? super T> comparator, PersistentRedBlackNode<T> root)
+  {
+    m_comparator = comparator;
+    m_root = root;
+  }
+
+  public static <T> PersistentRedBlackTree<T> empty(Comparator<? super T> comparator)
+  {
+    return new PersistentRedBlackTree<>(comparator, null);
+  }
+
+  @Override
+  public PersistentRedBlackNode<T> getRoot()
+  {
+    return m_root;
+  }
+
+  @Override
+  public int size()
+  {
+    return m_root == null ? 0 : m_root.getSubtreeSize();
+  }
+
+  @Override
+  public Comparator<? super T> comparator()
+  {
+    return m_comparator;
+  }
+
+  /** This tree with {@code value}, or this tree itself if it already contains it. */
+  public PersistentRedBlackTree<T> plus(T value)
+  {
+    PersistentRedBlackNode<T> root = insert(m_root, value);
+    return root == m_root ? this : new PersistentRedBlackTree<>(m_comparator, blacken(root));
+  }
+
+  /** This tree without {@code value}, or this tree itself if it does not contain it. */
+  public PersistentRedBlackTree<T> minus(T value)
+  {
+    if (getNode(value) == null)
+    {
+      return this;
+    }
+    PersistentRedBlackNode<T> root = delete(m_root, value);
+    return new PersistentRedBlackTree<>(m_comparator, root == null ? null : blacken(root));
+  }
+
+  public PersistentRedBlackTree<T> plusAll(Iterable<? extends T> values)
+  {
+    PersistentRedBlackTree<T> tree = this;
+    for (T value : values)
+    {
+      tree = tree.plus(value);
+    }
+    return tree;
+  }
+
+  /** A tree of {@code sorted}, which must be in strictly ascending order, built in O(n). */
+  public static <T> PersistentRedBlackTree<T> fromSorted(Comparator<? super T> comparator, List<? extends T> sorted)
+  {
+    for (int i = 1; i < sorted.size(); i++)
+    {
+      if (comparator.compare(sorted.get(i - 1), sorted.get(i)) >= 0)
+      {
+        throw new IllegalArgumentException("Values are not in strictly ascending order at index " + i);
+      }
+    }
+    return new PersistentRedBlackTree<>(comparator, build(sorted, 0, sorted.size() - 1, 0, AbstractRedBlackTree.redLevel(sorted.size())));
+  }
+
+  private static <T> PersistentRedBlackNode<T> build(List<? extends T> sorted, int lo, int hi, int level, int redLevel)
+  {
+    if (hi < lo)
+    {
+      return null;
+    }
+    int mid = (lo + hi) >>> 1;
+    PersistentRedBlackNode<T> left = build(sorted, lo, mid - 1, level + 1, redLevel);
+    PersistentRedBlackNode<T> right = build(sorted, mid + 1, hi, level + 1, redLevel);
+    return node(level == redLevel ? RED : BLACK, left, sorted.get(mid), right);
+  }
+
+  /** The elements below a key, whether the key itself is there, and the elements above it. */
+  public static final class Split<T>
+  {
+    private final PersistentRedBlackTree<T> m_left;
+    private final T m_found;
+    private final PersistentRedBlackTree<T> m_right;
+
+    Split(PersistentRedBlackTree<T> left, T found, PersistentRedBlackTree<T> right)
+    {
+      m_left = left;
+      m_found = found;
+      m_right = right;
+    }
+
+    public PersistentRedBlackTree<T> getLeft()
+    {
+      return m_left;
+    }
+
+    /** The element equal to the key, or {@code null} if there is none. */
+    public T getFound()
+    {
+      return m_found;
+    }
+
+    public PersistentRedBlackTree<T> getRight()
+    {
+      return m_right;
+    }
+  }
+
+  /** Splits this tree around {@code key} in O(log n). */
+  public Split<T> split(T key)
+  {
+    SplitNodes<T> split = split(m_root, key);
+    return new Split<>(tree(split.m_left), split.m_found, tree(split.m_right));
+  }
+
+  /**
+   * The tree of the elements of {@code left}, {@code pivot} and the elements of {@code right}, which
+   * must all be in ascending order, in O(|black height of left - black height of right| + 1).
+   */
+  public static <T> PersistentRedBlackTree<T> join(PersistentRedBlackTree<T> left, T pivot, PersistentRedBlackTree<T> right)
+  {
+    return left.tree(join(left.m_root, pivot, right.m_root));
+  }
+
+  /**
+   * The elements of this tree or {@code other}, which must have the same order, in
+   * O(m log(n/m + 1)) for sizes m &lt;= n. Elements of this tree win over equal ones of {@code other}.
+   * Large trees are split across the common {@link ForkJoinPool}.
+   */
+  public PersistentRedBlackTree<T> union(PersistentRedBlackTree<T> other)
+  {
+    return tree(ForkJoinPool.commonPool().invoke(new Combine(Operation.UNION, m_root, other.m_root)));
+  }
+
+  /** The elements of this tree that are also in {@code other}, see {@link #union}. */
+  public PersistentRedBlackTree<T> intersection(PersistentRedBlackTree<T> other)
+  {
+    return tree(ForkJoinPool.commonPool().invoke(new Combine(Operation.INTERSECTION, m_root, other.m_root)));
+  }
+
+  /** The elements of this tree that are not in {@code other}, see {@link #union}. */
+  public PersistentRedBlackTree<T> difference(PersistentRedBlackTree<T> other)
+  {
+    return tree(ForkJoinPool.commonPool().invoke(new Combine(Operation.DIFFERENCE, m_root, other.m_root)));
+  }
+
+  private PersistentRedBlackTree<T> tree(PersistentRedBlackNode<T> root)
+  {
+    return new PersistentRedBlackTree<>(m_comparator, root == null ? null : blacken(root));
+  }
+
+  private static final class SplitNodes<T>
+  {
+    private final PersistentRedBlackNode<T> m_left;
+    private final T m_found;
+    private final PersistentRedBlackNode<T> m_right;
+
+    SplitNodes(PersistentRedBlackNode<T> left, T found, PersistentRedBlackNode<T> right)
+    {
+      m_left = left;
+      m_found = found;
+      m_right = right;
+    }
+  }
+
+  private SplitNodes<T> split(PersistentRedBlackNode<T> t, T key)
+  {
+    if (t == null)
+    {
+      return new SplitNodes<>(null, null, null);
+    }
+    int cmp = m_comparator.compare(key, t.getPayload());
+    if (cmp < 0)
+    {
+      SplitNodes<T> split = split(t.getLeft(), key);
+      return new SplitNodes<>(split.m_left, split.m_found, join(split.m_right, t.getPayload(), t.getRight()));
+    }
+    if (cmp > 0)
+    {
+      SplitNodes<T> split = split(t.getRight(), key);
+      return new SplitNodes<>(join(t.getLeft(), t.getPayload(), split.m_left), split.m_found, split.m_right);
+    }
+    return new SplitNodes<>(t.getLeft(), t.getPayload(), t.getRight());
+  }
+
+  private static int blackHeight(PersistentRedBlackNode<?> node)
+  {
+    return node == null ? 0 : node.getBlackHeight();
+  }
+
+  /** Blelloch, Ferizovic and Sun, "Just Join for Parallel Ordered Sets": the join of red-black trees. */
+  private static <T> PersistentRedBlackNode<T> join(PersistentRedBlackNode<T> left, T pivot, PersistentRedBlackNode<T> right)
+  {
+    int leftHeight = blackHeight(left);
+    int rightHeight = blackHeight(right);
+    if (leftHeight > rightHeight)
+    {
+      PersistentRedBlackNode<T> t = joinRight(left, pivot, right, rightHeight);
+      return isRed(t) && isRed(t.getRight()) ? blacken(t) : t;
+    }
+    if (rightHeight > leftHeight)
+    {
+      PersistentRedBlackNode<T> t = joinLeft(left, pivot, right, leftHeight);
+      return isRed(t) && isRed(t.getLeft()) ? blacken(t) : t;
+    }
+    return node(isRed(left) || isRed(right) ? BLACK : RED, left, pivot, right);
+  }
+
+  /** Hangs {@code right} off the right spine of the taller {@code left}, where the black heights match. */
+  private static <T> PersistentRedBlackNode<T> joinRight(PersistentRedBlackNode<T> left, T pivot, PersistentRedBlackNode<T> right, int height)
+  {
+    if (!isRed(left) && blackHeight(left) == height)
+    {
+      return node(RED, left, pivot, right);
+    }
+    PersistentRedBlackNode<T> joined = joinRight(left.getRight(), pivot, right, height);
+    if (left.getColour() == BLACK && isRed(joined) && isRed(joined.getRight()))
+    {
+      return node(RED, node(BLACK, left.getLeft(), left.getPayload(), joined.getLeft()), joined.getPayload(), blacken(joined.getRight()));
+    }
+    return node(left.getColour(), left.getLeft(), left.getPayload(), joined);
+  }
+
+  private static <T> PersistentRedBlackNode<T> joinLeft(PersistentRedBlackNode<T> left, T pivot, PersistentRedBlackNode<T> right, int height)
+  {
+    if (!isRed(right) && blackHeight(right) == height)
+    {
+      return node(RED, left, pivot, right);
+    }
+    PersistentRedBlackNode<T> joined = joinLeft(left, pivot, right.getLeft(), height);
+    if (right.getColour() == BLACK && isRed(joined) && isRed(joined.getLeft()))
+    {
+      return node(RED, blacken(joined.getLeft()), joined.getPayload(), node(BLACK, joined.getRight(), right.getPayload(), right.getRight()));
+    }
+    return node(right.getColour(), joined, right.getPayload(), right.getRight());
+  }
+
+  /** The join of {@code left} and {@code right} with no pivot: the last element of {@code left} becomes it. */
+  private static <T> PersistentRedBlackNode<T> join2(PersistentRedBlackNode<T> left, PersistentRedBlackNode<T> right)
+  {
+    if (left == null)
+    {
+      return right;
+    }
+    if (right == null)
+    {
+      return left;
+    }
+    PersistentRedBlackNode<T> last = left;
+    while (last.getRight() != null)
+    {
+      last = last.getRight();
+    }
+    return join(withoutLast(left), last.getPayload(), right);
+  }
+
+  private static <T> PersistentRedBlackNode<T> withoutLast(PersistentRedBlackNode<T> t)
+  {
+    if (t.getRight() == null)
+    {
+      return t.getLeft();
+    }
+    return join(t.getLeft(), t.getPayload(), withoutLast(t.getRight()));
+  }
+
+  private enum Operation
+  {
+    UNION, INTERSECTION, DIFFERENCE
+  }
+
+  /** Below this many elements in both operands the two halves of a set operation are not forked. */
+  private static final int FORK_THRESHOLD = 1 << 12;
+
+  /** One of the set operations of two subtrees, splitting the second around the root of the first. */
+  private final class Combine extends RecursiveTask<PersistentRedBlackNode<T>>
+  {
+    private static final long serialVersionUID = 1L;
+
+    private final Operation m_operation;
+    private final PersistentRedBlackNode<T> m_a;
+    private final PersistentRedBlackNode<T> m_b;
+
+    Combine(Operation operation, PersistentRedBlackNode<T> a, PersistentRedBlackNode<T> b)
+    {
+      m_operation = operation;
+      m_a = a;
+      m_b = b;
+    }
+
+    @Override
+    protected PersistentRedBlackNode<T> compute()
+    {
+      if (m_a == null || m_b == null)
+      {
+        return m_operation == Operation.UNION ? (m_a == null ? m_b : m_a) : m_operation == Operation.DIFFERENCE ? m_a : null;
+      }
+      SplitNodes<T> split = split(m_b, m_a.getPayload());
+      Combine left = new Combine(m_operation, m_a.getLeft(), split.m_left);
+      Combine right = new Combine(m_operation, m_a.getRight(), split.m_right);
+      PersistentRedBlackNode<T> leftResult;
+      PersistentRedBlackNode<T> rightResult;
+      if (m_a.getSubtreeSize() + m_b.getSubtreeSize() >= FORK_THRESHOLD)
+      {
+        left.fork();
+        rightResult = right.compute();
+        leftResult = left.join();
+      }
+      else
+      {
+        leftResult = left.compute();
+        rightResult = right.compute();
+      }
+      boolean keep = m_operation == Operation.UNION || (m_operation == Operation.INTERSECTION) == (split.m_found != null);
+      return keep ? PersistentRedBlackTree.join(leftResult, m_a.getPayload(), rightResult) : join2(leftResult, rightResult);
+    }
+  }
+
+  private static <T> PersistentRedBlackNode<T> node(boolean colour, PersistentRedBlackNode<T> left, T payload, PersistentRedBlackNode<T> right)
+  {
+    return new PersistentRedBlackNode<>(colour, left, payload, right);
+  }
+
+  private static boolean isRed(PersistentRedBlackNode<?> node)
+  {
+    return node != null && node.getColour() == RED;
+  }
+
+  private static boolean isBlack(PersistentRedBlackNode<?> node)
+  {
+    return node != null && node.getColour() == BLACK;
+  }
+
+  private static <T> PersistentRedBlackNode<T> blacken(PersistentRedBlackNode<T> node)
+  {
+    return node.getColour() == BLACK ? node : node(BLACK, node.getLeft(), node.getPayload(), node.getRight());
+  }
+
+  /** Kahrs' {@code sub1}: a black node made red, which takes one off its black height. */
+  private static <T> PersistentRedBlackNode<T> redden(PersistentRedBlackNode<T> node)
+  {
+    if (!isBlack(node))
+    {
+      throw new IllegalStateException("Red-black invariant violated");
+    }
+    return node(RED, node.getLeft(), node.getPayload(), node.getRight());
+  }
+
+  /** A black node over {@code left} and {@code right}, rebalanced if one of them has a red-red violation. */
+  private static <T> PersistentRedBlackNode<T> balance(PersistentRedBlackNode<T> left, T payload, PersistentRedBlackNode<T> right)
+  {
+    if (isRed(left) && isRed(right))
+    {
+      return node(RED, blacken(left), payload, blacken(right));
+    }
+    if (isRed(left))
+    {
+      PersistentRedBlackNode<T> ll = left.getLeft();
+      PersistentRedBlackNode<T> lr = left.getRight();
+      if (isRed(ll))
+      {
+        return node(RED, blacken(ll), left.getPayload(), node(BLACK, lr, payload, right));
+      }
+      if (isRed(lr))
+      {
+        return node(RED, node(BLACK, ll, left.getPayload(), lr.getLeft()), lr.getPayload(), node(BLACK, lr.getRight(), payload, right));
+      }
+    }
+    if (isRed(right))
+    {
+      PersistentRedBlackNode<T> rl = right.getLeft();
+      PersistentRedBlackNode<T> rr = right.getRight();
+      if (isRed(rr))
+      {
+        return node(RED, node(BLACK, left, payload, rl), right.getPayload(), blacken(rr));
+      }
+      if (isRed(rl))
+      {
+        return node(RED, node(BLACK, left, payload, rl.getLeft()), rl.getPayload(), node(BLACK, rl.getRight(), right.getPayload(), rr));
+      }
+    }
+    return node(BLACK, left, payload, right);
+  }
+
+  /** The subtree with {@code value}, or {@code t} itself if it already contains it. */
+  private PersistentRedBlackNode<T> insert(PersistentRedBlackNode<T> t, T value)
+  {
+    if (t == null)
+    {
+      return node(RED, null, value, null);
+    }
+    int cmp = m_comparator.compare(value, t.getPayload());
+    if (cmp < 0)
+    {
+      PersistentRedBlackNode<T> left = insert(t.getLeft(), value);
+      if (left == t.getLeft())
+      {
+        return t;
+      }
+      return t.getColour() == BLACK ? balance(left, t.getPayload(), t.getRight()) : node(RED, left, t.getPayload(), t.getRight());
+    }
+    if (cmp > 0)
+    {
+      PersistentRedBlackNode<T> right = insert(t.getRight(), value);
+      if (right == t.getRight())
+      {
+        return t;
+      }
+      return t.getColour() == BLACK ? balance(t.getLeft(), t.getPayload(), right) : node(RED, t.getLeft(), t.getPayload(), right);
+    }
+    return t;
+  }
+
+  /**
+   * The subtree without {@code value}, which it contains. Deleting from a black subtree leaves it one
+   * black shorter, which {@link #balanceLeft} and {@link #balanceRight} make up for.
+   */
+  private PersistentRedBlackNode<T> delete(PersistentRedBlackNode<T> t, T value)
+  {
+    int cmp = m_comparator.compare(value, t.getPayload());
+    if (cmp < 0)
+    {
+      PersistentRedBlackNode<T> left = delete(t.getLeft(), value);
+      return isBlack(t.getLeft()) ? balanceLeft(left, t.getPayload(), t.getRight()) : node(RED, left, t.getPayload(), t.getRight());
+    }
+    if (cmp > 0)
+    {
+      PersistentRedBlackNode<T> right = delete(t.getRight(), value);
+      return isBlack(t.getRight()) ? balanceRight(t.getLeft(), t.getPayload(), right) : node(RED, t.getLeft(), t.getPayload(), right);
+    }
+    return append(t.getLeft(), t.getRight());
+  }
+
+  /** A node over {@code left}, one black shorter than {@code right}, and {@code right}. */
+  private static <T> PersistentRedBlackNode<T> balanceLeft(PersistentRedBlackNode<T> left, T payload, PersistentRedBlackNode<T> right)
+  {
+    if (isRed(left))
+    {
+      return node(RED, blacken(left), payload, right);
+    }
+    if (isBlack(right))
+    {
+      return balance(left, payload, redden(right));
+    }
+    if (isRed(right) && isBlack(right.getLeft()))
+    {
+      PersistentRedBlackNode<T> rl = right.getLeft();
+      return node(RED, node(BLACK, left, payload, rl.getLeft()), rl.getPayload(), balance(rl.getRight(), right.getPayload(), redden(right.getRight())));
+    }
+    throw new IllegalStateException("Red-black invariant violated");
+  }
+
+  /** A node over {@code left} and {@code right}, one black shorter than {@code left}. */
+  private static <T> PersistentRedBlackNode<T> balanceRight(PersistentRedBlackNode<T> left, T payload, PersistentRedBlackNode<T> right)
+  {
+    if (isRed(right))
+    {
+      return node(RED, left, payload, blacken(right));
+    }
+    if (isBlack(left))
+    {
+      return balance(redden(left), payload, right);
+    }
+    if (isRed(left) && isBlack(left.getRight()))
+    {
+      PersistentRedBlackNode<T> lr = left.getRight();
+      return node(RED, balance(redden(left.getLeft()), left.getPayload(), lr.getLeft()), lr.getPayload(), node(BLACK, lr.getRight(), payload, right));
+    }
+    throw new IllegalStateException("Red-black invariant violated");
+  }
+
+  /** The nodes of {@code left} and then those of {@code right}, of the same black height, in one subtree. */
+  private static <T> PersistentRedBlackNode<T> append(PersistentRedBlackNode<T> left, PersistentRedBlackNode<T> right)
+  {
+    if (left == null)
+    {
+      return right;
+    }
+    if (right == null)
+    {
+      return left;
+    }
+    if (isRed(left) && isRed(right))
+    {
+      PersistentRedBlackNode<T> middle = append(left.getRight(), right.getLeft());
+      if (isRed(middle))
+      {
+        return node(RED, node(RED, left.getLeft(), left.getPayload(), middle.getLeft()), middle.getPayload(),
+            node(RED, middle.getRight(), right.getPayload(), right.getRight()));
+      }
+      return node(RED, left.getLeft(), left.getPayload(), node(RED, middle, right.getPayload(), right.getRight()));
+    }
+    if (isBlack(left) && isBlack(right))
+    {
+      PersistentRedBlackNode<T> middle = append(left.getRight(), right.getLeft());
+      if (isRed(middle))
+      {
+        return node(RED, node(BLACK, left.getLeft(), left.getPayload(), middle.getLeft()), middle.getPayload(),
+            node(BLACK, middle.getRight(), right.getPayload(), right.getRight()));
+      }
+      return balanceLeft(left.getLeft(), left.getPayload(), node(BLACK, middle, right.getPayload(), right.getRight()));
+    }
+    if (isRed(right))
+    {
+      return node(RED, append(left, right.getLeft()), right.getPayload(), right.getRight());
+    }
+    return node(RED, left.getLeft(), left.getPayload(), append(left.getRight(), right));
+  }
+
+  public PersistentRedBlackNode<T> getNode(T value)
+  {
+    PersistentRedBlackNode<T> p = m_root;
+    while (p != null)
+    {
+      int cmp = m_comparator.compare(value, p.getPayload());
+      if (cmp == 0)
+      {
+        return p;
+      }
+      p = cmp < 0 ? p.getLeft() : p.getRight();
+    }
+    return null;
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public boolean contains(Object o)
+  {
+    return getNode((T) o) != null;
+  }
+
+  /**
+   * The payload of the closest node above {@code value} if {@code above}, below it otherwise, or
+   * {@code value}'s own if {@code inclusive}.
+   */
+  private T search(T value, boolean above, boolean inclusive)
+  {
+    T best = null;
+    PersistentRedBlackNode<T> p = m_root;
+    while (p != null)
+    {
+      int cmp = m_comparator.compare(value, p.getPayload());
+      if (cmp == 0 && inclusive)
+      {
+        return p.getPayload();
+      }
+      if (above ? cmp < 0 : cmp > 0)
+      {
+        best = p.getPayload();
+        p = above ? p.getLeft() : p.getRight();
+      }
+      else
+      {
+        p = above ? p.getRight() : p.getLeft();
+      }
+    }
+    return best;
+  }
+
+  public T ceiling(T value)
+  {
+    return search(value, true, true);
+  }
+
+  public T higher(T value)
+  {
+    return search(value, true, false);
+  }
+
+  public T floor(T value)
+  {
+    return search(value, false, true);
+  }
+
+  public T lower(T value)
+  {
+    return search(value, false, false);
+  }
+
+  public T first()
+  {
+    if (m_root == null)
+    {
+      throw new NoSuchElementException();
+    }
+    PersistentRedBlackNode<T> p = m_root;
+    while (p.getLeft() != null)
+    {
+      p = p.getLeft();
+    }
+    return p.getPayload();
+  }
+
+  public T last()
+  {
+    if (m_root == null)
+    {
+      throw new NoSuchElementException();
+    }
+    PersistentRedBlackNode<T> p = m_root;
+    while (p.getRight() != null)
+    {
+      p = p.getRight();
+    }
+    return p.getPayload();
+  }
+
+  /** In-order, with the path to the next node on a stack since the nodes have no parent links. */
+  private final class InOrderIterator<R> implements Iterator<R>
+  {
+    private final Deque<PersistentRedBlackNode<T>> m_path = new ArrayDeque<>();
+    private final Function<PersistentRedBlackNode<T>, R> m_result;
+
+    InOrderIterator(Function<PersistentRedBlackNode<T>, R> result)
+    {
+      m_result = result;
+      pushLeft(m_root);
+    }
+
+    private void pushLeft(PersistentRedBlackNode<T> node)
+    {
+      for (PersistentRedBlackNode<T> p = node; p != null; p = p.getLeft())
+      {
+        m_path.push(p);
+      }
+    }
+
+    @Override
+    public boolean hasNext()
+    {
+      return !m_path.isEmpty();
+    }
+
+    @Override
+    public R next()
+    {
+      if (m_path.isEmpty())
+      {
+        throw new NoSuchElementException();
+      }
+      PersistentRedBlackNode<T> node = m_path.pop();
+      pushLeft(node.getRight());
+      return m_result.apply(node);
+    }
+  }
+
+  @Override
+  public Iterator<T> iterator()
+  {
+    return new InOrderIterator<>(PersistentRedBlackNode::getPayload);
+  }
+
+  @Override
+  public Iterable<PersistentRedBlackNode<T>> immutableNodeIterable()
+  {
+    return this::immutableNodeIterator;
+  }
+
+  @Override
+  public Iterator<PersistentRedBlackNode<T>> immutableNodeIterator()
+  {
+    return new InOrderIterator<>(Function.identity());
+  }
+}
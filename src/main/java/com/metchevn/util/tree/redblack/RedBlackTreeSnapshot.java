@@ -0,0 +1,283 @@
+package com.metchevn.util.tree.redblack;
+
+import static com.metchevn.util.tree.redblack.Colour.BLACK;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Comparator;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Saves a red-black tree to a file and loads it back in O(n), with no comparisons and no
+ * rebalancing: the file holds the tree's exact shape and colours as well as its elements.
+ * <p>
+ * The format, all big-endian:
+ * <pre>
+ *   int   magic, "RBTS"
+ *   int   format version
+ *   int   number of nodes, n
+ *   int   CRC-32 of the number of nodes and the body
+ *   long  length of the body
+ *   body: the shape, a nibble per node in pre-order, two to a byte, low nibble first: bit 0 set
+ *         for a black node, bit 1 if it has a left child, bit 2 if it has a right child;
+ *         then the payloads in ascending order, as written by the {@link SnapshotCodec}
+ * </pre>
+ * Loading memory-maps the file, so a snapshot is limited to 2 GB. A file with the wrong magic or
+ * version, a bad checksum or a body of the wrong length is rejected with an {@link IOException}
+ * before anything is built. The tree it is loaded into must order elements as the saved tree did.
+ */
+public final class RedBlackTreeSnapshot
+{
+  private static final int MAGIC = 0x52425453;
+  static final int VERSION = 1;
+  private static final int HEADER_SIZE = 24;
+
+  static final int BLACK_NODE = 1;
+  static final int HAS_LEFT = 2;
+  static final int HAS_RIGHT = 4;
+
+  private RedBlackTreeSnapshot()
+  {
+  }
+
+  /**
+   * Writes the tree to a file next to {@code file} and then moves it over {@code file}, so that a
+   * crash part way through leaves any previous snapshot as it was. The temporary file is deleted
+   * if the write fails.
+   */
+  public static <T, N extends ModifiableRedBlackNode<T, N>> void write(AbstractRedBlackTree<T, N> tree, SnapshotCodec<? super T> codec, Path file) throws IOException
+  {
+    Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+    try
+    {
+      try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING))
+      {
+        channel.position(HEADER_SIZE);
+        CRC32 crc = new CRC32();
+        crc.update(ByteBuffer.allocate(4).putInt(0, tree.size()));
+        // not closed: that would close the channel before the header is written
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new CheckedOutputStream(Channels.newOutputStream(channel), crc), 1 << 16));
+        ShapeWriter shape = new ShapeWriter(out);
+        if (tree.getRoot() != null)
+        {
+          writeShape(tree.getRoot(), shape);
+        }
+        shape.flush();
+        for (T value : tree)
+        {
+          codec.write(value, out);
+        }
+        out.flush();
+        long length = channel.position();
+        if (length > Integer.MAX_VALUE)
+        {
+          throw new IOException("Snapshot of " + length + " bytes is too large to map: " + file);
+        }
+
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        header.putInt(MAGIC).putInt(VERSION).putInt(tree.size()).putInt((int) crc.getValue()).putLong(length - HEADER_SIZE);
+        header.flip();
+        channel.write(header, 0);
+        channel.force(false);
+      }
+      Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+    catch (IOException | RuntimeException e)
+    {
+      try
+      {
+        Files.deleteIfExists(temporary);
+      }
+      catch (IOException suppressed)
+      {
+        e.addSuppressed(suppressed);
+      }
+      throw e;
+    }
+  }
+
+  /** Loads a snapshot into a new {@link DefaultRedBlackTree}. */
+  public static <T> DefaultRedBlackTree<T> read(Path file, SnapshotCodec<? extends T> codec, Comparator<T> comparator) throws IOException
+  {
+    return read(file, codec, new DefaultRedBlackTree<>(comparator));
+  }
+
+  /** Replaces the contents of {@code tree} with a snapshot, returning the tree. */
+  public static <T, R extends AbstractRedBlackTree<T, ?>> R read(Path file, SnapshotCodec<? extends T> codec, R tree) throws IOException
+  {
+    MappedByteBuffer buffer;
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ))
+    {
+      long size = channel.size();
+      if (size < HEADER_SIZE)
+      {
+        throw corrupt(file, "shorter than its header");
+      }
+      if (size > Integer.MAX_VALUE)
+      {
+        throw new IOException("Snapshot of " + size + " bytes is too large to map: " + file);
+      }
+      buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+    }
+    if (buffer.getInt(0) != MAGIC)
+    {
+      throw corrupt(file, "not a red-black tree snapshot");
+    }
+    int version = buffer.getInt(4);
+    if (version != VERSION)
+    {
+      throw new IOException("Unsupported snapshot version " + version + ", expected " + VERSION + ": " + file);
+    }
+    if (buffer.getLong(16) != buffer.capacity() - HEADER_SIZE)
+    {
+      throw corrupt(file, "body length does not match the file length");
+    }
+    if (buffer.getInt(12) != checksum(buffer))
+    {
+      throw corrupt(file, "checksum mismatch");
+    }
+    int count = buffer.getInt(8);
+    int shapeLength = (int) ((count + 1L) / 2);
+    if (count < 0 || shapeLength > buffer.capacity() - HEADER_SIZE)
+    {
+      throw corrupt(file, "more nodes than the body can hold");
+    }
+
+    ByteBuffer payloads = buffer.duplicate();
+    payloads.position(HEADER_SIZE + shapeLength);
+    Reader<T> reader = new Reader<>(buffer, payloads, codec, count);
+    try
+    {
+      tree.restore(reader, count);
+    }
+    catch (BufferUnderflowException | IllegalStateException e)
+    {
+      tree.clear();
+      throw corrupt(file, e.getMessage() == null ? "body ends early" : e.getMessage());
+    }
+    if (!reader.isComplete())
+    {
+      tree.clear();
+      throw corrupt(file, "body does not match the node count");
+    }
+    return tree;
+  }
+
+  private static IOException corrupt(Path file, String reason)
+  {
+    return new IOException("Corrupt snapshot, " + reason + ": " + file);
+  }
+
+  private static int checksum(ByteBuffer file)
+  {
+    CRC32 crc = new CRC32();
+    ByteBuffer checksummed = file.duplicate();
+    checksummed.position(8).limit(12);
+    crc.update(checksummed);
+    checksummed.limit(checksummed.capacity()).position(HEADER_SIZE);
+    crc.update(checksummed);
+    return (int) crc.getValue();
+  }
+
+  /** Pre-order, so that a node's flags come before its subtrees when the shape is read back. */
+  private static <N extends ModifiableRedBlackNode<?, N>> void writeShape(N node, ShapeWriter shape) throws IOException
+  {
+    N left = node.getLeft();
+    N right = node.getRight();
+    shape.write((node.getColour() == BLACK ? BLACK_NODE : 0) | (left != null ? HAS_LEFT : 0) | (right != null ? HAS_RIGHT : 0));
+    if (left != null)
+    {
+      writeShape(left, shape);
+    }
+    if (right != null)
+    {
+      writeShape(right, shape);
+    }
+  }
+
+  private static final class ShapeWriter
+  {
+    private final DataOutputStream m_out;
+    private int m_pending = -1;
+
+    ShapeWriter(DataOutputStream out)
+    {
+      m_out = out;
+    }
+
+    void write(int nibble) throws IOException
+    {
+      if (m_pending < 0)
+      {
+        m_pending = nibble;
+      }
+      else
+      {
+        m_out.writeByte(m_pending | nibble << 4);
+        m_pending = -1;
+      }
+    }
+
+    void flush() throws IOException
+    {
+      if (m_pending >= 0)
+      {
+        m_out.writeByte(m_pending);
+        m_pending = -1;
+      }
+    }
+  }
+
+  /**
+   * Hands {@link AbstractRedBlackTree#restore} the nodes' flags in pre-order and their payloads in
+   * order, straight out of the mapped file.
+   */
+  static final class Reader<T>
+  {
+    private final ByteBuffer m_file;
+    private final ByteBuffer m_payloads;
+    private final SnapshotCodec<? extends T> m_codec;
+    private final int m_count;
+    private int m_nodes;
+
+    Reader(ByteBuffer file, ByteBuffer payloads, SnapshotCodec<? extends T> codec, int count)
+    {
+      m_file = file;
+      m_payloads = payloads;
+      m_codec = codec;
+      m_count = count;
+    }
+
+    int nextShape()
+    {
+      if (m_nodes == m_count)
+      {
+        throw new IllegalStateException("more nodes than the header says");
+      }
+      int flags = m_file.get(HEADER_SIZE + m_nodes / 2) >> (m_nodes % 2 * 4) & 0xf;
+      m_nodes++;
+      return flags;
+    }
+
+    T nextPayload()
+    {
+      return m_codec.read(m_payloads);
+    }
+
+    boolean isComplete()
+    {
+      return m_nodes == m_count && !m_payloads.hasRemaining();
+    }
+  }
+}
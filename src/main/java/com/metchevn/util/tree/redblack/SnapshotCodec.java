@@ -0,0 +1,68 @@
+package com.metchevn.util.tree.redblack;
+
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * How a {@link RedBlackTreeSnapshot} stores payloads. Payloads are written through a stream but read
+ * straight out of the memory-mapped file, so {@link #read(ByteBuffer)} must consume exactly the
+ * bytes {@link #write(Object, DataOutput)} produced, in the same (big-endian) byte order.
+ */
+public interface SnapshotCodec<T>
+{
+  void write(T value, DataOutput out) throws IOException;
+
+  T read(ByteBuffer in);
+
+  SnapshotCodec<Integer> INTEGER = new SnapshotCodec<Integer>()
+  {
+    @Override
+    public void write(Integer value, DataOutput out) throws IOException
+    {
+      out.writeInt(value);
+    }
+
+    @Override
+    public Integer read(ByteBuffer in)
+    {
+      return in.getInt();
+    }
+  };
+
+  SnapshotCodec<Long> LONG = new SnapshotCodec<Long>()
+  {
+    @Override
+    public void write(Long value, DataOutput out) throws IOException
+    {
+      out.writeLong(value);
+    }
+
+    @Override
+    public Long read(ByteBuffer in)
+    {
+      return in.getLong();
+    }
+  };
+
+  /** UTF-8, after the length in bytes. */
+  SnapshotCodec<String> STRING = new SnapshotCodec<String>()
+  {
+    @Override
+    public void write(String value, DataOutput out) throws IOException
+    {
+      byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+      out.writeInt(bytes.length);
+      out.write(bytes);
+    }
+
+    @Override
+    public String read(ByteBuffer in)
+    {
+      byte[] bytes = new byte[in.getInt()];
+      in.get(bytes);
+      return new String(bytes, StandardCharsets.UTF_8);
+    }
+  };
+}
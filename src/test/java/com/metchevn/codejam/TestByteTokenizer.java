@@ -0,0 +1,129 @@
+package com.metchevn.codejam;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsNull.nullValue;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class TestByteTokenizer {
+
+    private static ByteTokenizer tokenizer(String input) {
+        return new ByteTokenizer(new ByteArrayInputStream(input.getBytes(StandardCharsets.US_ASCII)));
+    }
+
+    @Test
+    public void testNumbers() throws IOException {
+        ByteTokenizer tokenizer = tokenizer("3\n-17  42\r\n9007199254740993 " + Long.MIN_VALUE + " " + Long.MAX_VALUE);
+        assertThat(tokenizer.parseInt(), is(3));
+        assertThat(tokenizer.parseInt(), is(-17));
+        assertThat(tokenizer.parseLong(), is(42L));
+        assertThat(tokenizer.parseLong(), is(9007199254740993L));
+        assertThat(tokenizer.parseLong(), is(Long.MIN_VALUE));
+        assertThat(tokenizer.parseLong(), is(Long.MAX_VALUE));
+    }
+
+    @Test
+    public void testNotANumber() {
+        assertThrows(RuntimeException.class, () -> tokenizer("abc").parseInt());
+        assertThrows(RuntimeException.class, () -> tokenizer("").parseLong());
+        assertThrows(RuntimeException.class, () -> tokenizer("- 1").parseLong());
+    }
+
+    @Test
+    public void testOutOfRange() throws IOException {
+        ByteTokenizer tokenizer = tokenizer("9223372036854775808 -9223372036854775809 123456789012345678901234 2147483648 -2147483649 "
+            + Integer.MIN_VALUE + " 5");
+        assertThrows(NumberFormatException.class, tokenizer::parseLong);
+        assertThrows(NumberFormatException.class, tokenizer::parseLong);
+        assertThrows(NumberFormatException.class, tokenizer::parseLong);
+        assertThrows(NumberFormatException.class, tokenizer::parseInt);
+        assertThrows(NumberFormatException.class, tokenizer::parseInt);
+        assertThat(tokenizer.parseInt(), is(Integer.MIN_VALUE));
+        // an out of range token is consumed whole
+        assertThat(tokenizer.parseInt(), is(5));
+    }
+
+    @Test
+    public void testWordsAndChars() throws IOException {
+        ByteTokenizer tokenizer = tokenizer("hello World-2.x + 7");
+        assertThat(tokenizer.parseString(), is("hello"));
+        assertThat(tokenizer.parseString(), is("World-2.x"));
+        assertThat(tokenizer.parseChar(), is('+'));
+        assertThrows(RuntimeException.class, tokenizer::parseString);
+    }
+
+    @Test
+    public void testCharOrNumber() throws IOException {
+        ByteTokenizer tokenizer = tokenizer("-+- -3 12");
+        assertCharOrNumber(tokenizer.parseCharOrNumber(), '-', null);
+        assertCharOrNumber(tokenizer.parseCharOrNumber(), '+', null);
+        assertCharOrNumber(tokenizer.parseCharOrNumber(), '-', null);
+        assertCharOrNumber(tokenizer.parseCharOrNumber(), null, -3L);
+        assertCharOrNumber(tokenizer.parseCharOrNumber(), null, 12L);
+    }
+
+    private static void assertCharOrNumber(CharOrNumber charOrNumber, Character c, Long n) {
+        assertThat(charOrNumber.getC(), c == null ? nullValue() : is(c));
+        assertThat(charOrNumber.getN(), n == null ? nullValue() : is(n));
+    }
+
+    @Test
+    public void testTokensAcrossBlocks() throws IOException {
+        StringBuilder input = new StringBuilder();
+        int count = ByteTokenizer.BLOCK_SIZE / 3;
+        for (int i = 0; i < count; i++) {
+            input.append(i).append(' ');
+        }
+        ByteTokenizer tokenizer = tokenizer(input.toString());
+        for (int i = 0; i < count; i++) {
+            assertThat(tokenizer.parseInt(), is(i));
+        }
+    }
+
+    @Test
+    public void testMappedFile() throws IOException {
+        File file = File.createTempFile("tokenizer", ".in");
+        file.deleteOnExit();
+        Files.write(file.toPath(), "2 foo\n123456789012345 -1".getBytes(StandardCharsets.US_ASCII));
+        try (InputStream is = new FileInputStream(file);
+             ByteTokenizer tokenizer = new ByteTokenizer(is)) {
+            assertThat(tokenizer.parseInt(), is(2));
+            assertThat(tokenizer.parseString(), is("foo"));
+            assertThat(tokenizer.parseLong(), is(123456789012345L));
+            assertThat(tokenizer.parseLong(), is(-1L));
+        }
+    }
+
+    @Test
+    public void testPositionAndSkip() throws IOException {
+        String input = "3 foo\n  12 -4\n7";
+        File file = File.createTempFile("tokenizer", ".in");
+        file.deleteOnExit();
+        Files.write(file.toPath(), input.getBytes(StandardCharsets.US_ASCII));
+        try (InputStream is = new FileInputStream(file);
+             ByteTokenizer mapped = new ByteTokenizer(is);
+             ByteTokenizer stream = tokenizer(input)) {
+            for (ByteTokenizer tokenizer : new ByteTokenizer[] {mapped, stream}) {
+                assertThat(tokenizer.getPosition(), is(0L));
+                tokenizer.skipToken();
+                assertThat(tokenizer.getPosition(), is(1L));
+                tokenizer.skipTokens(2);
+                assertThat(tokenizer.getPosition(), is((long) input.indexOf(" -4")));
+                assertThat(tokenizer.parseInt(), is(-4));
+                tokenizer.skipToken();
+                assertThat(tokenizer.getPosition(), is((long) input.length()));
+                assertThrows(RuntimeException.class, tokenizer::skipToken);
+            }
+        }
+    }
+}
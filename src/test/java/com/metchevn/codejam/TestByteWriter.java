@@ -0,0 +1,74 @@
+package com.metchevn.codejam;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Random;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+
+public class TestByteWriter {
+
+    private interface Writes {
+        void write(ByteWriter writer) throws IOException;
+    }
+
+    private static String written(Writes writes) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (ByteWriter writer = new ByteWriter(out, 8)) {
+            writes.write(writer);
+        }
+        return out.toString("US-ASCII");
+    }
+
+    @Test
+    public void testNumbers() throws IOException {
+        assertThat(written(w -> w.write(0).write(' ').write(-42).write(' ').write(Long.MIN_VALUE).write(' ').write(Long.MAX_VALUE)),
+                is("0 -42 " + Long.MIN_VALUE + " " + Long.MAX_VALUE));
+        assertThat(written(w -> w.write(new int[]{1, -2, 3}).newLine().write(new long[]{4})), is("1 -2 3\n4"));
+    }
+
+    @Test
+    public void testDoublesMatchDoubleToString() throws IOException {
+        double[] values = {0d, -0d, 1d, -5d, 9999999d, 1e7, 0.1, 2.5, -123.456, 1e-5, Double.NaN, Double.POSITIVE_INFINITY};
+        for (double value : values) {
+            assertThat(written(w -> w.write(value)), is(Double.toString(value)));
+        }
+    }
+
+    @Test
+    public void testFixedDecimals() throws IOException {
+        assertThat(written(w -> w.write(2.5, 3)), is("2.500"));
+        assertThat(written(w -> w.write(-0.0004, 3)), is("-0.000"));
+        assertThat(written(w -> w.write(-1.23456, 2)), is("-1.23"));
+        assertThat(written(w -> w.write(0.999, 2)), is("1.00"));
+        assertThat(written(w -> w.write(7d, 0)), is("7"));
+        assertThat(written(w -> w.write(662.0264999999999, 3)), is("662.026"));
+    }
+
+    @Test
+    public void testFixedDecimalsMatchStringFormat() throws IOException {
+        Random random = new Random(7);
+        for (int i = 0; i < 200000; i++) {
+            int decimals = random.nextInt(7);
+            // values a digit past the last written one, half of them on or next to a half-way point
+            double value = (random.nextInt(2000000) - 1000000) / Math.pow(10, decimals + 1);
+            if (random.nextBoolean()) {
+                value = random.nextBoolean() ? Math.nextUp(value) : Math.nextDown(value);
+            }
+            double v = value;
+            assertThat(written(w -> w.write(v, decimals)), is(String.format("%." + decimals + "f", v)));
+        }
+        for (double value : new double[]{-0d, -0.001, 1e17, -123456789012.5, Double.NaN, Double.NEGATIVE_INFINITY}) {
+            assertThat(written(w -> w.write(value, 2)), is(String.format("%.2f", value)));
+        }
+    }
+
+    @Test
+    public void testTextLongerThanBuffer() throws IOException {
+        String text = "Case #123456789: IMPOSSIBLE";
+        assertThat(written(w -> w.write(text)), is(text));
+    }
+}
@@ -0,0 +1,165 @@
+package com.metchevn.codejam;
+
+import com.metchevn.codejam.erdos_szekeres.Erdos_Szekeres;
+import com.metchevn.codejam.panckakeflipper.PancakeFlipperKt;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsCollectionContaining.hasItem;
+import static org.hamcrest.core.IsNull.nullValue;
+
+public class TestResultCache {
+
+    private static byte[] bytes(String s) {
+        return s.getBytes(StandardCharsets.US_ASCII);
+    }
+
+    @Test
+    public void testLeastRecentlyUsedEviction() throws IOException {
+        Path directory = Files.createTempDirectory("cache");
+        ResultCache cache = new ResultCache(directory, 10);
+        String a = ResultCache.key("solver", "1", bytes("1 2"), 3);
+        String b = ResultCache.key("solver", "1", bytes("3 4"), 3);
+        String c = ResultCache.key("solver", "1", bytes("5 6"), 3);
+        cache.put(a, bytes("aaaa"));
+        cache.put(b, bytes("bbbb"));
+        assertThat(cache.get(a), is(bytes("aaaa")));
+        cache.put(c, bytes("cccc"));
+        assertThat(cache.get(b), nullValue());
+        assertThat(cache.get(a), is(bytes("aaaa")));
+        assertThat(cache.get(c), is(bytes("cccc")));
+        assertThat(cache.getBytes(), is(8L));
+
+        ResultCache reopened = new ResultCache(directory, 10);
+        assertThat(reopened.size(), is(2));
+        assertThat(reopened.get(c), is(bytes("cccc")));
+    }
+
+    @Test
+    public void testKeyDependsOnSolverVersionAndInput() {
+        String key = ResultCache.key("solver", "1", bytes("1 2"), 3);
+        assertThat(ResultCache.key("solver", "1", bytes("1 2 3"), 3), is(key));
+        assertThat(ResultCache.key("solver", "2", bytes("1 2"), 3).equals(key), is(false));
+        assertThat(ResultCache.key("other", "1", bytes("1 2"), 3).equals(key), is(false));
+        assertThat(ResultCache.key("solver", "1", bytes("1 3"), 3).equals(key), is(false));
+    }
+
+    private static class CountingSolver extends Solver {
+        private final AtomicInteger m_solved;
+
+        CountingSolver(String input, ByteArrayOutputStream out, AtomicInteger solved) {
+            super(new ByteArrayInputStream(bytes(input)), out);
+            m_solved = solved;
+        }
+
+        @Override
+        protected Case parseCase(long caseNumber) throws Exception {
+            long a = parseLong();
+            long b = parseLong();
+            return () -> {
+                m_solved.incrementAndGet();
+                return out -> out.write(a * b);
+            };
+        }
+    }
+
+    @Test
+    public void testSolverOnlySolvesNewCases() throws Exception {
+        ResultCache cache = new ResultCache(Files.createTempDirectory("cache"), 1 << 20);
+        AtomicInteger solved = new AtomicInteger();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (Solver solver = new CountingSolver("2\n2 3\n4 5\n", out, solved)) {
+            solver.setResultCache(cache);
+            solver.solve();
+        }
+        assertThat(solved.get(), is(2));
+
+        out.reset();
+        try (Solver solver = new CountingSolver("3\n4 5\n2 3\n6 7\n", out, solved)) {
+            solver.setResultCache(cache);
+            solver.solve(2);
+        }
+        assertThat(solved.get(), is(3));
+        assertThat(out.toString("US-ASCII"), is("Case #1: 20\nCase #2: 6\nCase #3: 42\n"));
+    }
+
+    @Test
+    public void testClassVersionCoversNestedClasses() throws Exception {
+        assertThat(ResultCache.classFiles(Erdos_Szekeres.class), hasItem("Erdos_Szekeres$Precedence.class"));
+        Class<?> precedence = Class.forName("com.metchevn.codejam.erdos_szekeres.Erdos_Szekeres$Precedence");
+        assertThat(ResultCache.classVersion(precedence), is(ResultCache.classVersion(Erdos_Szekeres.class)));
+    }
+
+    @Test
+    public void testFunctionSolversAreKeyedByTheirFunction() throws Exception {
+        Class<?> flipper = PancakeFlipperKt.getPancakeFlipper().getClass();
+        try (Solver solver = SolverUtilKt.solver(new ByteArrayInputStream(bytes("0\n")), new ByteArrayOutputStream(), PancakeFlipperKt.getPancakeFlipper())) {
+            assertThat(solver.getSolverClass().equals(flipper), is(true));
+            assertThat(solver.getVersion(), is(ResultCache.classVersion(PancakeFlipperKt.class)));
+        }
+        assertThat(ResultCache.classFiles(PancakeFlipperKt.class), hasItem(flipper.getName().substring(flipper.getName().lastIndexOf('.') + 1) + ".class"));
+    }
+
+    private static class CountingStringSolver extends StringSolver {
+        private final AtomicInteger m_solved;
+
+        CountingStringSolver(InputStream input, ByteArrayOutputStream out, AtomicInteger solved) {
+            super(input, out);
+            m_solved = solved;
+        }
+
+        @Override
+        protected CaseShape getCaseShape() {
+            return tokens -> tokens.skipTokens(2);
+        }
+
+        @Override
+        protected String solve(long caseNumber) throws Exception {
+            m_solved.incrementAndGet();
+            return Long.toString(parseLong() + parseLong());
+        }
+    }
+
+    @Test
+    public void testStringSolverWithShapeOnlySolvesNewCases() throws Exception {
+        ResultCache cache = new ResultCache(Files.createTempDirectory("cache"), 1 << 20);
+        AtomicInteger solved = new AtomicInteger();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (Solver solver = new CountingStringSolver(new ByteArrayInputStream(bytes("2\n2 3\n4 5\n")), out, solved)) {
+            solver.setResultCache(cache);
+            solver.solve();
+        }
+        assertThat(solved.get(), is(2));
+
+        out.reset();
+        try (Solver solver = new CountingStringSolver(new ByteArrayInputStream(bytes("3\n4 5\n2 3\n6 7\n")), out, solved)) {
+            solver.setResultCache(cache);
+            solver.solve(2);
+        }
+        assertThat(solved.get(), is(3));
+        assertThat(out.toString("US-ASCII"), is("Case #1: 9\nCase #2: 5\nCase #3: 13\n"));
+
+        // indexed, so the recorded bytes are parsed again from a slice's thread
+        Path input = Files.createTempFile("cases", ".in");
+        Files.write(input, bytes("4\n6 7\n1 1\n4 5\n8 9\n"));
+        out.reset();
+        try (Solver solver = new CountingStringSolver(new FileInputStream(input.toFile()), out, solved)) {
+            solver.setResultCache(cache);
+            solver.solve(2);
+        }
+        Files.delete(input);
+        assertThat(solved.get(), is(5));
+        assertThat(out.toString("US-ASCII"), is("Case #1: 13\nCase #2: 2\nCase #3: 9\nCase #4: 17\n"));
+    }
+}
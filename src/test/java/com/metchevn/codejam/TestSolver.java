@@ -0,0 +1,152 @@
+package com.metchevn.codejam;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.StringContains.containsString;
+import static org.hamcrest.number.OrderingComparison.greaterThanOrEqualTo;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class TestSolver {
+
+    /** Sums the numbers of each case, taking longer for earlier cases so that they finish out of order. */
+    private static class SumSolver extends Solver {
+        SumSolver(String input, ByteArrayOutputStream out) {
+            this(new ByteArrayInputStream(input.getBytes(StandardCharsets.US_ASCII)), out);
+        }
+
+        SumSolver(InputStream input, ByteArrayOutputStream out) {
+            super(input, out);
+        }
+
+        @Override
+        protected Case parseCase(long caseNumber) throws Exception {
+            int n = parseInt();
+            long[] values = new long[n];
+            for (int i = 0; i < n; i++) {
+                values[i] = parseLong();
+            }
+            return () -> {
+                Thread.sleep(Math.max(0, 20 - caseNumber));
+                long sum = 0;
+                for (long value : values) {
+                    sum += value;
+                }
+                long answer = sum;
+                return out -> out.write(answer);
+            };
+        }
+    }
+
+    private static final String INPUT = "4\n2 1 2\n1 5\n3 1 1 1\n0\n";
+    private static final String OUTPUT = "Case #1: 3\nCase #2: 5\nCase #3: 3\nCase #4: 0\n";
+
+    @Test
+    public void testSequential() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (Solver solver = new SumSolver(INPUT, out)) {
+            solver.solve();
+        }
+        assertThat(out.toString("US-ASCII"), is(OUTPUT));
+    }
+
+    @Test
+    public void testParallelKeepsCaseOrder() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (Solver solver = new SumSolver(INPUT, out)) {
+            solver.solve(4);
+        }
+        assertThat(out.toString("US-ASCII"), is(OUTPUT));
+    }
+
+    @Test
+    public void testPipelineWithSinglePendingCase() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (Solver solver = new SumSolver(INPUT, out)) {
+            solver.solve(4, 1);
+        }
+        assertThat(out.toString("US-ASCII"), is(OUTPUT));
+    }
+
+    @Test
+    public void testIndexedKeepsCaseOrder() throws Exception {
+        StringBuilder input = new StringBuilder("50\n");
+        StringBuilder output = new StringBuilder();
+        for (int i = 1; i <= 50; i++) {
+            input.append(i % 3).append(i % 3 == 0 ? "\n" : " ");
+            for (int j = 0; j < i % 3; j++) {
+                input.append(i).append(j == i % 3 - 1 ? "\n" : "  ");
+            }
+            output.append("Case #").append(i).append(": ").append(i * (i % 3)).append('\n');
+        }
+        File file = File.createTempFile("solver", ".in");
+        file.deleteOnExit();
+        Files.write(file.toPath(), input.toString().getBytes(StandardCharsets.US_ASCII));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (Solver solver = new SumSolver(new FileInputStream(file), out) {
+            @Override
+            protected CaseShape getCaseShape() {
+                return tokens -> tokens.skipTokens(tokens.parseInt());
+            }
+        }) {
+            solver.solveIndexed(4);
+            assertThat(solver.getReport().getCases(), is(50));
+        }
+        assertThat(out.toString("US-ASCII"), is(output.toString()));
+    }
+
+    @Test
+    public void testPipelinePropagatesFailure() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        Solver solver = new SumSolver("3\n1 1\n1 -1\n1 1\n", out) {
+            @Override
+            protected Case parseCase(long caseNumber) throws Exception {
+                Case c = super.parseCase(caseNumber);
+                return () -> {
+                    Answer ans = c.solve();
+                    ByteArrayOutputStream written = new ByteArrayOutputStream();
+                    try (ByteWriter writer = new ByteWriter(written)) {
+                        ans.write(writer);
+                    }
+                    if (written.toString("US-ASCII").startsWith("-")) {
+                        throw new IllegalStateException("negative sum in case " + caseNumber);
+                    }
+                    return ans;
+                };
+            }
+        };
+        assertThrows(IllegalStateException.class, () -> solver.solve(2, 1));
+    }
+
+    @Test
+    public void testReport() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (Solver solver = new SumSolver(INPUT, out)) {
+            solver.solve(2);
+            RunReport report = solver.getReport();
+            assertThat(report.getCases(), is(4));
+            assertThat(report.getSolveNanos(1), greaterThanOrEqualTo(19_000_000L));
+            assertThat(report.getSlowestCases(2)[0], is(1L));
+            assertThat(report.getWallNanos(), greaterThanOrEqualTo(report.getSolveNanos(1)));
+            assertThat(report.toString(), containsString("Case #1:"));
+        }
+    }
+
+    @Test
+    public void testPercentile() {
+        long[] nanos = {5, 1, 4, 2, 3, 10, 9, 8, 7, 6};
+        assertThat(RunReport.percentile(nanos, 50), is(5L));
+        assertThat(RunReport.percentile(nanos, 95), is(10L));
+        assertThat(RunReport.percentile(nanos, 100), is(10L));
+        assertThat(RunReport.percentile(new long[0], 50), is(0L));
+    }
+}
@@ -0,0 +1,22 @@
+package com.metchevn.codejam;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsNull.nullValue;
+
+public class TestSuiteRunner {
+
+    @Test
+    public void testFirstDifference() {
+        assertThat(SuiteRunner.firstDifference(Arrays.asList("Case #1: 1", "Case #2: 2"), Arrays.asList("Case #1: 1", "Case #2: 2")), nullValue());
+        assertThat(SuiteRunner.firstDifference(Arrays.asList("Case #1: 1", "Case #2: 3"), Arrays.asList("Case #1: 1", "Case #2: 2")),
+                is("line 2: got 'Case #2: 3' expected 'Case #2: 2'"));
+        assertThat(SuiteRunner.firstDifference(Collections.singletonList("Case #1: 1"), Arrays.asList("Case #1: 1", "Case #2: 2")),
+                is("line 2: got '<missing>' expected 'Case #2: 2'"));
+    }
+}
@@ -0,0 +1,126 @@
+package com.metchevn.codejam.erdos_szekeres;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+
+public class TestErdos_Szekeres
+{
+  /** Length of the longest increasing subsequence ending at each index. */
+  private static int[] a(int[] x)
+  {
+    int[] a = new int[x.length];
+    for (int i = 0; i < x.length; i++)
+    {
+      a[i] = 1;
+      for (int j = 0; j < i; j++)
+      {
+        if (x[j] < x[i])
+        {
+          a[i] = Math.max(a[i], a[j] + 1);
+        }
+      }
+    }
+    return a;
+  }
+
+  /** Length of the longest decreasing subsequence starting at each index. */
+  private static int[] b(int[] x)
+  {
+    int[] b = new int[x.length];
+    for (int i = x.length - 1; i >= 0; i--)
+    {
+      b[i] = 1;
+      for (int j = i + 1; j < x.length; j++)
+      {
+        if (x[j] < x[i])
+        {
+          b[i] = Math.max(b[i], b[j] + 1);
+        }
+      }
+    }
+    return b;
+  }
+
+  private static boolean nextPermutation(int[] p)
+  {
+    int i = p.length - 2;
+    while (i >= 0 && p[i] >= p[i + 1])
+    {
+      i--;
+    }
+    if (i < 0)
+    {
+      return false;
+    }
+    int j = p.length - 1;
+    while (p[j] <= p[i])
+    {
+      j--;
+    }
+    int t = p[i]; p[i] = p[j]; p[j] = t;
+    for (int l = i + 1, r = p.length - 1; l < r; l++, r--)
+    {
+      t = p[l]; p[l] = p[r]; p[r] = t;
+    }
+    return true;
+  }
+
+  /** Permutations are enumerated in lexicographic order, so the first match is the smallest. */
+  private static int[] bruteForce(int[] a, int[] b)
+  {
+    int[] p = new int[a.length];
+    for (int i = 0; i < p.length; i++)
+    {
+      p[i] = i + 1;
+    }
+    do
+    {
+      if (Arrays.equals(a(p), a) && Arrays.equals(b(p), b))
+      {
+        return p;
+      }
+    }
+    while (nextPermutation(p));
+    throw new AssertionError("no permutation for " + Arrays.toString(a) + " " + Arrays.toString(b));
+  }
+
+  @Test
+  public void testSample()
+  {
+    int[] A = {1, 2, 3, 4, 1, 1, 1, 1, 1, 1, 2, 3, 4, 5, 6, 6, 6, 6, 6, 6};
+    int[] B = {7, 7, 7, 7, 6, 5, 4, 3, 2, 1, 1, 1, 1, 1, 6, 5, 4, 3, 2, 1};
+    int[] X = new Erdos_Szekeres.Precedence(A, B).solve();
+    assertThat(a(X), is(A));
+    assertThat(b(X), is(B));
+  }
+
+  @Test
+  public void testMatchesBruteForce()
+  {
+    Random random = new Random(42);
+    for (int n = 1; n <= 7; n++)
+    {
+      for (int round = 0; round < 50; round++)
+      {
+        int[] x = new int[n];
+        for (int i = 0; i < n; i++)
+        {
+          x[i] = i + 1;
+        }
+        for (int i = n - 1; i > 0; i--)
+        {
+          int j = random.nextInt(i + 1);
+          int t = x[i]; x[i] = x[j]; x[j] = t;
+        }
+        int[] A = a(x);
+        int[] B = b(x);
+        assertThat(new Erdos_Szekeres.Precedence(A, B).solve(), is(bruteForce(A, B)));
+      }
+    }
+  }
+}
@@ -0,0 +1,197 @@
+package com.metchevn.util.tree.bplus;
+
+import com.google.common.collect.Ordering;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.NavigableSet;
+import java.util.NoSuchElementException;
+import java.util.Random;
+import java.util.TreeSet;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class TestBPlusTree
+{
+  @Test
+  public void testMatchesTreeSet()
+  {
+    Random random = new Random(5);
+    // the smallest nodes split and merge the most often
+    BPlusTree<Integer> tree = new BPlusTree<>(Ordering.<Integer>natural(), 4);
+    TreeSet<Integer> expected = new TreeSet<>();
+    assertThrows(NoSuchElementException.class, tree::first);
+    assertNull(tree.pollFirst());
+    for (int i = 0; i < 20000; i++)
+    {
+      int value = random.nextInt(1000);
+      if (random.nextInt(3) == 0)
+      {
+        assertThat(tree.remove(value), is(expected.remove(value)));
+      }
+      else
+      {
+        assertThat(tree.add(value), is(expected.add(value)));
+      }
+      assertThat(tree.size(), is(expected.size()));
+      int probe = random.nextInt(1020) - 10;
+      assertThat(tree.contains(probe), is(expected.contains(probe)));
+      assertThat(tree.ceiling(probe), is(expected.ceiling(probe)));
+      assertThat(tree.higher(probe), is(expected.higher(probe)));
+      assertThat(tree.floor(probe), is(expected.floor(probe)));
+      assertThat(tree.lower(probe), is(expected.lower(probe)));
+      if (i % 500 == 0)
+      {
+        assertThat(new ArrayList<>(tree), is(new ArrayList<>(expected)));
+        assertThat(new ArrayList<>(tree.descendingSet()), is(new ArrayList<>(expected.descendingSet())));
+      }
+    }
+    while (!expected.isEmpty())
+    {
+      assertThat(tree.first(), is(expected.first()));
+      assertThat(tree.last(), is(expected.last()));
+      if (random.nextBoolean())
+      {
+        assertThat(tree.pollFirst(), is(expected.pollFirst()));
+      }
+      else
+      {
+        assertThat(tree.pollLast(), is(expected.pollLast()));
+      }
+      assertThat(tree.size(), is(expected.size()));
+    }
+    assertTrue(tree.isEmpty());
+  }
+
+  @Test
+  public void testShrinksBackToEmpty()
+  {
+    BPlusTree<Integer> tree = new BPlusTree<>(Ordering.<Integer>natural(), 4);
+    for (int i = 0; i < 1000; i++)
+    {
+      tree.add(i);
+    }
+    // 1000 keys in nodes of 2 to 4 keys need between 5 and 9 levels
+    assertTrue(tree.height() >= 5 && tree.height() <= 9);
+    for (int i = 0; i < 1000; i += 2)
+    {
+      tree.remove(i);
+    }
+    assertThat(tree.size(), is(500));
+    assertThat(tree.first(), is(1));
+    for (int i = 1; i < 1000; i += 2)
+    {
+      assertThat(tree.pollFirst(), is(i));
+    }
+    assertTrue(tree.isEmpty());
+    assertThat(tree.height(), is(0));
+    assertNull(tree.ceiling(3));
+    assertFalse(tree.iterator().hasNext());
+    tree.add(7);
+    assertThat(tree.first(), is(7));
+    assertThat(tree.last(), is(7));
+  }
+
+  @Test
+  public void testViewsMatchTreeSet()
+  {
+    Random random = new Random(11);
+    BPlusTree<Integer> tree = new BPlusTree<>(Ordering.<Integer>natural(), 6);
+    TreeSet<Integer> expected = new TreeSet<>();
+    for (int i = 0; i < 600; i++)
+    {
+      int value = random.nextInt(2000);
+      tree.add(value);
+      expected.add(value);
+    }
+    for (int round = 0; round < 200; round++)
+    {
+      int from = random.nextInt(2000);
+      int to = from + random.nextInt(2000 - from + 1);
+      boolean fromInclusive = random.nextBoolean();
+      boolean toInclusive = random.nextBoolean();
+      checkView(random, tree.subSet(from, fromInclusive, to, toInclusive), expected.subSet(from, fromInclusive, to, toInclusive));
+      checkView(random, tree.headSet(to, toInclusive), expected.headSet(to, toInclusive));
+      checkView(random, tree.tailSet(from, fromInclusive), expected.tailSet(from, fromInclusive));
+      checkView(random, tree.descendingSet().subSet(to, toInclusive, from, fromInclusive), expected.descendingSet().subSet(to, toInclusive, from, fromInclusive));
+      checkView(random, tree.subSet(from, fromInclusive, to, toInclusive).descendingSet(), expected.subSet(from, fromInclusive, to, toInclusive).descendingSet());
+    }
+    NavigableSet<Integer> view = tree.subSet(100, true, 200, false);
+    assertThrows(IllegalArgumentException.class, () -> view.add(200));
+    assertThrows(IllegalArgumentException.class, () -> view.subSet(50, true, 150, true));
+    assertThrows(IllegalArgumentException.class, () -> tree.subSet(5, true, 4, true));
+    view.add(150);
+    assertTrue(tree.contains(150));
+    view.clear();
+    expected.add(150);
+    expected.subSet(100, true, 200, false).clear();
+    assertThat(new ArrayList<>(tree), is(new ArrayList<>(expected)));
+  }
+
+  private static void checkView(Random random, NavigableSet<Integer> view, NavigableSet<Integer> expected)
+  {
+    assertThat(new ArrayList<>(view), is(new ArrayList<>(expected)));
+    assertThat(view.size(), is(expected.size()));
+    assertThat(view.isEmpty(), is(expected.isEmpty()));
+    if (!expected.isEmpty())
+    {
+      assertThat(view.first(), is(expected.first()));
+      assertThat(view.last(), is(expected.last()));
+    }
+    for (int i = 0; i < 10; i++)
+    {
+      int probe = random.nextInt(2020) - 10;
+      assertThat(view.contains(probe), is(expected.contains(probe)));
+      assertThat(view.ceiling(probe), is(expected.ceiling(probe)));
+      assertThat(view.higher(probe), is(expected.higher(probe)));
+      assertThat(view.floor(probe), is(expected.floor(probe)));
+      assertThat(view.lower(probe), is(expected.lower(probe)));
+    }
+  }
+
+  @Test
+  public void testIteratorRemove()
+  {
+    BPlusTree<Integer> tree = new BPlusTree<>(Ordering.<Integer>natural(), 4);
+    TreeSet<Integer> expected = new TreeSet<>();
+    for (int i = 0; i < 500; i++)
+    {
+      tree.add(i);
+      expected.add(i);
+    }
+    Iterator<Integer> iterator = tree.iterator();
+    assertThrows(IllegalStateException.class, iterator::remove);
+    while (iterator.hasNext())
+    {
+      if (iterator.next() % 3 != 0)
+      {
+        iterator.remove();
+      }
+    }
+    expected.removeIf(value -> value % 3 != 0);
+    assertThat(new ArrayList<>(tree), is(new ArrayList<>(expected)));
+
+    Iterator<Integer> descending = tree.descendingSet().headSet(100, true).iterator();
+    while (descending.hasNext())
+    {
+      if (descending.next() % 2 == 0)
+      {
+        descending.remove();
+      }
+    }
+    expected.tailSet(100, true).removeIf(value -> value % 2 == 0);
+    assertThat(new ArrayList<>(tree), is(new ArrayList<>(expected)));
+
+    Iterator<Integer> stale = tree.iterator();
+    stale.next();
+    tree.add(1);
+    assertThrows(ConcurrentModificationException.class, stale::next);
+  }
+}
@@ -3,10 +3,13 @@ package com.metchevn.util.tree.interval;
 import com.metchevn.util.tree.redblack.TestRedBlackTree;
 import org.junit.jupiter.api.Test;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
 
 import static org.hamcrest.CoreMatchers.hasItems;
 import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
 import static org.hamcrest.collection.IsCollectionWithSize.hasSize;
 
 public class TestIntervalTree
@@ -37,6 +40,30 @@ public class TestIntervalTree
     testContainment(tree.overlaps(7, 11), b, c, f);
   }
 
+  @Test
+  public void testBulkLoadKeepsMinMaxIntervals()
+  {
+    List<Event<Integer, String>> events = new ArrayList<>();
+    for (int i = 0; i < 200; i++)
+    {
+      int from = (i * 37) % 101;
+      events.add(new Event<>(from, from + 1 + (i * 13) % 17, "E" + i));
+    }
+    IntervalTree<Integer, String> incremental = new IntervalTree<>();
+    for (Event<Integer, String> event : events)
+    {
+      incremental.add(event);
+    }
+    IntervalTree<Integer, String> bulk = new IntervalTree<>();
+    bulk.addAllSorted(events);
+    TestRedBlackTree.checkRedBlack(bulk.getRoot());
+    for (int point = -1; point < 125; point++)
+    {
+      assertThat(bulk.intersections(point), is(incremental.intersections(point)));
+      assertThat(bulk.overlaps(point, point + 3), is(incremental.overlaps(point, point + 3)));
+    }
+  }
+
   @SafeVarargs
   public static <T> void testContainment(Collection<T> collection, T... expected)
   {
@@ -0,0 +1,133 @@
+package com.metchevn.util.tree.redblack;
+
+import com.google.common.base.Joiner;
+import com.google.common.collect.Ordering;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Random;
+import java.util.TreeSet;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.number.OrderingComparison.lessThanOrEqualTo;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+public class TestArenaRedBlackTree
+{
+  @Test
+  public void testRemovals()
+  {
+    ModifiableRedBlackTree<Character, ArenaRedBlackNode<Character>> tree = new ArenaRedBlackTree<>(Ordering.<Character>natural());
+    tree.addAll(Arrays.asList('A','B','C','D','E','F','G','H','I','J'));
+    assertThat(Joiner.on("").join(tree), is("ABCDEFGHIJ"));
+    TestRedBlackTree.remove(tree, 'D', "ABCEFGHIJ");
+    TestRedBlackTree.remove(tree, 'G', "ABCEFHIJ");
+    TestRedBlackTree.remove(tree, 'A', "BCEFHIJ");
+    TestRedBlackTree.remove(tree, 'H', "BCEFIJ");
+    TestRedBlackTree.remove(tree, 'J', "BCEFI");
+  }
+
+  @Test
+  public void testRemoveViaIterator()
+  {
+    ModifiableRedBlackTree<Character, ArenaRedBlackNode<Character>> tree = new ArenaRedBlackTree<>(Ordering.<Character>natural());
+    tree.addAll(Arrays.asList('A','B','C','D','E'));
+    Iterator<Character> iterator = tree.modifiableIterator();
+    TestRedBlackTree.remove(tree, iterator, "BCDE");
+    TestRedBlackTree.remove(tree, iterator, "CDE");
+    iterator.next();
+    TestRedBlackTree.remove(tree, iterator, "CE");
+    TestRedBlackTree.remove(tree, iterator, "C");
+    assertFalse(iterator.hasNext());
+  }
+
+  @Test
+  public void testMatchesTreeSet()
+  {
+    Random random = new Random(7);
+    ArenaRedBlackTree<Integer> tree = new ArenaRedBlackTree<>(Ordering.<Integer>natural(), 4);
+    TreeSet<Integer> expected = new TreeSet<>();
+    for (int i = 0; i < 20000; i++)
+    {
+      int value = random.nextInt(1000);
+      if (random.nextBoolean())
+      {
+        assertThat(tree.add(value), is(expected.add(value)));
+      }
+      else
+      {
+        assertThat(tree.remove(value), is(expected.remove(value)));
+      }
+      assertThat(tree.size(), is(expected.size()));
+      int probe = random.nextInt(1100) - 50;
+      assertThat(tree.ceiling(probe), is(expected.ceiling(probe)));
+      assertThat(tree.lower(probe), is(expected.lower(probe)));
+    }
+    assertThat(Joiner.on(",").join(tree), is(Joiner.on(",").join(expected)));
+    assertThat(tree.capacity(), lessThanOrEqualTo(1500));
+  }
+
+  @Test
+  public void testDepthAndBalance()
+  {
+    ArenaRedBlackTree<Integer> tree = new ArenaRedBlackTree<>(Ordering.<Integer>natural());
+    for (int i = 1; i <= 4095; i++)
+    {
+      tree.add(i);
+    }
+    int maxDepth = 0;
+    int minDepth = Integer.MAX_VALUE;
+    for (ImmutableRedBlackNode<Integer> node : tree.immutableNodeIterable())
+    {
+      if (node.isLeaf())
+      {
+        maxDepth = Math.max(node.getDepth(), maxDepth);
+        minDepth = Math.min(node.getDepth(), minDepth);
+      }
+    }
+    assertThat(maxDepth, lessThanOrEqualTo((minDepth * 2) + 1));
+    assertThat(tree.getRoot().getParent() == null, is(true));
+  }
+
+  @Test
+  public void testRemovedValuesAreReturned()
+  {
+    ArenaRedBlackTree<Integer> tree = new ArenaRedBlackTree<>(Ordering.<Integer>natural());
+    for (int i = 0; i < 10; i++)
+    {
+      tree.add(i);
+    }
+    assertThat(tree.pollFirst(), is(0));
+    assertThat(tree.pollLast(), is(9));
+    // the largest element has no right child, so its own node is the one unlinked and freed
+    ArenaRedBlackTree<Integer>.ModifiedNode deleted = tree.delete(8);
+    assertThat(deleted.isModified(), is(true));
+    assertThat(deleted.getNode().getPayload(), is(8));
+    assertThat(Joiner.on("").join(tree), is("1234567"));
+  }
+
+  @Test
+  public void testRecyclesNodes()
+  {
+    ArenaRedBlackTree<Integer> tree = new ArenaRedBlackTree<>(Ordering.<Integer>natural(), 16);
+    for (int round = 0; round < 1000; round++)
+    {
+      for (int i = 0; i < 16; i++)
+      {
+        tree.add(round * 16 + i);
+        tree.add(round * 16 + i);
+      }
+      for (int i = 0; i < 8; i++)
+      {
+        assertThat(tree.pollFirst(), is(round * 16 + i));
+        assertThat(tree.pollLast(), is(round * 16 + 15 - i));
+      }
+      assertThat(tree.pollFirst() == null, is(true));
+      assertThat(tree.pollLast() == null, is(true));
+    }
+    // duplicates are found before a node is allocated for them, so the arena never grows
+    assertThat(tree.capacity(), is(16));
+  }
+}
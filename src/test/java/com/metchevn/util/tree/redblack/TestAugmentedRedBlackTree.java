@@ -0,0 +1,97 @@
+package com.metchevn.util.tree.redblack;
+
+import com.google.common.collect.Ordering;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.NavigableSet;
+import java.util.Random;
+import java.util.TreeSet;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsNull.nullValue;
+
+public class TestAugmentedRedBlackTree
+{
+  @Test
+  public void testRangeSumsMatchTreeSet()
+  {
+    Random random = new Random(5);
+    AugmentedRedBlackTree<Integer, Long> tree = new AugmentedRedBlackTree<>(Ordering.<Integer>natural(), Integer::longValue, Long::sum);
+    TreeSet<Integer> expected = new TreeSet<>();
+    for (int i = 0; i < 5000; i++)
+    {
+      int value = random.nextInt(600);
+      if (random.nextInt(3) == 0)
+      {
+        tree.remove(value);
+        expected.remove(value);
+      }
+      else
+      {
+        tree.add(value);
+        expected.add(value);
+      }
+      int from = random.nextInt(650) - 20;
+      int to = from + random.nextInt(200);
+      boolean fromInclusive = random.nextBoolean();
+      boolean toInclusive = random.nextBoolean();
+      assertThat(tree.aggregate(from, fromInclusive, to, toInclusive), is(sum(expected.subSet(from, fromInclusive, to, toInclusive))));
+      assertThat(tree.aggregate(from, to), is(sum(expected.subSet(from, to))));
+      assertThat(tree.aggregate(), is(sum(expected)));
+    }
+    TestRedBlackTree.checkRedBlack(tree.getRoot());
+  }
+
+  private static Long sum(Collection<Integer> values)
+  {
+    return values.isEmpty() ? null : values.stream().mapToLong(Integer::longValue).sum();
+  }
+
+  @Test
+  public void testCombinesInOrder()
+  {
+    AugmentedRedBlackTree<Integer, String> tree = new AugmentedRedBlackTree<>(Ordering.<Integer>natural(), String::valueOf, (a, b) -> a + "," + b);
+    List<Integer> values = new ArrayList<>();
+    for (int i = 0; i < 100; i++)
+    {
+      values.add(i);
+    }
+    tree.addAll(values);
+    for (int i = 0; i < 100; i += 3)
+    {
+      tree.remove(i);
+    }
+    assertThat(tree.aggregate(10, 20), is("10,11,13,14,16,17,19"));
+    assertThat(tree.aggregate(10, false, 20, true), is("11,13,14,16,17,19,20"));
+    assertThat(tree.aggregate(3, 4), is(nullValue()));
+    assertThat(tree.aggregate(50, 10), is(nullValue()));
+    assertThat(tree.aggregate(-5, 2), is("1"));
+  }
+
+  @Test
+  public void testRangeMaximaAfterBulkLoad()
+  {
+    Random random = new Random(8);
+    List<Integer> values = new ArrayList<>();
+    for (int i = 0; i < 1000; i++)
+    {
+      values.add(i * 2);
+    }
+    // the measure is a pseudo-random weight of the value, so the maxima are not at the ends
+    AugmentedRedBlackTree<Integer, Integer> tree = new AugmentedRedBlackTree<>(Ordering.<Integer>natural(), v -> v * 7919 % 1009, Math::max);
+    tree.addAllSorted(values);
+    TreeSet<Integer> expected = new TreeSet<>(values);
+    for (int i = 0; i < 1000; i++)
+    {
+      int from = random.nextInt(2000);
+      int to = from + random.nextInt(300);
+      NavigableSet<Integer> range = expected.subSet(from, true, to, true);
+      Integer max = range.stream().map(v -> v * 7919 % 1009).max(Integer::compare).orElse(null);
+      assertThat(tree.aggregate(from, true, to, true), is(max));
+    }
+  }
+}
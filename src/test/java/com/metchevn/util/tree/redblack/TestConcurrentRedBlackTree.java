@@ -0,0 +1,135 @@
+package com.metchevn.util.tree.redblack;
+
+import com.google.common.collect.Ordering;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Random;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class TestConcurrentRedBlackTree
+{
+  @Test
+  public void testMatchesTreeSet()
+  {
+    Random random = new Random(3);
+    ConcurrentRedBlackTree<Integer> tree = new ConcurrentRedBlackTree<>(Ordering.<Integer>natural());
+    TreeSet<Integer> expected = new TreeSet<>();
+    assertThrows(NoSuchElementException.class, tree::first);
+    for (int i = 0; i < 5000; i++)
+    {
+      int value = random.nextInt(500);
+      if (random.nextInt(3) == 0)
+      {
+        assertThat(tree.remove(value), is(expected.remove(value)));
+      }
+      else
+      {
+        assertThat(tree.add(value), is(expected.add(value)));
+      }
+      int probe = random.nextInt(520) - 10;
+      assertThat(tree.contains(probe), is(expected.contains(probe)));
+      assertThat(tree.ceiling(probe), is(expected.ceiling(probe)));
+      assertThat(tree.higher(probe), is(expected.higher(probe)));
+      assertThat(tree.floor(probe), is(expected.floor(probe)));
+      assertThat(tree.lower(probe), is(expected.lower(probe)));
+      assertThat(tree.size(), is(expected.size()));
+    }
+    assertThat(tree.first(), is(expected.first()));
+    assertThat(tree.last(), is(expected.last()));
+    assertThat(new ArrayList<>(tree), is(new ArrayList<>(expected)));
+    List<Integer> range = new ArrayList<>();
+    tree.iterator(100, false, 400, true).forEachRemaining(range::add);
+    assertThat(range, is(new ArrayList<>(expected.subSet(100, false, 400, true))));
+
+    Iterator<Integer> iterator = tree.iterator();
+    while (iterator.hasNext())
+    {
+      if (iterator.next() % 2 == 0)
+      {
+        iterator.remove();
+      }
+    }
+    expected.removeIf(value -> value % 2 == 0);
+    assertThat(new ArrayList<>(tree), is(new ArrayList<>(expected)));
+  }
+
+  /** Odd values are never removed, so readers must always find them while writers churn the even ones. */
+  @Test
+  public void testReadersSeeStableElementsDuringWrites() throws Exception
+  {
+    int size = 20000;
+    ConcurrentRedBlackTree<Integer> tree = new ConcurrentRedBlackTree<>(Ordering.<Integer>natural());
+    for (int i = 1; i < size; i += 2)
+    {
+      tree.add(i);
+    }
+    AtomicBoolean stop = new AtomicBoolean();
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    try
+    {
+      List<Future<?>> readers = new ArrayList<>();
+      Future<?> writer = executor.submit(() ->
+      {
+        Random random = new Random(1);
+        while (!stop.get())
+        {
+          int value = random.nextInt(size / 2) * 2;
+          if (!tree.add(value))
+          {
+            tree.remove(value);
+          }
+        }
+      });
+      for (int r = 0; r < 3; r++)
+      {
+        int seed = r;
+        readers.add(executor.submit(() ->
+        {
+          Random random = new Random(seed);
+          for (int i = 0; i < 200000; i++)
+          {
+            int odd = random.nextInt(size / 2) * 2 + 1;
+            assertTrue(tree.contains(odd));
+            assertThat(tree.ceiling(odd), is(odd));
+            assertThat(tree.floor(odd), is(odd));
+            assertThat(tree.higher(odd - 2) <= odd, is(true));
+          }
+          int previous = Integer.MIN_VALUE;
+          int odds = 0;
+          for (int value : tree)
+          {
+            assertTrue(value > previous);
+            previous = value;
+            odds += value % 2;
+          }
+          assertThat(odds, is(size / 2));
+        }));
+      }
+      for (Future<?> reader : readers)
+      {
+        reader.get(60, TimeUnit.SECONDS);
+      }
+      stop.set(true);
+      writer.get(60, TimeUnit.SECONDS);
+    }
+    finally
+    {
+      stop.set(true);
+      executor.shutdownNow();
+    }
+  }
+}
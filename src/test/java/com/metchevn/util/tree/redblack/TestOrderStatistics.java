@@ -0,0 +1,88 @@
+package com.metchevn.util.tree.redblack;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Ordering;
+import com.metchevn.util.tree.binary.AbstractBinaryTree;
+import com.metchevn.util.tree.binary.ImmutableBinaryTreeNode;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class TestOrderStatistics
+{
+  @Test
+  public void testMatchesTreeSet()
+  {
+    Random random = new Random(11);
+    for (AbstractBinaryTree<Integer, ?> tree : ImmutableList.<AbstractBinaryTree<Integer, ?>>of(
+        new DefaultRedBlackTree<>(Ordering.<Integer>natural()), new ArenaRedBlackTree<>(Ordering.<Integer>natural())))
+    {
+      TreeSet<Integer> expected = new TreeSet<>();
+      for (int i = 0; i < 5000; i++)
+      {
+        int value = random.nextInt(600);
+        if (random.nextInt(3) == 0)
+        {
+          tree.remove(value);
+          expected.remove(value);
+        }
+        else
+        {
+          tree.add(value);
+          expected.add(value);
+        }
+        if (i % 500 == 0)
+        {
+          checkSizes(tree.getRoot());
+          List<Integer> list = new ArrayList<>(expected);
+          for (int k = 0; k < list.size(); k++)
+          {
+            assertThat(tree.select(k), is(list.get(k)));
+          }
+        }
+        int from = random.nextInt(650) - 20;
+        int to = from + random.nextInt(100);
+        assertThat(tree.rank(from), is(expected.headSet(from).size()));
+        assertThat(tree.rank(from, true), is(expected.headSet(from, true).size()));
+        assertThat(tree.countInRange(from, to), is(expected.subSet(from, to).size()));
+        assertThat(tree.subSet(from, false, to, true).size(), is(expected.subSet(from, false, to, true).size()));
+        assertThat(tree.descendingSet().headSet(to, true).size(), is(expected.descendingSet().headSet(to, true).size()));
+      }
+      checkSizes(tree.getRoot());
+    }
+  }
+
+  @Test
+  public void testBulkLoadedSizes()
+  {
+    List<Integer> values = new ArrayList<>();
+    for (int i = 0; i < 1000; i++)
+    {
+      values.add(i);
+    }
+    DefaultRedBlackTree<Integer> tree = DefaultRedBlackTree.fromSorted(Ordering.<Integer>natural(), values);
+    checkSizes(tree.getRoot());
+    assertThat(tree.select(500), is(500));
+    assertThat(tree.countInRange(100, 250), is(150));
+    assertThrows(IndexOutOfBoundsException.class, () -> tree.select(1000));
+    assertThrows(IndexOutOfBoundsException.class, () -> tree.select(-1));
+  }
+
+  private static int checkSizes(ImmutableBinaryTreeNode<?> node)
+  {
+    if (node == null)
+    {
+      return 0;
+    }
+    int size = 1 + checkSizes(node.getLeft()) + checkSizes(node.getRight());
+    assertThat(node.getSubtreeSize(), is(size));
+    return size;
+  }
+}
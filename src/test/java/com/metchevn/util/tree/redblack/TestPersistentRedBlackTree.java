@@ -0,0 +1,173 @@
+package com.metchevn.util.tree.redblack;
+
+import com.google.common.collect.Ordering;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Random;
+import java.util.TreeSet;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsSame.sameInstance;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class TestPersistentRedBlackTree
+{
+  @Test
+  public void testVersionsMatchTreeSets()
+  {
+    Random random = new Random(17);
+    PersistentRedBlackTree<Integer> tree = PersistentRedBlackTree.empty(Ordering.<Integer>natural());
+    TreeSet<Integer> expected = new TreeSet<>();
+    List<PersistentRedBlackTree<Integer>> versions = new ArrayList<>();
+    List<List<Integer>> contents = new ArrayList<>();
+    for (int i = 0; i < 5000; i++)
+    {
+      int value = random.nextInt(400);
+      if (random.nextInt(3) == 0)
+      {
+        tree = tree.minus(value);
+        expected.remove(value);
+      }
+      else
+      {
+        tree = tree.plus(value);
+        expected.add(value);
+      }
+      assertThat(tree.size(), is(expected.size()));
+      checkRedBlack(tree.getRoot());
+      int probe = random.nextInt(420) - 10;
+      assertThat(tree.contains(probe), is(expected.contains(probe)));
+      assertThat(tree.ceiling(probe), is(expected.ceiling(probe)));
+      assertThat(tree.higher(probe), is(expected.higher(probe)));
+      assertThat(tree.floor(probe), is(expected.floor(probe)));
+      assertThat(tree.lower(probe), is(expected.lower(probe)));
+      if (i % 100 == 0)
+      {
+        versions.add(tree);
+        contents.add(new ArrayList<>(expected));
+      }
+    }
+    for (int v = 0; v < versions.size(); v++)
+    {
+      assertThat(new ArrayList<>(versions.get(v)), is(contents.get(v)));
+    }
+    while (!expected.isEmpty())
+    {
+      assertThat(tree.first(), is(expected.first()));
+      assertThat(tree.last(), is(expected.last()));
+      tree = tree.minus(expected.pollFirst());
+      checkRedBlack(tree.getRoot());
+    }
+    assertTrue(tree.isEmpty());
+    assertThrows(NoSuchElementException.class, tree::first);
+  }
+
+  @Test
+  public void testUnchangedVersionsAreShared()
+  {
+    PersistentRedBlackTree<Integer> tree = PersistentRedBlackTree.<Integer>empty(Ordering.natural()).plusAll(Arrays.asList(5, 1, 9, 3, 7));
+    assertThat(tree.plus(3), is(sameInstance(tree)));
+    assertThat(tree.minus(4), is(sameInstance(tree)));
+    PersistentRedBlackTree<Integer> larger = tree.plus(11);
+    assertFalse(tree.contains(11));
+    assertTrue(larger.contains(11));
+    // only the path to the new node is copied: the other side of the root is shared
+    assertThat(larger.getRoot().getLeft(), is(sameInstance(tree.getRoot().getLeft())));
+    assertThrows(UnsupportedOperationException.class, () -> tree.add(2));
+    // shared nodes answer as the roots of their own subtrees, so generic node walks still work
+    for (PersistentRedBlackNode<Integer> node : larger.immutableNodeIterable())
+    {
+      assertThat(node.getParent() == null, is(true));
+      assertThat(node.getDepth(), is(0));
+    }
+  }
+
+  @Test
+  public void testSetAlgebraMatchesTreeSets()
+  {
+    Random random = new Random(23);
+    for (int round = 0; round < 40; round++)
+    {
+      // a wide spread of relative sizes, up to well past the fork threshold
+      TreeSet<Integer> a = randomSet(random, random.nextInt(round < 30 ? 200 : 20000), 30000);
+      TreeSet<Integer> b = randomSet(random, random.nextInt(round < 30 ? 200 : 20000), 30000);
+      PersistentRedBlackTree<Integer> treeA = PersistentRedBlackTree.fromSorted(Ordering.<Integer>natural(), new ArrayList<>(a));
+      PersistentRedBlackTree<Integer> treeB = PersistentRedBlackTree.<Integer>empty(Ordering.natural()).plusAll(b);
+
+      TreeSet<Integer> union = new TreeSet<>(a);
+      union.addAll(b);
+      TreeSet<Integer> intersection = new TreeSet<>(a);
+      intersection.retainAll(b);
+      TreeSet<Integer> difference = new TreeSet<>(a);
+      difference.removeAll(b);
+      for (PersistentRedBlackTree<Integer> result : Arrays.asList(treeA.union(treeB), treeA.intersection(treeB), treeA.difference(treeB)))
+      {
+        checkRedBlack(result.getRoot());
+      }
+      assertThat(new ArrayList<>(treeA.union(treeB)), is(new ArrayList<>(union)));
+      assertThat(new ArrayList<>(treeA.intersection(treeB)), is(new ArrayList<>(intersection)));
+      assertThat(new ArrayList<>(treeA.difference(treeB)), is(new ArrayList<>(difference)));
+      assertThat(new ArrayList<>(treeA), is(new ArrayList<>(a)));
+
+      int key = random.nextInt(30000);
+      PersistentRedBlackTree.Split<Integer> split = treeA.split(key);
+      checkRedBlack(split.getLeft().getRoot());
+      checkRedBlack(split.getRight().getRoot());
+      assertThat(new ArrayList<>(split.getLeft()), is(new ArrayList<>(a.headSet(key))));
+      assertThat(new ArrayList<>(split.getRight()), is(new ArrayList<>(a.tailSet(key, false))));
+      assertThat(split.getFound() != null, is(a.contains(key)));
+      PersistentRedBlackTree<Integer> joined = PersistentRedBlackTree.join(split.getLeft(), key, split.getRight());
+      checkRedBlack(joined.getRoot());
+      TreeSet<Integer> withKey = new TreeSet<>(a);
+      withKey.add(key);
+      assertThat(new ArrayList<>(joined), is(new ArrayList<>(withKey)));
+    }
+  }
+
+  private static TreeSet<Integer> randomSet(Random random, int size, int bound)
+  {
+    TreeSet<Integer> set = new TreeSet<>();
+    for (int i = 0; i < size; i++)
+    {
+      set.add(random.nextInt(bound));
+    }
+    return set;
+  }
+
+  /** The black height, checking colours, ordering and subtree sizes on the way. */
+  private static int checkRedBlack(PersistentRedBlackNode<Integer> node)
+  {
+    if (node == null)
+    {
+      return 1;
+    }
+    int size = 1;
+    for (PersistentRedBlackNode<Integer> child : Arrays.asList(node.getLeft(), node.getRight()))
+    {
+      if (child != null)
+      {
+        assertFalse(!node.getColour() && !child.getColour(), "red node with a red child");
+        size += child.getSubtreeSize();
+      }
+    }
+    if (node.getLeft() != null)
+    {
+      assertTrue(node.getLeft().getPayload() < node.getPayload());
+    }
+    if (node.getRight() != null)
+    {
+      assertTrue(node.getRight().getPayload() > node.getPayload());
+    }
+    assertThat(node.getSubtreeSize(), is(size));
+    int left = checkRedBlack(node.getLeft());
+    assertThat(checkRedBlack(node.getRight()), is(left));
+    return left + (node.getColour() ? 1 : 0);
+  }
+}
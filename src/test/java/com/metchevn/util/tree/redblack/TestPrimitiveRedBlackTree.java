@@ -0,0 +1,176 @@
+package com.metchevn.util.tree.redblack;
+
+import static com.metchevn.util.tree.redblack.AbstractPrimitiveRedBlackTree.NIL;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+import java.util.Random;
+import java.util.TreeSet;
+
+public class TestPrimitiveRedBlackTree
+{
+  @Test
+  public void testLongMatchesTreeSet()
+  {
+    Random random = new Random(42);
+    LongRedBlackTree tree = new LongRedBlackTree(1);
+    TreeSet<Long> expected = new TreeSet<>();
+    for (int i = 0; i < 20000; i++)
+    {
+      long key = random.nextInt(2000) - 1000L;
+      if (random.nextInt(3) == 0)
+      {
+        assertThat(tree.remove(key), is(expected.remove(key)));
+      }
+      else
+      {
+        assertThat(tree.add(key), is(expected.add(key)));
+      }
+      assertThat(tree.size(), is(expected.size()));
+      long probe = random.nextInt(2200) - 1100L;
+      assertThat(tree.contains(probe), is(expected.contains(probe)));
+      assertThat(nodeKey(tree, tree.getCeilingNode(probe)), is(expected.ceiling(probe)));
+      assertThat(nodeKey(tree, tree.getFloorNode(probe)), is(expected.floor(probe)));
+      assertThat(nodeKey(tree, tree.getHigherNode(probe)), is(expected.higher(probe)));
+      assertThat(nodeKey(tree, tree.getLowerNode(probe)), is(expected.lower(probe)));
+      if (i % 1000 == 0)
+      {
+        checkRedBlack(tree);
+      }
+    }
+    checkRedBlack(tree);
+    assertThat(tree.toString(), is(expected.toString().replace(" ", "").replace(",", ", ")));
+    while (!expected.isEmpty())
+    {
+      assertThat(tree.pollFirst(), is(expected.pollFirst()));
+      if (!expected.isEmpty())
+      {
+        assertThat(tree.pollLast(), is(expected.pollLast()));
+      }
+    }
+    assertTrue(tree.isEmpty());
+  }
+
+  private static Long nodeKey(LongRedBlackTree tree, int node)
+  {
+    return node == NIL ? null : tree.getKey(node);
+  }
+
+  @Test
+  public void testIntNavigation()
+  {
+    IntRedBlackTree tree = new IntRedBlackTree();
+    for (int key : new int[] {50, 10, 40, 20, 30, Integer.MIN_VALUE, Integer.MAX_VALUE})
+    {
+      assertTrue(tree.add(key));
+    }
+    assertFalse(tree.add(30));
+    checkRedBlack(tree);
+    assertThat(tree.first(), is(Integer.MIN_VALUE));
+    assertThat(tree.last(), is(Integer.MAX_VALUE));
+    assertThat(tree.ceiling(25), is(30));
+    assertThat(tree.ceiling(30), is(30));
+    assertThat(tree.floor(25), is(20));
+    assertThat(tree.higher(30), is(40));
+    assertThat(tree.lower(30), is(20));
+    assertThrows(NoSuchElementException.class, () -> tree.higher(Integer.MAX_VALUE));
+    assertThrows(NoSuchElementException.class, () -> tree.lower(Integer.MIN_VALUE));
+    assertThat(tree.pollFirst(), is(Integer.MIN_VALUE));
+    assertThat(tree.toArray(), is(new int[] {10, 20, 30, 40, 50, Integer.MAX_VALUE}));
+    tree.clear();
+    assertTrue(tree.isEmpty());
+    assertThrows(NoSuchElementException.class, tree::pollFirst);
+  }
+
+  @Test
+  public void testRemoveViaIterator()
+  {
+    LongRedBlackTree tree = new LongRedBlackTree();
+    for (long key = 0; key < 100; key++)
+    {
+      tree.add(key);
+    }
+    PrimitiveIterator.OfLong iterator = tree.iterator();
+    long expected = 0;
+    while (iterator.hasNext())
+    {
+      assertThat(iterator.nextLong(), is(expected));
+      if (expected % 3 != 0)
+      {
+        iterator.remove();
+      }
+      expected++;
+    }
+    checkRedBlack(tree);
+    assertThat(tree.size(), is(34));
+    assertThat(tree.higher(3), is(6L));
+  }
+
+  @Test
+  public void testReusesRemovedNodes()
+  {
+    LongRedBlackTree tree = new LongRedBlackTree(8);
+    for (int round = 0; round < 100; round++)
+    {
+      for (long key = 0; key < 8; key++)
+      {
+        tree.add(round * 8 + key);
+      }
+      for (long key = 0; key < 8; key++)
+      {
+        tree.remove(round * 8 + key);
+      }
+    }
+    assertThat(tree.capacity(), is(8));
+  }
+
+  /** Checks the ordering, the links, that no red node has a red child and that every path has as many black nodes. */
+  private static int checkRedBlack(AbstractPrimitiveRedBlackTree tree)
+  {
+    int root = tree.getRoot();
+    if (root != NIL)
+    {
+      assertThat(tree.getParent(root), is(NIL));
+      assertTrue(tree.getColour(root));
+    }
+    int count = 0;
+    int previous = NIL;
+    for (int node = tree.getFirstNode(); node != NIL; node = tree.successor(node))
+    {
+      if (previous != NIL)
+      {
+        assertThat(tree.predecessor(node), is(previous));
+      }
+      previous = node;
+      count++;
+    }
+    assertThat(count, is(tree.size()));
+    return blackHeight(tree, root);
+  }
+
+  private static int blackHeight(AbstractPrimitiveRedBlackTree tree, int node)
+  {
+    if (node == NIL)
+    {
+      return 1;
+    }
+    for (int child : new int[] {tree.getLeft(node), tree.getRight(node)})
+    {
+      if (child != NIL)
+      {
+        assertThat(tree.getParent(child), is(node));
+        assertFalse(!tree.getColour(node) && !tree.getColour(child), "red node with a red child");
+      }
+    }
+    int left = blackHeight(tree, tree.getLeft(node));
+    assertThat(blackHeight(tree, tree.getRight(node)), is(left));
+    return left + (tree.getColour(node) ? 1 : 0);
+  }
+}
@@ -4,8 +4,10 @@ import com.google.common.base.Joiner;
 import com.google.common.collect.Ordering;
 import org.junit.jupiter.api.Test;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Iterator;
+import java.util.List;
 
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.core.Is.is;
@@ -120,6 +122,37 @@ public class TestRedBlackTree
     }
   }
 
+  @Test
+  public void testTrackedDepthMatchesOnDemandDepth()
+  {
+    DefaultRedBlackTree<Integer> tracked = new DefaultRedBlackTree<>(Ordering.<Integer>natural(), true);
+    DefaultRedBlackTree<Integer> onDemand = new DefaultRedBlackTree<>(Ordering.<Integer>natural());
+    for (int i = 0; i < 2000; i++)
+    {
+      int value = (i * 7919) % 1009;
+      if (i % 3 == 2)
+      {
+        tracked.remove(value);
+        onDemand.remove(value);
+      }
+      else
+      {
+        tracked.add(value);
+        onDemand.add(value);
+      }
+    }
+    Iterator<DefaultRedBlackNode<Integer>> expected = tracked.immutableNodeIterator();
+    for (DefaultRedBlackNode<Integer> node : onDemand.immutableNodeIterable())
+    {
+      DefaultRedBlackNode<Integer> trackedNode = expected.next();
+      assertTrue(trackedNode.isDepthTracked());
+      assertFalse(node.isDepthTracked());
+      assertThat(node.getPayload(), is(trackedNode.getPayload()));
+      assertThat(node.getDepth(), is(trackedNode.getDepth()));
+    }
+    assertFalse(expected.hasNext());
+  }
+
   @Test
   public void testClear()
   {
@@ -136,6 +169,79 @@ public class TestRedBlackTree
     assertFalse(tree.immutableNodeIterator().hasNext());
   }
 
+  @Test
+  public void testBulkLoad()
+  {
+    for (int size = 0; size < 70; size++)
+    {
+      List<Integer> values = new ArrayList<>();
+      for (int i = 0; i < size; i++)
+      {
+        values.add(2 * i);
+      }
+      DefaultRedBlackTree<Integer> tree = DefaultRedBlackTree.fromSorted(Ordering.<Integer>natural(), values);
+      assertThat(new ArrayList<>(tree), is(values));
+      assertThat(tree.size(), is(size));
+      checkRedBlack(tree.getRoot());
+      tree.add(-1);
+      tree.remove(0);
+      checkRedBlack(tree.getRoot());
+    }
+  }
+
+  @Test
+  public void testBulkLoadUnsortedIntoNonEmptyTree()
+  {
+    DefaultRedBlackTree<Integer> tree = new DefaultRedBlackTree<>(Ordering.<Integer>natural());
+    assertTrue(tree.addAll(Arrays.asList(5, 3, 9, 3, 1)));
+    assertThat(Joiner.on(",").join(tree), is("1,3,5,9"));
+    assertTrue(tree.addAllSorted(Arrays.asList(8, 2, 5, 2)));
+    assertThat(Joiner.on(",").join(tree), is("1,2,3,5,8,9"));
+    assertFalse(tree.addAllSorted(Arrays.asList(1, 9)));
+    assertThat(tree.size(), is(6));
+    checkRedBlack(tree.getRoot());
+  }
+
+  @Test
+  public void testSmallBulkLoadKeepsExistingNodes()
+  {
+    List<Integer> values = new ArrayList<>();
+    for (int i = 0; i < 100000; i += 2)
+    {
+      values.add(i);
+    }
+    DefaultRedBlackTree<Integer> tree = DefaultRedBlackTree.fromSorted(Ordering.<Integer>natural(), values);
+    DefaultRedBlackNode<Integer> node = tree.getNode(5000);
+    // a few values are inserted, a rebuild would have replaced every node
+    assertTrue(tree.addAllSorted(Arrays.asList(1, 3, 5001)));
+    assertThat(tree.getNode(5000) == node, is(true));
+    assertThat(tree.size(), is(50003));
+    checkRedBlack(tree.getRoot());
+    assertTrue(AbstractRedBlackTree.worthRebuilding(1000, 1000));
+    assertFalse(AbstractRedBlackTree.worthRebuilding(10000000, 3));
+  }
+
+  /** Checks the links, that no red node has a red child, and returns the number of black nodes on every path. */
+  public static int checkRedBlack(ImmutableRedBlackNode<?> node)
+  {
+    if (node == null)
+    {
+      return 1;
+    }
+    int left = checkRedBlack((ImmutableRedBlackNode<?>) node.getLeft());
+    int right = checkRedBlack((ImmutableRedBlackNode<?>) node.getRight());
+    assertThat(right, is(left));
+    for (ImmutableRedBlackNode<?> child : Arrays.asList((ImmutableRedBlackNode<?>) node.getLeft(), (ImmutableRedBlackNode<?>) node.getRight()))
+    {
+      if (child != null)
+      {
+        assertThat(child.getParent(), is(node));
+        assertFalse(node.getColour() == Colour.RED && child.getColour() == Colour.RED, "red node with a red child");
+      }
+    }
+    return left + (node.getColour() == Colour.BLACK ? 1 : 0);
+  }
+
   public static void printDepth(AbstractRedBlackTree<?,?> tree)
   {
     for (ImmutableRedBlackNode<?> node : tree.immutableNodeIterable())
@@ -0,0 +1,189 @@
+package com.metchevn.util.tree.redblack;
+
+import com.google.common.collect.Ordering;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class TestRedBlackTreeSnapshot
+{
+  private Path m_directory;
+  private Path m_file;
+
+  @BeforeEach
+  public void createDirectory() throws IOException
+  {
+    m_directory = Files.createTempDirectory("snapshot");
+    m_file = m_directory.resolve("tree.rbts");
+  }
+
+  @AfterEach
+  public void deleteDirectory() throws IOException
+  {
+    Files.deleteIfExists(m_file);
+    Files.delete(m_directory);
+  }
+
+  @Test
+  public void testRoundTripKeepsShapeAndColours() throws IOException
+  {
+    Random random = new Random(9);
+    DefaultRedBlackTree<Integer> tree = new DefaultRedBlackTree<>(Ordering.<Integer>natural());
+    // inserts and removes leave a shape that a bulk build from the sorted values would not give
+    for (int i = 0; i < 20000; i++)
+    {
+      int value = random.nextInt(10000);
+      if (random.nextInt(3) == 0)
+      {
+        tree.remove(value);
+      }
+      else
+      {
+        tree.add(value);
+      }
+    }
+    RedBlackTreeSnapshot.write(tree, SnapshotCodec.INTEGER, m_file);
+
+    AtomicInteger comparisons = new AtomicInteger();
+    Comparator<Integer> counting = (a, b) ->
+    {
+      comparisons.incrementAndGet();
+      return Integer.compare(a, b);
+    };
+    DefaultRedBlackTree<Integer> loaded = RedBlackTreeSnapshot.read(m_file, SnapshotCodec.INTEGER, counting);
+    assertThat(comparisons.get(), is(0));
+    assertThat(loaded.size(), is(tree.size()));
+    assertThat(new ArrayList<>(loaded), is(new ArrayList<>(tree)));
+    assertThat(preOrder(loaded.getRoot()), is(preOrder(tree.getRoot())));
+    for (int i = 0; i < 100; i++)
+    {
+      int value = random.nextInt(10000);
+      assertThat(loaded.contains(value), is(tree.contains(value)));
+    }
+    // the loaded tree is a working tree, not a read-only view
+    loaded.add(-1);
+    assertThat(loaded.first(), is(-1));
+  }
+
+  @Test
+  public void testStringsAndEmptyTrees() throws IOException
+  {
+    DefaultRedBlackTree<String> tree = DefaultRedBlackTree.fromSorted(Ordering.<String>natural(), Arrays.asList("", "caf\u00e9", "tree", "\u6811"));
+    RedBlackTreeSnapshot.write(tree, SnapshotCodec.STRING, m_file);
+    DefaultRedBlackTree<String> loaded = RedBlackTreeSnapshot.read(m_file, SnapshotCodec.STRING, new DefaultRedBlackTree<>(Ordering.<String>natural()));
+    assertThat(new ArrayList<>(loaded), is(new ArrayList<>(tree)));
+
+    RedBlackTreeSnapshot.write(new DefaultRedBlackTree<>(Ordering.<String>natural()), SnapshotCodec.STRING, m_file);
+    assertTrue(RedBlackTreeSnapshot.read(m_file, SnapshotCodec.STRING, loaded).isEmpty());
+  }
+
+  @Test
+  public void testCorruptSnapshotsAreRejected() throws IOException
+  {
+    DefaultRedBlackTree<Long> tree = new DefaultRedBlackTree<>(Ordering.<Long>natural());
+    for (long i = 0; i < 1000; i++)
+    {
+      tree.add(i * i);
+    }
+    RedBlackTreeSnapshot.write(tree, SnapshotCodec.LONG, m_file);
+    byte[] good = Files.readAllBytes(m_file);
+
+    // every byte of the count and the body is covered by the checksum, or by the length check
+    Random random = new Random(4);
+    for (int i = 0; i < 50; i++)
+    {
+      byte[] bad = good.clone();
+      int offset = 8 + random.nextInt(bad.length - 8);
+      bad[offset] ^= 1 << random.nextInt(8);
+      Files.write(m_file, bad);
+      assertThrows(IOException.class, () -> RedBlackTreeSnapshot.read(m_file, SnapshotCodec.LONG, Ordering.<Long>natural()));
+    }
+
+    Files.write(m_file, Arrays.copyOf(good, good.length - 3));
+    assertThrows(IOException.class, () -> RedBlackTreeSnapshot.read(m_file, SnapshotCodec.LONG, Ordering.<Long>natural()));
+
+    byte[] future = good.clone();
+    future[7] = RedBlackTreeSnapshot.VERSION + 1;
+    Files.write(m_file, future);
+    IOException version = assertThrows(IOException.class, () -> RedBlackTreeSnapshot.read(m_file, SnapshotCodec.LONG, Ordering.<Long>natural()));
+    assertTrue(version.getMessage().contains("version"));
+
+    // a payload the codec reads wrongly runs off the end, even with a good checksum
+    Files.write(m_file, good);
+    assertThrows(IOException.class, () -> RedBlackTreeSnapshot.read(m_file, SnapshotCodec.INTEGER, Ordering.<Integer>natural()));
+    try (RandomAccessFile file = new RandomAccessFile(m_file.toFile(), "r"))
+    {
+      assertThat(file.length(), is((long) good.length));
+    }
+  }
+
+  @Test
+  public void testFailedWriteKeepsPreviousSnapshot() throws IOException
+  {
+    DefaultRedBlackTree<Integer> tree = DefaultRedBlackTree.fromSorted(Ordering.<Integer>natural(), Arrays.asList(1, 2, 3, 4, 5));
+    RedBlackTreeSnapshot.write(tree, SnapshotCodec.INTEGER, m_file);
+    byte[] previous = Files.readAllBytes(m_file);
+    SnapshotCodec<Integer> failing = new SnapshotCodec<Integer>()
+    {
+      @Override
+      public void write(Integer value, DataOutput out) throws IOException
+      {
+        if (value == 4)
+        {
+          throw new IOException("disk full");
+        }
+        out.writeInt(value);
+      }
+
+      @Override
+      public Integer read(ByteBuffer in)
+      {
+        return in.getInt();
+      }
+    };
+    assertThrows(IOException.class, () -> RedBlackTreeSnapshot.write(tree, failing, m_file));
+    assertThat(Files.readAllBytes(m_file), is(previous));
+    try (Stream<Path> files = Files.list(m_directory))
+    {
+      assertThat(files.count(), is(1L));
+    }
+  }
+
+  private static List<String> preOrder(DefaultRedBlackNode<Integer> node)
+  {
+    List<String> nodes = new ArrayList<>();
+    preOrder(node, nodes);
+    return nodes;
+  }
+
+  private static void preOrder(DefaultRedBlackNode<Integer> node, List<String> nodes)
+  {
+    if (node == null)
+    {
+      nodes.add("-");
+      return;
+    }
+    nodes.add(node.getPayload() + (node.getColour() ? "B" : "R"));
+    preOrder(node.getLeft(), nodes);
+    preOrder(node.getRight(), nodes);
+  }
+}
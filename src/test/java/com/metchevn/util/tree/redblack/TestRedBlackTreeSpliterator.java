@@ -0,0 +1,81 @@
+package com.metchevn.util.tree.redblack;
+
+import com.google.common.collect.Ordering;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.number.OrderingComparison.greaterThan;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class TestRedBlackTreeSpliterator
+{
+  private static DefaultRedBlackTree<Integer> tree(int size)
+  {
+    DefaultRedBlackTree<Integer> tree = new DefaultRedBlackTree<>(Ordering.<Integer>natural());
+    for (int i = 0; i < size; i++)
+    {
+      tree.add((i * 7919) % size);
+    }
+    return tree;
+  }
+
+  @Test
+  public void testSplitsCoverEveryElementOnceInOrder()
+  {
+    for (int size : new int[] {0, 1, 2, 3, 10, 1000})
+    {
+      List<Integer> elements = new ArrayList<>();
+      collect(tree(size).spliterator(), elements, 0);
+      assertThat(elements, is(IntStream.range(0, size).boxed().collect(Collectors.toList())));
+    }
+  }
+
+  /** Splits recursively, then drains the prefix before the rest, which must give the encounter order. */
+  private static void collect(Spliterator<Integer> spliterator, List<Integer> elements, int depth)
+  {
+    Spliterator<Integer> prefix = depth < 8 ? spliterator.trySplit() : null;
+    if (prefix != null)
+    {
+      collect(prefix, elements, depth + 1);
+      collect(spliterator, elements, depth + 1);
+    }
+    else
+    {
+      spliterator.tryAdvance(elements::add);
+      spliterator.forEachRemaining(elements::add);
+    }
+  }
+
+  @Test
+  public void testCharacteristics()
+  {
+    Spliterator<Integer> spliterator = tree(100).spliterator();
+    assertTrue(spliterator.hasCharacteristics(Spliterator.SORTED | Spliterator.DISTINCT | Spliterator.SIZED));
+    assertThat(spliterator.getExactSizeIfKnown(), is(100L));
+    Spliterator<Integer> prefix = spliterator.trySplit();
+    assertThat(prefix.estimateSize() + spliterator.estimateSize(), is(100L));
+    assertFalse(spliterator.hasCharacteristics(Spliterator.SIZED));
+    spliterator.tryAdvance(value -> { });
+    assertThat(spliterator.trySplit() == null, is(true));
+  }
+
+  @Test
+  public void testParallelStream()
+  {
+    DefaultRedBlackTree<Integer> tree = tree(100000);
+    assertThat(tree.parallelStream().mapToLong(Integer::longValue).sum(), is(100000L * 99999 / 2));
+    assertThat(tree.parallelStream().collect(Collectors.toList()), is(new ArrayList<>(tree)));
+    Spliterator<Integer> prefix = tree.spliterator().trySplit();
+    int[] actual = {0};
+    prefix.forEachRemaining(value -> actual[0]++);
+    assertThat(actual[0], greaterThan(100000 / 8));
+  }
+}
@@ -0,0 +1,137 @@
+package com.metchevn.util.tree.redblack;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Ordering;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NavigableSet;
+import java.util.Random;
+import java.util.TreeSet;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class TestRedBlackTreeViews
+{
+  @Test
+  public void testViewsMatchTreeSet()
+  {
+    Random random = new Random(3);
+    for (NavigableSet<Integer> tree : ImmutableList.<NavigableSet<Integer>>of(
+        new DefaultRedBlackTree<>(Ordering.<Integer>natural()), new ArenaRedBlackTree<>(Ordering.<Integer>natural())))
+    {
+      TreeSet<Integer> expected = new TreeSet<>();
+      for (int i = 0; i < 300; i++)
+      {
+        int value = random.nextInt(500);
+        tree.add(value);
+        expected.add(value);
+      }
+      for (int i = 0; i < 300; i++)
+      {
+        int from = random.nextInt(520) - 10;
+        int to = from + random.nextInt(200);
+        boolean fromInclusive = random.nextBoolean();
+        boolean toInclusive = random.nextBoolean();
+        assertSameView(tree.subSet(from, fromInclusive, to, toInclusive), expected.subSet(from, fromInclusive, to, toInclusive), random);
+        assertSameView(tree.headSet(to, toInclusive), expected.headSet(to, toInclusive), random);
+        assertSameView(tree.tailSet(from, fromInclusive), expected.tailSet(from, fromInclusive), random);
+        assertSameView(tree.descendingSet().subSet(to, toInclusive, from, fromInclusive),
+            expected.descendingSet().subSet(to, toInclusive, from, fromInclusive), random);
+        int inner = from + random.nextInt(to - from + 1);
+        assertSameView(tree.subSet(from, true, to, true).tailSet(inner, false).descendingSet().headSet(to, false),
+            expected.subSet(from, true, to, true).tailSet(inner, false).descendingSet().headSet(to, false), random);
+      }
+      assertSameView(tree.descendingSet(), expected.descendingSet(), random);
+    }
+  }
+
+  private static void assertSameView(NavigableSet<Integer> actual, NavigableSet<Integer> expected, Random random)
+  {
+    assertThat(list(actual.iterator()), is(list(expected.iterator())));
+    assertThat(list(actual.descendingIterator()), is(list(expected.descendingIterator())));
+    assertThat(actual.size(), is(expected.size()));
+    assertThat(actual.isEmpty(), is(expected.isEmpty()));
+    for (int i = 0; i < 5; i++)
+    {
+      int probe = random.nextInt(540) - 20;
+      assertThat(actual.contains(probe), is(expected.contains(probe)));
+      assertThat(actual.ceiling(probe), is(expected.ceiling(probe)));
+      assertThat(actual.floor(probe), is(expected.floor(probe)));
+      assertThat(actual.higher(probe), is(expected.higher(probe)));
+      assertThat(actual.lower(probe), is(expected.lower(probe)));
+    }
+    if (!expected.isEmpty())
+    {
+      assertThat(actual.first(), is(expected.first()));
+      assertThat(actual.last(), is(expected.last()));
+    }
+  }
+
+  private static List<Integer> list(Iterator<Integer> iterator)
+  {
+    List<Integer> list = new ArrayList<>();
+    iterator.forEachRemaining(list::add);
+    return list;
+  }
+
+  @Test
+  public void testViewsAreLive()
+  {
+    DefaultRedBlackTree<Integer> tree = new DefaultRedBlackTree<>(Ordering.<Integer>natural());
+    for (int i = 0; i < 20; i++)
+    {
+      tree.add(i);
+    }
+    NavigableSet<Integer> view = tree.subSet(5, true, 10, false);
+    assertThat(view.toString(), is("[5, 6, 7, 8, 9]"));
+    tree.remove(7);
+    tree.add(100);
+    assertThat(view.toString(), is("[5, 6, 8, 9]"));
+    assertTrue(view.add(7));
+    assertThrows(IllegalArgumentException.class, () -> view.add(10));
+    assertThrows(IllegalArgumentException.class, () -> view.subSet(4, true, 8, true));
+    assertThat(view.pollFirst(), is(5));
+    assertThat(view.descendingSet().pollFirst(), is(9));
+    assertFalse(tree.contains(5));
+    assertFalse(tree.contains(9));
+    view.clear();
+    assertTrue(view.isEmpty());
+    assertThat(tree.size(), is(16));
+  }
+
+  @Test
+  public void testRemoveThroughViewIterators()
+  {
+    for (boolean descending : new boolean[] {false, true})
+    {
+      ArenaRedBlackTree<Integer> tree = new ArenaRedBlackTree<>(Ordering.<Integer>natural());
+      for (int i = 0; i < 100; i++)
+      {
+        tree.add(i);
+      }
+      NavigableSet<Integer> view = tree.subSet(10, true, 90, true);
+      Iterator<Integer> iterator = descending ? view.descendingIterator() : view.iterator();
+      List<Integer> seen = new ArrayList<>();
+      while (iterator.hasNext())
+      {
+        int value = iterator.next();
+        seen.add(value);
+        if (value % 2 == 0)
+        {
+          iterator.remove();
+        }
+      }
+      assertThat(seen.size(), is(81));
+      assertThat(tree.size(), is(59));
+      assertThat(view.size(), is(40));
+      assertThat(view.first(), is(11));
+    }
+  }
+}
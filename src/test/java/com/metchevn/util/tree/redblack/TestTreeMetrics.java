@@ -0,0 +1,81 @@
+package com.metchevn.util.tree.redblack;
+
+import com.google.common.collect.Ordering;
+import com.metchevn.util.tree.binary.TreeMetrics;
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.number.OrderingComparison.greaterThan;
+import static org.hamcrest.number.OrderingComparison.lessThanOrEqualTo;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class TestTreeMetrics
+{
+  @Test
+  public void testCountsWorkAndShape()
+  {
+    DefaultRedBlackTree<Integer> tree = new DefaultRedBlackTree<>(Ordering.<Integer>natural());
+    assertThrows(IllegalStateException.class, tree::sampleMetrics);
+    tree.add(-1);
+    TreeMetrics metrics = new TreeMetrics();
+    tree.setMetrics(metrics);
+    for (int i = 0; i < 1000; i++)
+    {
+      tree.add(i);
+    }
+    TreeMetrics.Snapshot inserted = tree.sampleMetrics();
+    assertThat(inserted.getSize(), is(1001));
+    assertThat(inserted.getLookups(), is(1000L));
+    // ascending inserts keep rebalancing the right spine
+    assertThat(inserted.getRotations(), greaterThan(900L));
+    assertThat(inserted.getRecolourings(), greaterThan(0L));
+    assertThat(inserted.getHeight(), is(tree.height()));
+    assertThat(inserted.getHeight(), lessThanOrEqualTo(2 * 10));
+    assertThat(inserted.getBlackHeight(), is(TestRedBlackTree.checkRedBlack(tree.getRoot()) - 1));
+
+    metrics.reset();
+    for (int i = 0; i < 1000; i++)
+    {
+      tree.contains(i);
+    }
+    TreeMetrics.Snapshot looked = tree.sampleMetrics();
+    assertThat(looked.getLookups(), is(1000L));
+    assertThat(looked.getRotations(), is(0L));
+    assertThat(looked.getVisits(), is(looked.getComparisons()));
+    assertThat(looked.getVisitsPerLookup(), lessThanOrEqualTo((double) looked.getHeight()));
+    assertThat(metrics.getLastSample(), is(looked));
+
+    tree.setMetrics(null);
+    tree.contains(5);
+    assertThat(metrics.getLastSample().getLookups(), is(1000L));
+  }
+
+  @Test
+  public void testExportsLastSampleOverJmx() throws Exception
+  {
+    DefaultRedBlackTree<Integer> tree = new DefaultRedBlackTree<>(Ordering.<Integer>natural());
+    TreeMetrics metrics = new TreeMetrics();
+    tree.setMetrics(metrics);
+    tree.add(1);
+    tree.add(2);
+    tree.add(3);
+    tree.sampleMetrics();
+    MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+    ObjectName name = metrics.register("test-" + System.nanoTime());
+    try
+    {
+      assertThat(server.getAttribute(name, "Size"), is(3));
+      assertThat(server.getAttribute(name, "Height"), is(2));
+      assertThat(server.getAttribute(name, "Rotations"), is(1L));
+    }
+    finally
+    {
+      server.unregisterMBean(name);
+    }
+  }
+}